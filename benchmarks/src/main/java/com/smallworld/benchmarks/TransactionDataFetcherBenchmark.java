@@ -0,0 +1,131 @@
+package com.smallworld.benchmarks;
+
+import com.smallworld.data.ColumnarTransactionRepository;
+import com.smallworld.data.IndexedTransactionRepository;
+import com.smallworld.data.TransactionRepository;
+import com.smallworld.domain.TransactionDataFetcher;
+import com.smallworld.domain.TransactionSummary;
+import com.smallworld.domain.entities.Transaction;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures every {@link TransactionDataFetcher} query on one fetcher created for the trial, so statistics
+ * served from the summary are measured once it has been computed. {@link #coldSummaryScan()} measures
+ * computing the summary on a new fetcher, the scan the first query pays.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx16g"})
+@State(Scope.Benchmark)
+public class TransactionDataFetcherBenchmark {
+
+    @Param({"10000", "1000000", "10000000"})
+    public int transactions;
+
+    @Param({"1000"})
+    public int clients;
+
+    @Param({"0.1"})
+    public double issueRatio;
+
+    @Param({"indexed", "columnar"})
+    public String storage;
+
+    private TransactionRepository repository;
+    private TransactionDataFetcher fetcher;
+    private String sender;
+    private String client;
+
+    @Setup(Level.Trial)
+    public void createRepository() {
+        List<Transaction> generated = new TransactionGenerator(clients, issueRatio, 42).generate(transactions);
+        sender = generated.get(0).getSenderFullName();
+        client = generated.get(0).getBeneficiaryFullName();
+
+        IndexedTransactionRepository indexedRepository = new IndexedTransactionRepository(generated);
+        repository = storage.equals("columnar") ? new ColumnarTransactionRepository(indexedRepository) : indexedRepository;
+        fetcher = new TransactionDataFetcher(repository);
+    }
+
+    /**
+     * Computes the summary on a new fetcher, scanning every transaction
+     */
+    @Benchmark
+    public TransactionSummary coldSummaryScan() {
+        return new TransactionDataFetcher(repository).getSummary();
+    }
+
+    @Benchmark
+    public TransactionSummary getSummary() {
+        return fetcher.getSummary();
+    }
+
+    @Benchmark
+    public BigDecimal getTotalTransactionAmount() {
+        return fetcher.getTotalTransactionAmount();
+    }
+
+    @Benchmark
+    public BigDecimal getTotalTransactionAmountSentBy() {
+        return fetcher.getTotalTransactionAmountSentBy(sender);
+    }
+
+    @Benchmark
+    public BigDecimal getMaxTransactionAmount() {
+        return fetcher.getMaxTransactionAmount();
+    }
+
+    @Benchmark
+    public Long countUniqueClients() {
+        return fetcher.countUniqueClients();
+    }
+
+    @Benchmark
+    public Boolean hasOpenComplianceIssues() {
+        return fetcher.hasOpenComplianceIssues(client);
+    }
+
+    @Benchmark
+    public Map<String, List<Transaction>> getTransactionsByBeneficiaryName() {
+        return fetcher.getTransactionsByBeneficiaryName();
+    }
+
+    @Benchmark
+    public Set<Integer> getUnsolvedIssueIds() {
+        return fetcher.getUnsolvedIssueIds();
+    }
+
+    @Benchmark
+    public List<String> getAllSolvedIssueMessages() {
+        return fetcher.getAllSolvedIssueMessages();
+    }
+
+    @Benchmark
+    public List<Transaction> getTop3TransactionsByAmount() {
+        return fetcher.getTop3TransactionsByAmount();
+    }
+
+    @Benchmark
+    public String getTopSender() {
+        return fetcher.getTopSender();
+    }
+
+    @Benchmark
+    public List<Transaction> getTopTransactions() {
+        return fetcher.getTopTransactions(100, Comparator.comparing(Transaction::getAmount));
+    }
+
+    @Benchmark
+    public Map<String, BigDecimal> getTopSenders() {
+        return fetcher.getTopSenders(100);
+    }
+}
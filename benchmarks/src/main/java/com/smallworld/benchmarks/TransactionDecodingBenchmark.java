@@ -0,0 +1,96 @@
+package com.smallworld.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smallworld.data.ColumnarTransactionRepository;
+import com.smallworld.data.TransactionJsonDecoder;
+import com.smallworld.data.TransactionRow;
+import com.smallworld.domain.entities.Transaction;
+import com.smallworld.metrics.LoadMetrics;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares decoding a JSON export held in memory through Jackson's bean deserializer with the hand-written
+ * {@link TransactionJsonDecoder}, and with the columnar load writing the decoded rows into its columns. Run
+ * with the GC profiler and divide {@code gc.alloc.rate.norm} by the rows of the source to get the bytes
+ * allocated per row.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Benchmark)
+public class TransactionDecodingBenchmark {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    @Param({"100000"})
+    public int transactions;
+
+    @Param({"1000"})
+    public int clients;
+
+    @Param({"0.1"})
+    public double issueRatio;
+
+    private Path jsonPath;
+    private byte[] json;
+
+    @Setup(Level.Trial)
+    public void writeSource() throws IOException {
+        jsonPath = Files.createTempFile("transactions", ".json");
+        new TransactionGenerator(clients, issueRatio, 42).writeJson(jsonPath, transactions);
+        json = Files.readAllBytes(jsonPath);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteSource() throws IOException {
+        Files.deleteIfExists(jsonPath);
+    }
+
+    @Benchmark
+    public Transaction[] beanDeserializer() throws IOException {
+        return OBJECT_MAPPER.readValue(json, Transaction[].class);
+    }
+
+    /**
+     * Decodes every row into one reused row without storing it anywhere, the cost of decoding alone
+     */
+    @Benchmark
+    public void decoderIntoReusedRow(Blackhole blackhole) throws IOException {
+        TransactionRow row = new TransactionRow();
+        try (TransactionJsonDecoder decoder = TransactionJsonDecoder.open(json)) {
+            while (decoder.next(row)) {
+                blackhole.consume(row.getAmountUnscaled());
+                blackhole.consume(row.getSenderFullName());
+            }
+        }
+    }
+
+    /**
+     * Decodes every row and creates its {@link Transaction}, as the object repositories do
+     */
+    @Benchmark
+    public void decoderIntoTransactions(Blackhole blackhole) throws IOException {
+        TransactionRow row = new TransactionRow();
+        try (TransactionJsonDecoder decoder = TransactionJsonDecoder.open(json)) {
+            while (decoder.next(row)) {
+                blackhole.consume(row.toTransaction());
+            }
+        }
+    }
+
+    /**
+     * Loads the source file into the columns, decoding and writing every row as the columnar storage does
+     */
+    @Benchmark
+    public ColumnarTransactionRepository columnarLoad() throws IOException {
+        return ColumnarTransactionRepository.load(jsonPath.toString(), LoadMetrics.DISABLED);
+    }
+}
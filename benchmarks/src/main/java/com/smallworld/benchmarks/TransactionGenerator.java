@@ -0,0 +1,119 @@
+package com.smallworld.benchmarks;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.smallworld.domain.entities.ComplianceIssue;
+import com.smallworld.domain.entities.Transaction;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic generator of synthetic transactions. The number of distinct clients and the share of
+ * transactions raising compliance issues are configurable, a transaction with issues raises one to three.
+ */
+public class TransactionGenerator {
+
+    private static final String[] ISSUE_MESSAGES = {
+            "Looks like money laundering",
+            "Something's fishy",
+            "Never gonna give you up",
+            "Don't let this transaction happen",
+            "Something ain't right"
+    };
+
+    private final int clientCardinality;
+    private final double issueRatio;
+    private final long seed;
+
+    public TransactionGenerator(int clientCardinality, double issueRatio, long seed) {
+        this.clientCardinality = clientCardinality;
+        this.issueRatio = issueRatio;
+        this.seed = seed;
+    }
+
+    /**
+     * Generates the given number of transactions, one per mtn
+     */
+    public List<Transaction> generate(int transactionCount) {
+        Random random = new Random(seed);
+        List<Transaction> transactions = new ArrayList<>(transactionCount);
+        int issueId = 1;
+
+        for (int mtn = 1; mtn <= transactionCount; mtn++) {
+            Transaction transaction = new Transaction(
+                    mtn,
+                    BigDecimal.valueOf(1 + random.nextInt(500_000), 2),
+                    clientName(random.nextInt(clientCardinality)),
+                    18 + random.nextInt(70),
+                    clientName(random.nextInt(clientCardinality)),
+                    18 + random.nextInt(70),
+                    null,
+                    true,
+                    null
+            );
+
+            if (random.nextDouble() < issueRatio) {
+                int issueCount = 1 + random.nextInt(3);
+                for (int i = 0; i < issueCount; i++) {
+                    transaction.addIssue(issueId++, random.nextBoolean(), ISSUE_MESSAGES[random.nextInt(ISSUE_MESSAGES.length)]);
+                }
+            }
+            transactions.add(transaction);
+        }
+
+        return transactions;
+    }
+
+    /**
+     * Writes the given number of transactions in the export format, repeating a transaction once per issue
+     */
+    public void writeJson(Path jsonPath, int transactionCount) throws IOException {
+        JsonFactory jsonFactory = new JsonFactory();
+
+        try (OutputStream output = new BufferedOutputStream(Files.newOutputStream(jsonPath), 1 << 16);
+             JsonGenerator generator = jsonFactory.createGenerator(output)) {
+            generator.writeStartArray();
+            for (Transaction transaction : generate(transactionCount)) {
+                if (transaction.getIssueCount() == 0) {
+                    writeRow(generator, transaction, null);
+                }
+                for (ComplianceIssue issue : transaction.getIssues()) {
+                    writeRow(generator, transaction, issue);
+                }
+            }
+            generator.writeEndArray();
+        }
+    }
+
+    private static void writeRow(JsonGenerator generator, Transaction transaction, ComplianceIssue issue) throws IOException {
+        generator.writeStartObject();
+        generator.writeNumberField("mtn", transaction.getMtn());
+        generator.writeNumberField("amount", transaction.getAmount());
+        generator.writeStringField("senderFullName", transaction.getSenderFullName());
+        generator.writeNumberField("senderAge", transaction.getSenderAge());
+        generator.writeStringField("beneficiaryFullName", transaction.getBeneficiaryFullName());
+        generator.writeNumberField("beneficiaryAge", transaction.getBeneficiaryAge());
+        if (issue == null) {
+            generator.writeNullField("issueId");
+            generator.writeBooleanField("issueSolved", true);
+            generator.writeNullField("issueMessage");
+        } else {
+            generator.writeNumberField("issueId", issue.getIssueId());
+            generator.writeBooleanField("issueSolved", issue.getIssueSolved());
+            generator.writeStringField("issueMessage", issue.getIssueMessage());
+        }
+        generator.writeEndObject();
+    }
+
+    private static String clientName(int clientId) {
+        return "Client " + clientId;
+    }
+}
@@ -0,0 +1,58 @@
+package com.smallworld.benchmarks;
+
+import com.smallworld.data.ColumnarTransactionRepository;
+import com.smallworld.data.TransactionJsonRepository;
+import com.smallworld.metrics.LoadMetrics;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures loading a JSON export into the repositories.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx16g"})
+@State(Scope.Benchmark)
+public class TransactionLoadingBenchmark {
+
+    @Param({"10000", "1000000", "10000000"})
+    public int transactions;
+
+    @Param({"1000"})
+    public int clients;
+
+    @Param({"0.1"})
+    public double issueRatio;
+
+    private Path jsonPath;
+
+    @Setup(Level.Trial)
+    public void writeSource() throws IOException {
+        jsonPath = Files.createTempFile("transactions", ".json");
+        new TransactionGenerator(clients, issueRatio, 42).writeJson(jsonPath, transactions);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteSource() throws IOException {
+        Files.deleteIfExists(jsonPath);
+    }
+
+    @Benchmark
+    public TransactionJsonRepository loadJsonRepository() throws IOException {
+        return new TransactionJsonRepository(jsonPath.toString());
+    }
+
+    /**
+     * Decodes the rows straight into the columns, as the columnar storage loads on one thread
+     */
+    @Benchmark
+    public ColumnarTransactionRepository loadColumnarRepository() throws IOException {
+        return ColumnarTransactionRepository.load(jsonPath.toString(), LoadMetrics.DISABLED);
+    }
+}
@@ -1,10 +1,27 @@
 package com.smallworld;
 
+import com.smallworld.api.TransactionQueryServer;
 import com.smallworld.config.Config;
+import com.smallworld.data.ColumnarTransactionRepository;
+import com.smallworld.data.IndexedTransactionRepository;
+import com.smallworld.data.MappedTransactionRepository;
 import com.smallworld.data.TransactionJsonRepository;
+import com.smallworld.data.TransactionJsonStreamRepository;
+import com.smallworld.data.TransactionRepository;
+import com.smallworld.data.TransactionSnapshot;
+import com.smallworld.domain.ApproximateTransactionDataFetcher;
+import com.smallworld.domain.CachingTransactionDataFetcher;
+import com.smallworld.domain.HyperLogLog;
+import com.smallworld.domain.SpaceSavingSketch;
 import com.smallworld.domain.TransactionDataFetcher;
 import com.smallworld.domain.entities.Transaction;
+import com.smallworld.metrics.LoadMetrics;
+import com.smallworld.metrics.MetricsRegistry;
+import com.smallworld.metrics.QueryMetrics;
 
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
@@ -65,14 +82,76 @@ public class SmallWorldApplication {
         System.out.println("-----------------------------------------------------------");
     }
 
+    private static TransactionRepository createRepository(String transactionsSource, String transactionsStorage, int parallelism,
+                                                          LoadMetrics loadMetrics) throws IOException {
+        switch (transactionsStorage) {
+            case "streaming":
+                return new TransactionJsonStreamRepository(transactionsSource);
+            case "columnar":
+                return parallelism > 1
+                        ? new ColumnarTransactionRepository(new TransactionJsonRepository(transactionsSource, parallelism, loadMetrics))
+                        : ColumnarTransactionRepository.load(transactionsSource, loadMetrics);
+            case "snapshot":
+                return TransactionSnapshot.load(transactionsSource);
+            case "mapped":
+                return MappedTransactionRepository.load(transactionsSource);
+            case "indexed":
+                return new IndexedTransactionRepository(new TransactionJsonRepository(transactionsSource, parallelism, loadMetrics));
+            default:
+                throw new IllegalArgumentException("Unknown transactions storage: " + transactionsStorage);
+        }
+    }
+
     public static void main(String[] args) throws Exception {
         Properties properties = Config.loadConfig();
         String transactionsSource = (String) properties.get("smallworld.transactions-source");
+        String transactionsStorage = properties.getProperty("smallworld.transactions-storage", "indexed");
 
-        TransactionJsonRepository transactionJsonRepository = new TransactionJsonRepository(transactionsSource);
-        TransactionDataFetcher transactionDataFetcher = new TransactionDataFetcher(transactionJsonRepository);
+        MetricsRegistry metrics = null;
+        if (Boolean.parseBoolean(properties.getProperty("smallworld.metrics", "false"))) {
+            metrics = new MetricsRegistry();
+            metrics.registerMBeans();
+            long dumpSeconds = Long.parseLong(properties.getProperty("smallworld.metrics-dump-seconds", "0"));
+            if (dumpSeconds > 0) {
+                metrics.startPeriodicDump(System.out, Duration.ofSeconds(dumpSeconds));
+            }
+        }
+
+        int parallelism = Integer.parseInt(properties.getProperty("smallworld.parallelism", "1"));
+        TransactionRepository transactionRepository = createRepository(transactionsSource, transactionsStorage, parallelism,
+                metrics != null ? metrics : LoadMetrics.DISABLED);
+        QueryMetrics queryMetrics = metrics != null ? metrics : QueryMetrics.DISABLED;
+        TransactionDataFetcher transactionDataFetcher;
+        if (Boolean.parseBoolean(properties.getProperty("smallworld.approximate", "false"))) {
+            transactionDataFetcher = ApproximateTransactionDataFetcher.withParallelism(transactionRepository, parallelism, queryMetrics,
+                    Integer.parseInt(properties.getProperty("smallworld.approximate-precision", String.valueOf(HyperLogLog.DEFAULT_PRECISION))),
+                    Integer.parseInt(properties.getProperty("smallworld.approximate-counters", String.valueOf(SpaceSavingSketch.DEFAULT_CAPACITY))));
+        } else {
+            transactionDataFetcher = TransactionDataFetcher.withParallelism(transactionRepository, parallelism, queryMetrics);
+        }
 
         printApplicationIntroduction(transactionsSource);
         printApplicationExecution(transactionDataFetcher);
+
+        if (metrics != null) {
+            System.out.println("Metrics:");
+            metrics.dump(System.out);
+        }
+
+        int serverPort = Integer.parseInt(properties.getProperty("smallworld.server-port", "0"));
+        if (serverPort > 0) {
+            int serverBacklog = Integer.parseInt(properties.getProperty("smallworld.server-backlog", "4096"));
+            TransactionQueryServer server = new TransactionQueryServer(
+                    new CachingTransactionDataFetcher(transactionDataFetcher, CachingTransactionDataFetcher.DEFAULT_MAX_ENTRIES),
+                    new InetSocketAddress(serverPort), serverBacklog);
+            server.start();
+            System.out.println("Serving transaction queries on port " + server.getPort());
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                server.close();
+                transactionDataFetcher.close();
+            }));
+        } else {
+            transactionDataFetcher.close();
+        }
     }
 }
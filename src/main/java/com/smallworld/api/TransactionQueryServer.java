@@ -0,0 +1,227 @@
+package com.smallworld.api;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smallworld.domain.TransactionDataFetcher;
+import com.smallworld.domain.entities.ComplianceIssue;
+import com.smallworld.domain.entities.Transaction;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * HTTP/JSON endpoint answering the queries of a {@link TransactionDataFetcher} on the JDK's built-in server.
+ * Every request runs on its own virtual thread when the runtime provides them, and on a cached thread pool
+ * otherwise. All requests share the fetcher and so the repository behind it, which must not be modified while
+ * serving. Transactions by beneficiary are streamed to the client one group at a time as they are read.
+ * <p>
+ * Transactions are written with their fields and an {@code issues} list holding every compliance issue of the
+ * mtn, the issue fields only carrying the first one.
+ * <p>
+ * All endpoints answer GET with a JSON body: 400 for a missing or malformed parameter, 404 when the requested
+ * value does not exist, 500 with a generic message for any other failure, which is logged.
+ */
+public class TransactionQueryServer implements Closeable {
+
+    private static final Logger LOGGER = Logger.getLogger(TransactionQueryServer.class.getName());
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper().addMixIn(Transaction.class, TransactionIssuesMixIn.class);
+    private static final String JSON_CONTENT_TYPE = "application/json";
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final TransactionDataFetcher fetcher;
+
+    /**
+     * Creates a server for the fetcher on the given address, keeping up to {@code backlog} connections waiting
+     * to be accepted. Port 0 picks a free port
+     */
+    public TransactionQueryServer(TransactionDataFetcher fetcher, InetSocketAddress address, int backlog) throws IOException {
+        this.fetcher = fetcher;
+        this.server = HttpServer.create(address, backlog);
+        this.executor = newRequestExecutor();
+        server.setExecutor(executor);
+
+        route("/total-amount", parameters -> fetcher.getTotalTransactionAmount());
+        route("/total-amount-sent-by", parameters -> fetcher.getTotalTransactionAmountSentBy(required(parameters, "sender")));
+        route("/max-amount", parameters -> fetcher.getMaxTransactionAmount());
+        route("/unique-clients", parameters -> fetcher.countUniqueClients());
+        route("/has-open-compliance-issues", parameters -> fetcher.hasOpenComplianceIssues(required(parameters, "client")));
+        route("/transaction-by-issue-id", parameters -> fetcher.getTransactionByIssueId(intParameter(parameters, "issueId")).orElseThrow());
+        route("/unsolved-issue-ids", parameters -> fetcher.getUnsolvedIssueIds());
+        route("/solved-issue-messages", parameters -> fetcher.getAllSolvedIssueMessages());
+        route("/top-3-transactions", parameters -> fetcher.getTop3TransactionsByAmount());
+        route("/top-sender", parameters -> fetcher.getTopSender());
+        route("/top-senders", parameters -> fetcher.getTopSenders(intParameter(parameters, "k")));
+        server.createContext("/transactions-by-beneficiary", exchange -> handle(exchange, this::streamTransactionsByBeneficiary));
+    }
+
+    /**
+     * Returns a virtual-thread-per-task executor when the runtime has one (Java 21+), a cached thread pool
+     * otherwise
+     */
+    static ExecutorService newRequestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stops accepting requests and waits up to a second for the running ones
+     */
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.shutdown();
+    }
+
+    private void route(String path, Query query) {
+        server.createContext(path, exchange -> handle(exchange, handledExchange -> {
+            byte[] body = OBJECT_MAPPER.writeValueAsBytes(query.answer(parameters(handledExchange)));
+            handledExchange.getResponseHeaders().set("Content-Type", JSON_CONTENT_TYPE);
+            handledExchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = handledExchange.getResponseBody()) {
+                out.write(body);
+            }
+        }));
+    }
+
+    private void handle(HttpExchange exchange, Handler handler) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                sendError(exchange, 405, "Only GET is supported");
+                return;
+            }
+            if (!exchange.getRequestURI().getPath().equals(exchange.getHttpContext().getPath())) {
+                sendError(exchange, 404, "Unknown path " + exchange.getRequestURI().getPath());
+                return;
+            }
+
+            handler.handle(exchange);
+        } catch (IllegalArgumentException e) {
+            sendError(exchange, 400, e.getMessage());
+        } catch (NoSuchElementException e) {
+            sendError(exchange, 404, "Not found");
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.SEVERE, "Failed to answer " + exchange.getRequestURI(), e);
+            sendError(exchange, 500, "Internal error");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        if (exchange.getResponseCode() != -1) {
+            // The headers are gone already, closing the exchange is all that is left
+            return;
+        }
+
+        byte[] body = OBJECT_MAPPER.writeValueAsBytes(Map.of("error", String.valueOf(message)));
+        exchange.getResponseHeaders().set("Content-Type", JSON_CONTENT_TYPE);
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * Writes the transactions grouped by beneficiary with chunked encoding, reading each group from the
+     * repository only when it is written, so neither the response nor the grouping is held in memory as a
+     * whole
+     */
+    private void streamTransactionsByBeneficiary(HttpExchange exchange) throws IOException {
+        try (Stream<Map.Entry<String, List<Transaction>>> transactionsByBeneficiary = fetcher.streamTransactionsByBeneficiaryName()) {
+            exchange.getResponseHeaders().set("Content-Type", JSON_CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, 0);
+            try (JsonGenerator generator = OBJECT_MAPPER.getFactory().createGenerator(exchange.getResponseBody())) {
+                generator.writeStartObject();
+                for (Iterator<Map.Entry<String, List<Transaction>>> beneficiaries = transactionsByBeneficiary.iterator(); beneficiaries.hasNext(); ) {
+                    Map.Entry<String, List<Transaction>> beneficiary = beneficiaries.next();
+                    generator.writeArrayFieldStart(String.valueOf(beneficiary.getKey()));
+                    for (Transaction transaction : beneficiary.getValue()) {
+                        generator.writeObject(transaction);
+                    }
+                    generator.writeEndArray();
+                }
+                generator.writeEndObject();
+            }
+        }
+    }
+
+    private static Map<String, String> parameters(HttpExchange exchange) {
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null || query.isEmpty()) {
+            return Map.of();
+        }
+
+        Map<String, String> parameters = new HashMap<>();
+        for (String parameter : query.split("&")) {
+            int separator = parameter.indexOf('=');
+            String name = separator < 0 ? parameter : parameter.substring(0, separator);
+            String value = separator < 0 ? "" : parameter.substring(separator + 1);
+            parameters.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+
+        return parameters;
+    }
+
+    private static String required(Map<String, String> parameters, String name) {
+        String value = parameters.get(name);
+        if (value == null) {
+            throw new IllegalArgumentException("Missing parameter " + name);
+        }
+
+        return value;
+    }
+
+    private static int intParameter(Map<String, String> parameters, String name) {
+        String value = required(parameters, name);
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Parameter " + name + " is not an integer: " + value);
+        }
+    }
+
+    /**
+     * Writes {@link Transaction#getIssues()}, which the entity leaves out of its own serialization
+     */
+    private abstract static class TransactionIssuesMixIn {
+        @JsonIgnore(false)
+        @JsonProperty("issues")
+        public abstract List<ComplianceIssue> getIssues();
+    }
+
+    @FunctionalInterface
+    private interface Query {
+        Object answer(Map<String, String> parameters);
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+        void handle(HttpExchange exchange) throws IOException;
+    }
+}
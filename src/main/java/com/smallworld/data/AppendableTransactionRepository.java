@@ -0,0 +1,144 @@
+package com.smallworld.data;
+
+import com.smallworld.domain.entities.ComplianceIssue;
+import com.smallworld.domain.entities.Transaction;
+
+import java.util.*;
+import java.util.function.LongConsumer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Repository accepting new transactions while it is being queried, safe for concurrent ingestion threads.
+ * A row repeating a known mtn adds its compliance issue to the existing transaction. The
+ * {@link TransactionAggregates} are updated on every add, so reading them never rescans the transactions.
+ * <p>
+ * Compliance issues can be marked solved or reopened afterwards, which updates the issue state index and
+ * the open-issue counters of the clients in place.
+ * <p>
+ * Appends take no repository-wide lock: transactions are queued lock-free, the mtn index is a concurrent
+ * map and only the transaction receiving an issue is locked while it changes. Scans see a weakly
+ * consistent view of the transactions added so far.
+ * <p>
+ * The aggregates are the consistent view of the issue states: each change is applied to them under the lock
+ * of the issue and shows in every query answered from them once the change returns. The {@link Transaction}
+ * objects returned by {@link #getAll()}, {@link #stream()} and the lookups are the stored ones, updated in
+ * place while holding their own monitor. A reader that does not synchronize on a transaction may see its
+ * issue fields from before a concurrent change or half way through it, so the entity and the aggregates can
+ * disagree for a while. Readers needing the current issues of a transaction read them in a
+ * {@code synchronized (transaction)} block.
+ */
+public class AppendableTransactionRepository implements TransactionRepository {
+
+    private final Queue<Transaction> transactions = new ConcurrentLinkedQueue<>();
+    private final ConcurrentHashMap<Integer, Transaction> transactionsByMtn = new ConcurrentHashMap<>();
+    private final LiveTransactionAggregates aggregates = new LiveTransactionAggregates();
+    private final AtomicLong version = new AtomicLong();
+
+    public AppendableTransactionRepository() {
+    }
+
+    public AppendableTransactionRepository(TransactionRepository source) {
+        source.forEach(this::add);
+    }
+
+    public void add(Transaction transaction) {
+        if (transaction.getMtn() == null) {
+            throw new IllegalArgumentException("Transaction without mtn: " + transaction);
+        }
+
+        Transaction existing = transactionsByMtn.putIfAbsent(transaction.getMtn(), transaction);
+        if (existing == null) {
+            aggregates.addTransaction(transaction);
+            aggregates.addIssue(transaction, transaction.getIssueId(), transaction.getIssueSolved(), transaction.getIssueMessage());
+            for (ComplianceIssue issue : transaction.getAdditionalIssues()) {
+                aggregates.addIssue(transaction, issue.getIssueId(), issue.getIssueSolved(), issue.getIssueMessage());
+            }
+            transactions.add(transaction);
+        } else {
+            addIssue(existing, transaction.getIssueId(), transaction.getIssueSolved(), transaction.getIssueMessage());
+            for (ComplianceIssue issue : transaction.getAdditionalIssues()) {
+                addIssue(existing, issue.getIssueId(), issue.getIssueSolved(), issue.getIssueMessage());
+            }
+        }
+
+        version.incrementAndGet();
+    }
+
+    public void addAll(Collection<Transaction> transactions) {
+        transactions.forEach(this::add);
+    }
+
+    /**
+     * Marks the compliance issue solved, returns false when the issue is unknown or already solved
+     */
+    public boolean markIssueSolved(int issueId) {
+        return updateIssueSolved(issueId, true);
+    }
+
+    /**
+     * Marks the compliance issue open again, returns false when the issue is unknown or already open
+     */
+    public boolean reopenIssue(int issueId) {
+        return updateIssueSolved(issueId, false);
+    }
+
+    private boolean updateIssueSolved(int issueId, boolean solved) {
+        Transaction transaction = aggregates.getIssueTransaction(issueId);
+        if (transaction == null) {
+            return false;
+        }
+
+        synchronized (transaction) {
+            if (!aggregates.updateIssueSolved(issueId, solved)) {
+                return false;
+            }
+            transaction.updateIssueSolved(issueId, solved);
+        }
+        version.incrementAndGet();
+
+        return true;
+    }
+
+    private void addIssue(Transaction transaction, Integer issueId, Boolean issueSolved, String issueMessage) {
+        synchronized (transaction) {
+            transaction.addIssue(issueId, issueSolved, issueMessage);
+        }
+        aggregates.addIssue(transaction, issueId, issueSolved, issueMessage);
+    }
+
+    /**
+     * Returns a snapshot of the transactions added so far
+     */
+    @Override
+    public List<Transaction> getAll() {
+        return Collections.unmodifiableList(new ArrayList<>(transactions));
+    }
+
+    @Override
+    public Stream<Transaction> stream() {
+        return transactions.stream();
+    }
+
+    @Override
+    public Optional<TransactionAggregates> aggregates() {
+        return Optional.of(aggregates);
+    }
+
+    @Override
+    public int countOpenIssues(String clientFullName, LongConsumer rowsScanned) {
+        return aggregates.getOpenIssueCount(clientFullName);
+    }
+
+    @Override
+    public Optional<Transaction> findByIssueId(int issueId, LongConsumer rowsScanned) {
+        return Optional.ofNullable(aggregates.getIssueTransaction(issueId));
+    }
+
+    @Override
+    public long version() {
+        return version.get();
+    }
+}
@@ -0,0 +1,72 @@
+package com.smallworld.data;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Symbol table that encodes client names as dense int ids, starting at 0 in order of first appearance.
+ * Encoding a name also yields a canonical {@link String} instance for it, so a client's name is held once
+ * however many transactions refer to it.
+ * <p>
+ * Not thread-safe, each loader or aggregation owns its dictionary.
+ */
+public class ClientDictionary {
+
+    public static final int UNKNOWN = -1;
+
+    private final Map<String, Integer> ids = new HashMap<>();
+    private String[] names = new String[16];
+
+    /**
+     * Returns the id of the client, assigning the next id when the name has not been seen yet
+     */
+    public int encode(String name) {
+        Integer id = ids.get(name);
+        if (id != null) {
+            return id;
+        }
+
+        int newId = ids.size();
+        if (newId == names.length) {
+            names = Arrays.copyOf(names, newId << 1);
+        }
+        names[newId] = name;
+        ids.put(name, newId);
+
+        return newId;
+    }
+
+    /**
+     * Returns the id of the client, or {@link #UNKNOWN} when the name has not been encoded
+     */
+    public int lookup(String name) {
+        Integer id = ids.get(name);
+        return id == null ? UNKNOWN : id;
+    }
+
+    public String decode(int id) {
+        if (id < 0 || id >= ids.size()) {
+            throw new IndexOutOfBoundsException("Unknown client id " + id);
+        }
+
+        return names[id];
+    }
+
+    /**
+     * Returns the canonical instance of the name, encoding it if needed
+     */
+    public String intern(String name) {
+        if (name == null) {
+            return null;
+        }
+
+        // Encoded first: encoding may grow the names array
+        int id = encode(name);
+        return names[id];
+    }
+
+    public int size() {
+        return ids.size();
+    }
+}
@@ -0,0 +1,536 @@
+package com.smallworld.data;
+
+import com.smallworld.domain.entities.ComplianceIssue;
+import com.smallworld.domain.entities.Transaction;
+import com.smallworld.metrics.LoadMetrics;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.LongConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Repository holding the transactions in parallel primitive arrays instead of {@link Transaction} objects.
+ * Amounts are stored as longs in minor units of the highest scale found in the data, names as client ids
+ * and issues in flat columns. {@link Transaction} objects are only created for the methods returning them.
+ * Every amount must fit a long at that common scale: a source holding an amount that does not, such as one
+ * of more than 18 digits or a large amount next to an amount with many decimals, is rejected with an
+ * {@link IllegalArgumentException}. The snapshot and mapped storages are built from these columns and share
+ * the limit, the object storages have none.
+ * <p>
+ * The columns are loaded from the source in a single pass, so a streaming source is never materialized.
+ * Filters are evaluated on the columns, with amount ranges looked up in an index sorted by amount that is
+ * built on first use, and only the matching rows are materialized.
+ */
+public class ColumnarTransactionRepository implements TransactionRepository, TransactionColumns {
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final long[] POWERS_OF_TEN = new long[19];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int exponent = 1; exponent < POWERS_OF_TEN.length; exponent++) {
+            POWERS_OF_TEN[exponent] = POWERS_OF_TEN[exponent - 1] * 10;
+        }
+    }
+
+    private final ClientDictionary clients = new ClientDictionary();
+    private final Map<String, String> issueMessageInstances = new HashMap<>();
+
+    private int size;
+    private int[] mtns = new int[INITIAL_CAPACITY];
+    private long[] amounts = new long[INITIAL_CAPACITY];
+    private byte[] amountScales = new byte[INITIAL_CAPACITY];
+    private int amountScale;
+    private long maxAbsoluteAmount;
+    private int[] senderIds = new int[INITIAL_CAPACITY];
+    private int[] senderAges = new int[INITIAL_CAPACITY];
+    private int[] beneficiaryIds = new int[INITIAL_CAPACITY];
+    private int[] beneficiaryAges = new int[INITIAL_CAPACITY];
+
+    private int issueCount;
+    private int[] issueOffsets = new int[INITIAL_CAPACITY + 1];
+    private int[] issueIds = new int[INITIAL_CAPACITY];
+    private final BitSet issueSolved = new BitSet();
+    private String[] issueMessages = new String[INITIAL_CAPACITY];
+    private volatile SortedAmountIndex amountIndex;
+
+    public ColumnarTransactionRepository(TransactionRepository source) {
+        source.forEach(this::append);
+        trim();
+    }
+
+    private ColumnarTransactionRepository() {
+    }
+
+    /**
+     * Loads a JSON source, a single file, a directory of {@code .json} files or a glob, decoding the rows with
+     * a {@link TransactionJsonDecoder} straight into the columns without creating {@link Transaction} objects.
+     * Rows repeating an mtn add their issue to the first row of that mtn, as {@link TransactionJsonRepository}
+     * does
+     *
+     * @throws IllegalArgumentException if a row has no mtn or amount, or an amount that does not fit a long
+     *                                  at the common scale
+     */
+    public static ColumnarTransactionRepository load(String source, LoadMetrics metrics) throws IOException {
+        long start = metrics.start();
+        ColumnarTransactionRepository repository = new ColumnarTransactionRepository();
+        RowAppender appender = repository.new RowAppender();
+        TransactionRow row = new TransactionRow();
+        long bytes = 0;
+
+        for (Path file : ParallelTransactionJsonLoader.resolveFiles(source)) {
+            try (TransactionJsonDecoder decoder = TransactionJsonDecoder.open(file)) {
+                while (decoder.next(row)) {
+                    appender.append(row);
+                }
+                bytes += decoder.getBytesRead();
+            }
+        }
+        appender.finish();
+        repository.trim();
+        metrics.record(source, start, bytes, appender.rows);
+
+        return repository;
+    }
+
+    /**
+     * Wraps columns read back from a snapshot, the arrays are used as they are
+     */
+    ColumnarTransactionRepository(String[] clientNames, int[] mtns, long[] amounts, byte[] amountScales, int amountScale,
+                                  int[] senderIds, int[] senderAges, int[] beneficiaryIds, int[] beneficiaryAges,
+                                  int[] issueOffsets, int[] issueIds, BitSet issueSolved, String[] issueMessages) {
+        for (String clientName : clientNames) {
+            clients.encode(clientName);
+        }
+        this.size = mtns.length;
+        this.mtns = mtns;
+        this.amounts = amounts;
+        this.amountScales = amountScales;
+        this.amountScale = amountScale;
+        for (long amount : amounts) {
+            maxAbsoluteAmount = Math.max(maxAbsoluteAmount, Math.abs(amount));
+        }
+        this.senderIds = senderIds;
+        this.senderAges = senderAges;
+        this.beneficiaryIds = beneficiaryIds;
+        this.beneficiaryAges = beneficiaryAges;
+        this.issueCount = issueIds.length;
+        this.issueOffsets = issueOffsets;
+        this.issueIds = issueIds;
+        this.issueSolved.or(issueSolved);
+        this.issueMessages = issueMessages;
+    }
+
+    private void append(Transaction transaction) {
+        if (transaction.getMtn() == null) {
+            throw new IllegalArgumentException("Transaction without mtn: " + transaction);
+        }
+        if (transaction.getAmount() == null) {
+            throw new IllegalArgumentException("Transaction without amount: " + transaction);
+        }
+        if (size == mtns.length) {
+            growRows();
+        }
+
+        mtns[size] = transaction.getMtn();
+        appendAmount(transaction.getAmount());
+        senderIds[size] = clients.encode(transaction.getSenderFullName());
+        senderAges[size] = transaction.getSenderAge() == null ? NO_AGE : transaction.getSenderAge();
+        beneficiaryIds[size] = clients.encode(transaction.getBeneficiaryFullName());
+        beneficiaryAges[size] = transaction.getBeneficiaryAge() == null ? NO_AGE : transaction.getBeneficiaryAge();
+
+        appendIssue(transaction.getIssueId(), transaction.getIssueSolved(), transaction.getIssueMessage());
+        for (ComplianceIssue issue : transaction.getAdditionalIssues()) {
+            appendIssue(issue.getIssueId(), issue.getIssueSolved(), issue.getIssueMessage());
+        }
+
+        size++;
+        issueOffsets[size] = issueCount;
+    }
+
+    /**
+     * Stores the amount at the common scale, rescaling the amounts loaded so far when it has more decimals
+     */
+    private void appendAmount(BigDecimal amount) {
+        BigDecimal nonNegativeScaleAmount = amount.scale() < 0 ? amount.setScale(0) : amount;
+        if (nonNegativeScaleAmount.unscaledValue().bitLength() >= Long.SIZE) {
+            throw amountOutOfRange(amount);
+        }
+
+        appendAmount(nonNegativeScaleAmount.unscaledValue().longValue(), nonNegativeScaleAmount.scale());
+    }
+
+    private void appendAmount(long unscaled, int scale) {
+        if (scale > Byte.MAX_VALUE || unscaled == Long.MIN_VALUE) {
+            throw amountOutOfRange(BigDecimal.valueOf(unscaled, scale));
+        }
+
+        try {
+            if (scale > amountScale) {
+                // Checked on the largest amount first, so a rejected amount leaves the loaded ones unchanged
+                long factor = powerOfTen(scale - amountScale);
+                maxAbsoluteAmount = Math.multiplyExact(maxAbsoluteAmount, factor);
+                for (int row = 0; row < size; row++) {
+                    amounts[row] *= factor;
+                }
+                amountScale = scale;
+            }
+
+            amounts[size] = unscaled == 0 || scale == amountScale ? unscaled : Math.multiplyExact(unscaled, powerOfTen(amountScale - scale));
+        } catch (ArithmeticException e) {
+            throw amountOutOfRange(BigDecimal.valueOf(unscaled, scale));
+        }
+        amountScales[size] = (byte) scale;
+        maxAbsoluteAmount = Math.max(maxAbsoluteAmount, Math.abs(amounts[size]));
+    }
+
+    private static IllegalArgumentException amountOutOfRange(BigDecimal amount) {
+        return new IllegalArgumentException("Amount " + amount.toPlainString()
+                + " does not fit a long at the common scale of the columnar storage");
+    }
+
+    private static long powerOfTen(int exponent) {
+        if (exponent >= POWERS_OF_TEN.length) {
+            throw new ArithmeticException("Overflow");
+        }
+
+        return POWERS_OF_TEN[exponent];
+    }
+
+    private void appendIssue(Integer issueId, Boolean solved, String issueMessage) {
+        if (issueId != null) {
+            appendIssueWithId(issueId, solved, issueMessage);
+        }
+    }
+
+    private void appendIssueWithId(int issueId, Boolean solved, String issueMessage) {
+        if (issueCount == issueIds.length) {
+            issueIds = Arrays.copyOf(issueIds, issueCount << 1);
+            issueMessages = Arrays.copyOf(issueMessages, issueCount << 1);
+        }
+
+        issueIds[issueCount] = issueId;
+        issueSolved.set(issueCount, Boolean.TRUE.equals(solved));
+        issueMessages[issueCount] = issueMessage == null ? null : issueMessageInstances.computeIfAbsent(issueMessage, message -> message);
+        issueCount++;
+    }
+
+    private void growRows() {
+        int capacity = mtns.length << 1;
+        mtns = Arrays.copyOf(mtns, capacity);
+        amounts = Arrays.copyOf(amounts, capacity);
+        amountScales = Arrays.copyOf(amountScales, capacity);
+        senderIds = Arrays.copyOf(senderIds, capacity);
+        senderAges = Arrays.copyOf(senderAges, capacity);
+        beneficiaryIds = Arrays.copyOf(beneficiaryIds, capacity);
+        beneficiaryAges = Arrays.copyOf(beneficiaryAges, capacity);
+        issueOffsets = Arrays.copyOf(issueOffsets, capacity + 1);
+    }
+
+    private void trim() {
+        mtns = Arrays.copyOf(mtns, size);
+        amounts = Arrays.copyOf(amounts, size);
+        amountScales = Arrays.copyOf(amountScales, size);
+        senderIds = Arrays.copyOf(senderIds, size);
+        senderAges = Arrays.copyOf(senderAges, size);
+        beneficiaryIds = Arrays.copyOf(beneficiaryIds, size);
+        beneficiaryAges = Arrays.copyOf(beneficiaryAges, size);
+        issueOffsets = Arrays.copyOf(issueOffsets, size + 1);
+        issueIds = Arrays.copyOf(issueIds, issueCount);
+        issueMessages = Arrays.copyOf(issueMessages, issueCount);
+        issueMessageInstances.clear();
+    }
+
+    /**
+     * Materializes every transaction, prefer {@link #stream()} or the column accessors
+     */
+    @Override
+    public List<Transaction> getAll() {
+        return stream().collect(Collectors.toList());
+    }
+
+    @Override
+    public Stream<Transaction> stream() {
+        return IntStream.range(0, size).mapToObj(this::transaction);
+    }
+
+    @Override
+    public Optional<TransactionColumns> columns() {
+        return Optional.of(this);
+    }
+
+    @Override
+    public List<Transaction> findBySender(String senderFullName, LongConsumer rowsScanned) {
+        return TransactionColumns.super.findBySender(senderFullName, rowsScanned);
+    }
+
+    @Override
+    public List<Transaction> findByBeneficiary(String beneficiaryFullName) {
+        return TransactionColumns.super.findByBeneficiary(beneficiaryFullName);
+    }
+
+    @Override
+    public Stream<Map.Entry<String, List<Transaction>>> streamByBeneficiary(LongConsumer rowsScanned) {
+        return TransactionColumns.super.streamByBeneficiary(rowsScanned);
+    }
+
+    @Override
+    public int countOpenIssues(String clientFullName, LongConsumer rowsScanned) {
+        return TransactionColumns.super.countOpenIssues(clientFullName, rowsScanned);
+    }
+
+    @Override
+    public Stream<Transaction> findMatching(TransactionFilter filter) {
+        return TransactionColumns.super.findMatching(filter);
+    }
+
+    /**
+     * Answers from an index sorted by amount, built on the first query with amount bounds
+     */
+    @Override
+    public int[] rowsWithAmountBetween(long minAmount, long maxAmount) {
+        return amountIndex().rowsBetween(row -> amounts[row] >= minAmount, row -> amounts[row] <= maxAmount);
+    }
+
+    private SortedAmountIndex amountIndex() {
+        SortedAmountIndex index = amountIndex;
+        if (index == null) {
+            // Racing threads build equal indexes, any of them may win
+            index = new SortedAmountIndex(size, (first, second) -> Long.compare(amounts[first], amounts[second]));
+            amountIndex = index;
+        }
+
+        return index;
+    }
+
+    @Override
+    public Optional<Transaction> findByIssueId(int issueId, LongConsumer rowsScanned) {
+        return TransactionColumns.super.findByIssueId(issueId, rowsScanned);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int mtn(int row) {
+        return mtns[row];
+    }
+
+    @Override
+    public long amountUnscaled(int row) {
+        return amounts[row];
+    }
+
+    @Override
+    public int amountScale() {
+        return amountScale;
+    }
+
+    @Override
+    public int senderId(int row) {
+        return senderIds[row];
+    }
+
+    @Override
+    public int beneficiaryId(int row) {
+        return beneficiaryIds[row];
+    }
+
+    @Override
+    public int senderAge(int row) {
+        return senderAges[row];
+    }
+
+    @Override
+    public int beneficiaryAge(int row) {
+        return beneficiaryAges[row];
+    }
+
+    @Override
+    public int rowAmountScale(int row) {
+        return amountScales[row];
+    }
+
+    @Override
+    public int issueCount() {
+        return issueCount;
+    }
+
+    @Override
+    public int issueStart(int row) {
+        return issueOffsets[row];
+    }
+
+    @Override
+    public int issueEnd(int row) {
+        return issueOffsets[row + 1];
+    }
+
+    @Override
+    public int issueId(int issue) {
+        return issueIds[issue];
+    }
+
+    @Override
+    public boolean issueSolved(int issue) {
+        return issueSolved.get(issue);
+    }
+
+    @Override
+    public String issueMessage(int issue) {
+        return issueMessages[issue];
+    }
+
+    @Override
+    public ClientDictionary getClients() {
+        return clients;
+    }
+
+    /**
+     * Sums with a plain, vectorizable loop whenever the largest amount times the number of rows cannot
+     * overflow, and with checked additions otherwise
+     */
+    @Override
+    public long sumAmounts(int from, int to) {
+        long sum = 0;
+        if (Math.multiplyHigh(maxAbsoluteAmount, to - from) == 0 && maxAbsoluteAmount * (to - from) >= 0) {
+            for (int row = from; row < to; row++) {
+                sum += amounts[row];
+            }
+        } else {
+            for (int row = from; row < to; row++) {
+                sum = Math.addExact(sum, amounts[row]);
+            }
+        }
+
+        return sum;
+    }
+
+    /**
+     * Appends decoded rows, folding the rows of an mtn already seen into its row. Issues of an adjacent row are
+     * appended in place, the others are kept aside and spliced into the issue columns once loading is done
+     */
+    private class RowAppender {
+        private final MtnIndex rowsByMtn = new MtnIndex();
+        private long rows;
+
+        private int lateIssueCount;
+        private int[] lateIssueRows = new int[16];
+        private int[] lateIssueIds = new int[16];
+        private boolean[] lateIssueSolved = new boolean[16];
+        private String[] lateIssueMessages = new String[16];
+
+        void append(TransactionRow row) {
+            rows++;
+            if (row.getMtn() == TransactionRow.NO_VALUE) {
+                throw new IllegalArgumentException("Transaction without mtn: " + row.toTransaction());
+            }
+
+            int existingRow = rowsByMtn.putIfAbsent(row.getMtn(), size);
+            if (existingRow != MtnIndex.ABSENT) {
+                if (row.getIssueId() == TransactionRow.NO_VALUE) {
+                    return;
+                }
+                if (existingRow == size - 1) {
+                    appendIssueWithId(row.getIssueId(), row.getIssueSolved(), row.getIssueMessage());
+                    issueOffsets[size] = issueCount;
+                } else {
+                    addLateIssue(existingRow, row);
+                }
+                return;
+            }
+
+            if (!row.hasAmount) {
+                throw new IllegalArgumentException("Transaction without amount: " + row.toTransaction());
+            }
+            if (size == mtns.length) {
+                growRows();
+            }
+
+            mtns[size] = row.getMtn();
+            if (row.hasLongAmount()) {
+                appendAmount(row.getAmountUnscaled(), row.getAmountScale());
+            } else {
+                appendAmount(row.getAmount());
+            }
+            senderIds[size] = clients.encode(row.getSenderFullName());
+            senderAges[size] = row.getSenderAge() == TransactionRow.NO_VALUE ? NO_AGE : row.getSenderAge();
+            beneficiaryIds[size] = clients.encode(row.getBeneficiaryFullName());
+            beneficiaryAges[size] = row.getBeneficiaryAge() == TransactionRow.NO_VALUE ? NO_AGE : row.getBeneficiaryAge();
+            if (row.getIssueId() != TransactionRow.NO_VALUE) {
+                appendIssueWithId(row.getIssueId(), row.getIssueSolved(), row.getIssueMessage());
+            }
+
+            size++;
+            issueOffsets[size] = issueCount;
+        }
+
+        private void addLateIssue(int existingRow, TransactionRow row) {
+            if (lateIssueCount == lateIssueRows.length) {
+                int capacity = lateIssueCount << 1;
+                lateIssueRows = Arrays.copyOf(lateIssueRows, capacity);
+                lateIssueIds = Arrays.copyOf(lateIssueIds, capacity);
+                lateIssueSolved = Arrays.copyOf(lateIssueSolved, capacity);
+                lateIssueMessages = Arrays.copyOf(lateIssueMessages, capacity);
+            }
+
+            lateIssueRows[lateIssueCount] = existingRow;
+            lateIssueIds[lateIssueCount] = row.getIssueId();
+            lateIssueSolved[lateIssueCount] = Boolean.TRUE.equals(row.getIssueSolved());
+            lateIssueMessages[lateIssueCount] = row.getIssueMessage();
+            lateIssueCount++;
+        }
+
+        /**
+         * Rebuilds the issue columns with the issues kept aside placed after the issues of their row, in
+         * source order
+         */
+        void finish() {
+            if (lateIssueCount == 0) {
+                return;
+            }
+
+            // Counting sort of the late issues by row, stable so their source order is kept
+            int[] lateStarts = new int[size + 1];
+            for (int late = 0; late < lateIssueCount; late++) {
+                lateStarts[lateIssueRows[late] + 1]++;
+            }
+            for (int row = 0; row < size; row++) {
+                lateStarts[row + 1] += lateStarts[row];
+            }
+            int[] lateByRow = new int[lateIssueCount];
+            int[] nextSlots = Arrays.copyOf(lateStarts, size);
+            for (int late = 0; late < lateIssueCount; late++) {
+                lateByRow[nextSlots[lateIssueRows[late]]++] = late;
+            }
+
+            int[] ownOffsets = issueOffsets;
+            int[] ownIds = issueIds;
+            BitSet ownSolved = (BitSet) issueSolved.clone();
+            String[] ownMessages = issueMessages;
+            issueOffsets = new int[size + 1];
+            issueIds = new int[issueCount + lateIssueCount];
+            issueMessages = new String[issueCount + lateIssueCount];
+            issueSolved.clear();
+            issueCount = 0;
+
+            for (int row = 0; row < size; row++) {
+                for (int issue = ownOffsets[row]; issue < ownOffsets[row + 1]; issue++) {
+                    appendIssueWithId(ownIds[issue], ownSolved.get(issue), ownMessages[issue]);
+                }
+                for (int slot = lateStarts[row]; slot < lateStarts[row + 1]; slot++) {
+                    int late = lateByRow[slot];
+                    appendIssueWithId(lateIssueIds[late], lateIssueSolved[late], lateIssueMessages[late]);
+                }
+                issueOffsets[row + 1] = issueCount;
+            }
+        }
+    }
+}
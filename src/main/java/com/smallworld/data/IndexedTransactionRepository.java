@@ -0,0 +1,126 @@
+package com.smallworld.data;
+
+import com.smallworld.domain.entities.ComplianceIssue;
+import com.smallworld.domain.entities.Transaction;
+
+import java.util.*;
+import java.util.function.LongConsumer;
+import java.util.stream.Stream;
+
+/**
+ * Repository that builds hash indexes over the transactions of another repository once, at load time, so
+ * that lookups by sender, beneficiary, client and issue id do not scan the dataset. Filters on amount ranges
+ * are answered from an index sorted by amount, built on first use.
+ */
+public class IndexedTransactionRepository implements TransactionRepository {
+
+    private final List<Transaction> transactions;
+
+    private final Map<String, List<Transaction>> transactionsBySender = new HashMap<>();
+    private final Map<String, List<Transaction>> transactionsByBeneficiary = new HashMap<>();
+    private final Map<String, Integer> openIssueCountByClient = new HashMap<>();
+    private final Map<Integer, Transaction> transactionsByIssueId = new HashMap<>();
+    private volatile SortedAmountIndex amountIndex;
+
+    public IndexedTransactionRepository(TransactionRepository source) {
+        this(source.getAll());
+    }
+
+    public IndexedTransactionRepository(List<Transaction> transactions) {
+        this.transactions = Collections.unmodifiableList(new ArrayList<>(transactions));
+
+        for (Transaction transaction : this.transactions) {
+            index(transaction);
+        }
+        transactionsBySender.replaceAll((name, senderTransactions) -> Collections.unmodifiableList(senderTransactions));
+        transactionsByBeneficiary.replaceAll((name, beneficiaryTransactions) -> Collections.unmodifiableList(beneficiaryTransactions));
+    }
+
+    private void index(Transaction transaction) {
+        transactionsBySender.computeIfAbsent(transaction.getSenderFullName(), name -> new ArrayList<>()).add(transaction);
+        transactionsByBeneficiary.computeIfAbsent(transaction.getBeneficiaryFullName(), name -> new ArrayList<>()).add(transaction);
+
+        if (transaction.getIssueId() != null) {
+            indexIssue(transaction, transaction.getIssueId(), transaction.getIssueSolved());
+        }
+        for (ComplianceIssue issue : transaction.getAdditionalIssues()) {
+            indexIssue(transaction, issue.getIssueId(), issue.getIssueSolved());
+        }
+    }
+
+    private void indexIssue(Transaction transaction, Integer issueId, Boolean issueSolved) {
+        transactionsByIssueId.putIfAbsent(issueId, transaction);
+
+        // An issue not marked as solved is open, as the columnar storage and TransactionFilter read it
+        if (!Boolean.TRUE.equals(issueSolved)) {
+            openIssueCountByClient.merge(transaction.getSenderFullName(), 1, Integer::sum);
+            if (!Objects.equals(transaction.getBeneficiaryFullName(), transaction.getSenderFullName())) {
+                openIssueCountByClient.merge(transaction.getBeneficiaryFullName(), 1, Integer::sum);
+            }
+        }
+    }
+
+    @Override
+    public List<Transaction> getAll() {
+        return transactions;
+    }
+
+    @Override
+    public List<Transaction> findBySender(String senderFullName, LongConsumer rowsScanned) {
+        return transactionsBySender.getOrDefault(senderFullName, Collections.emptyList());
+    }
+
+    @Override
+    public List<Transaction> findByBeneficiary(String beneficiaryFullName) {
+        return transactionsByBeneficiary.getOrDefault(beneficiaryFullName, Collections.emptyList());
+    }
+
+    @Override
+    public Map<String, List<Transaction>> groupByBeneficiary(LongConsumer rowsScanned) {
+        return Collections.unmodifiableMap(transactionsByBeneficiary);
+    }
+
+    @Override
+    public int countOpenIssues(String clientFullName, LongConsumer rowsScanned) {
+        return openIssueCountByClient.getOrDefault(clientFullName, 0);
+    }
+
+    @Override
+    public Optional<Transaction> findByIssueId(int issueId, LongConsumer rowsScanned) {
+        return Optional.ofNullable(transactionsByIssueId.get(issueId));
+    }
+
+    /**
+     * Narrows the candidates with the sender or beneficiary index, or else with the amount index, and tests
+     * the filter on them only
+     */
+    @Override
+    public Stream<Transaction> findMatching(TransactionFilter filter) {
+        if (filter.getSenderFullName() != null) {
+            return findBySender(filter.getSenderFullName()).stream().filter(filter);
+        }
+        if (filter.getBeneficiaryFullName() != null) {
+            return findByBeneficiary(filter.getBeneficiaryFullName()).stream().filter(filter);
+        }
+        if (!filter.hasAmountBounds()) {
+            return transactions.stream().filter(filter);
+        }
+
+        int[] positions = amountIndex().rowsBetween(
+                position -> filter.getMinAmount() == null || transactions.get(position).getAmount().compareTo(filter.getMinAmount()) >= 0,
+                position -> filter.getMaxAmount() == null || transactions.get(position).getAmount().compareTo(filter.getMaxAmount()) <= 0);
+        return Arrays.stream(positions).mapToObj(transactions::get).filter(filter);
+    }
+
+    private SortedAmountIndex amountIndex() {
+        SortedAmountIndex index = amountIndex;
+        if (index == null) {
+            // Racing threads build equal indexes, any of them may win
+            index = new SortedAmountIndex(transactions.size(),
+                    (first, second) -> transactions.get(first).getAmount().compareTo(transactions.get(second).getAmount()));
+            amountIndex = index;
+        }
+
+        return index;
+    }
+}
@@ -0,0 +1,228 @@
+package com.smallworld.data;
+
+import com.smallworld.domain.entities.Transaction;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Aggregates updated in place as transactions and issues are added and as issues change state. Updates are
+ * lock-free apart from the issue being changed: the total is spread over CAS-updated stripes picked by thread,
+ * and the keyed statistics live in concurrent maps and sets. Reads never block writers and see each update
+ * once it has completed.
+ */
+class LiveTransactionAggregates implements TransactionAggregates {
+
+    private static final int STRIPES = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1) << 1;
+
+    private final AtomicReferenceArray<BigDecimal> totalAmountStripes = new AtomicReferenceArray<>(STRIPES);
+    private final AtomicReference<BigDecimal> maxAmount = new AtomicReference<>();
+    private final ConcurrentHashMap<String, BigDecimal> totalAmountBySender = new ConcurrentHashMap<>();
+    private final AtomicReference<Map.Entry<String, BigDecimal>> topSender = new AtomicReference<>();
+    private final AtomicBoolean negativeAmountSeen = new AtomicBoolean();
+    private final Set<String> clients = ConcurrentHashMap.newKeySet();
+    private final ConcurrentHashMap<String, AtomicInteger> openIssueCountByClient = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, IssueState> issuesById = new ConcurrentHashMap<>();
+    private final AtomicLong issueSequence = new AtomicLong();
+    private final Set<Integer> unsolvedIssueIds = ConcurrentHashMap.newKeySet();
+    private final Set<Integer> unsolvedIssueIdsView = Collections.unmodifiableSet(unsolvedIssueIds);
+    /** Solved issues by the order they were raised in, so their messages keep that order and may be null */
+    private final ConcurrentSkipListMap<Long, IssueState> solvedIssues = new ConcurrentSkipListMap<>();
+
+    LiveTransactionAggregates() {
+        for (int stripe = 0; stripe < STRIPES; stripe++) {
+            totalAmountStripes.set(stripe, BigDecimal.ZERO);
+        }
+    }
+
+    /**
+     * Records the amount and clients of a transaction seen for the first time
+     */
+    void addTransaction(Transaction transaction) {
+        BigDecimal amount = transaction.getAmount();
+        String senderFullName = transaction.getSenderFullName();
+
+        int stripe = (int) Thread.currentThread().getId() & (STRIPES - 1);
+        totalAmountStripes.accumulateAndGet(stripe, amount, BigDecimal::add);
+        maxAmount.accumulateAndGet(amount, (current, candidate) -> current == null || candidate.compareTo(current) > 0 ? candidate : current);
+
+        if (amount.signum() < 0) {
+            negativeAmountSeen.set(true);
+        }
+        BigDecimal senderTotal = totalAmountBySender.merge(senderFullName, amount, BigDecimal::add);
+        topSender.accumulateAndGet(Map.entry(senderFullName, senderTotal),
+                (current, candidate) -> current == null || candidate.getValue().compareTo(current.getValue()) > 0 ? candidate : current);
+
+        clients.add(senderFullName);
+        clients.add(transaction.getBeneficiaryFullName());
+    }
+
+    /**
+     * Records a compliance issue raised on the transaction. An id raised again keeps the state of its first
+     * occurrence
+     */
+    void addIssue(Transaction transaction, Integer issueId, Boolean issueSolved, String issueMessage) {
+        if (issueId == null) {
+            return;
+        }
+
+        IssueState issue = new IssueState(transaction, issueMessage, issueSequence.getAndIncrement());
+        // Locked before it is published, so a concurrent state change waits for the initial state
+        synchronized (issue) {
+            if (issuesById.putIfAbsent(issueId, issue) == null) {
+                applySolved(issueId, issue, Boolean.TRUE.equals(issueSolved));
+            }
+        }
+    }
+
+    /**
+     * Returns the transaction the issue was raised on, or null when the issue is unknown
+     */
+    Transaction getIssueTransaction(int issueId) {
+        IssueState issue = issuesById.get(issueId);
+        return issue == null ? null : issue.transaction;
+    }
+
+    /**
+     * Moves the issue to the given state, returns false when the issue is unknown or already in that state
+     */
+    boolean updateIssueSolved(int issueId, boolean solved) {
+        IssueState issue = issuesById.get(issueId);
+        return issue != null && setSolved(issueId, issue, solved);
+    }
+
+    /**
+     * Locks only the issue, so that the counters and sets of concurrent changes of one issue are applied in
+     * the order of its states
+     */
+    private boolean setSolved(int issueId, IssueState issue, boolean solved) {
+        synchronized (issue) {
+            return applySolved(issueId, issue, solved);
+        }
+    }
+
+    private boolean applySolved(int issueId, IssueState issue, boolean solved) {
+        int state = solved ? IssueState.SOLVED : IssueState.OPEN;
+        int previousState = issue.state;
+        if (previousState == state) {
+            return false;
+        }
+        issue.state = state;
+
+        int openIssueDelta = solved ? -1 : 1;
+        if (previousState != IssueState.NEW || !solved) {
+            openIssueCount(issue.transaction.getSenderFullName()).addAndGet(openIssueDelta);
+            if (!issue.transaction.getBeneficiaryFullName().equals(issue.transaction.getSenderFullName())) {
+                openIssueCount(issue.transaction.getBeneficiaryFullName()).addAndGet(openIssueDelta);
+            }
+        }
+
+        if (solved) {
+            unsolvedIssueIds.remove(issueId);
+            solvedIssues.put(issue.sequence, issue);
+        } else {
+            solvedIssues.remove(issue.sequence);
+            unsolvedIssueIds.add(issueId);
+        }
+
+        return true;
+    }
+
+    private AtomicInteger openIssueCount(String clientFullName) {
+        return openIssueCountByClient.computeIfAbsent(clientFullName, name -> new AtomicInteger());
+    }
+
+    @Override
+    public BigDecimal getTotalAmount() {
+        BigDecimal totalAmount = BigDecimal.ZERO;
+        for (int stripe = 0; stripe < STRIPES; stripe++) {
+            totalAmount = totalAmount.add(totalAmountStripes.get(stripe));
+        }
+
+        return totalAmount;
+    }
+
+    @Override
+    public Optional<BigDecimal> getMaxAmount() {
+        return Optional.ofNullable(maxAmount.get());
+    }
+
+    @Override
+    public BigDecimal getTotalAmountSentBy(String senderFullName) {
+        return totalAmountBySender.getOrDefault(senderFullName, BigDecimal.ZERO);
+    }
+
+    @Override
+    public long getUniqueClientCount() {
+        return clients.size();
+    }
+
+    @Override
+    public int getOpenIssueCount(String clientFullName) {
+        AtomicInteger openIssueCount = openIssueCountByClient.get(clientFullName);
+        return openIssueCount == null ? 0 : openIssueCount.get();
+    }
+
+    /**
+     * Returns an unmodifiable live view of the concurrent set, without copying it. Issues solved or raised
+     * later show in it, and iterating it is weakly consistent: it never fails but may or may not reflect
+     * changes made while it runs. Callers needing a stable set copy it
+     */
+    @Override
+    public Set<Integer> getUnsolvedIssueIds() {
+        return unsolvedIssueIdsView;
+    }
+
+    /**
+     * Returns the messages of the solved issues in the order the issues were raised, null for an issue
+     * without a message as in the summary of a scan
+     */
+    @Override
+    public List<String> getSolvedIssueMessages() {
+        List<String> messages = new ArrayList<>(solvedIssues.size());
+        for (IssueState issue : solvedIssues.values()) {
+            messages.add(issue.message);
+        }
+
+        return Collections.unmodifiableList(messages);
+    }
+
+    /**
+     * Sender totals only grow while amounts are positive, so the running maximum is kept on each update.
+     * Once a negative amount was added the totals are compared again on read
+     */
+    @Override
+    public Optional<String> getTopSender() {
+        if (negativeAmountSeen.get()) {
+            return totalAmountBySender.entrySet().stream()
+                    .max(Map.Entry.comparingByValue())
+                    .map(Map.Entry::getKey);
+        }
+
+        return Optional.ofNullable(topSender.get()).map(Map.Entry::getKey);
+    }
+
+    private static class IssueState {
+        private static final int NEW = 0;
+        private static final int OPEN = 1;
+        private static final int SOLVED = 2;
+
+        private final Transaction transaction;
+        private final String message;
+        private final long sequence;
+        private int state = NEW;
+
+        private IssueState(Transaction transaction, String message, long sequence) {
+            this.transaction = transaction;
+            this.message = message;
+            this.sequence = sequence;
+        }
+    }
+}
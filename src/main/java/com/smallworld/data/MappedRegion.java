@@ -0,0 +1,58 @@
+package com.smallworld.data;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Read-only mapping of a file range of any length. A single buffer maps at most 2 GB, so the range is mapped
+ * in 1 GB segments; values aligned to their own width never straddle two segments.
+ */
+class MappedRegion {
+
+    private static final int SEGMENT_SHIFT = 30;
+    private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+
+    private final ByteBuffer[] segments;
+    private final long length;
+
+    MappedRegion(FileChannel channel, long offset, long length) throws IOException {
+        this.length = length;
+        this.segments = new ByteBuffer[(int) ((length + SEGMENT_MASK) >>> SEGMENT_SHIFT)];
+        for (int segment = 0; segment < segments.length; segment++) {
+            long segmentOffset = (long) segment << SEGMENT_SHIFT;
+            segments[segment] = channel.map(FileChannel.MapMode.READ_ONLY, offset + segmentOffset,
+                    Math.min(SEGMENT_MASK + 1, length - segmentOffset));
+        }
+    }
+
+    long length() {
+        return length;
+    }
+
+    byte getByte(long position) {
+        return segments[(int) (position >>> SEGMENT_SHIFT)].get((int) (position & SEGMENT_MASK));
+    }
+
+    int getInt(long position) {
+        return segments[(int) (position >>> SEGMENT_SHIFT)].getInt((int) (position & SEGMENT_MASK));
+    }
+
+    long getLong(long position) {
+        return segments[(int) (position >>> SEGMENT_SHIFT)].getLong((int) (position & SEGMENT_MASK));
+    }
+
+    /**
+     * Copies {@code length} bytes starting at the position into the array
+     */
+    void getBytes(long position, byte[] bytes, int length) {
+        for (int copied = 0; copied < length; ) {
+            long current = position + copied;
+            ByteBuffer segment = segments[(int) (current >>> SEGMENT_SHIFT)];
+            int segmentPosition = (int) (current & SEGMENT_MASK);
+            int chunk = Math.min(length - copied, segment.limit() - segmentPosition);
+            segment.get(segmentPosition, bytes, copied, chunk);
+            copied += chunk;
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package com.smallworld.data;
+
+import com.smallworld.domain.entities.Transaction;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.LongConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Repository reading the columns of a {@link TransactionSnapshot} straight from the memory-mapped file, so the
+ * transactions live in the page cache rather than on the heap. Rows are fixed-width records spread over the
+ * column sections, and issue messages stay in the snapshot's string heap until they are read. Only the client
+ * dictionary is loaded on the heap, and an index of the rows by amount once a filter bounds the amount.
+ * <p>
+ * Scans through {@link #columns()} read the mapped values in place without creating objects, so datasets far
+ * larger than the heap can be queried with little garbage. Columns above 2 GB are mapped in segments.
+ */
+public class MappedTransactionRepository implements TransactionRepository, TransactionColumns {
+
+    private final ClientDictionary clients = new ClientDictionary();
+    private final int size;
+    private final int issueCount;
+    private final int amountScale;
+
+    private final MappedRegion mtns;
+    private final MappedRegion amounts;
+    private final MappedRegion amountScales;
+    private final MappedRegion senderIds;
+    private final MappedRegion senderAges;
+    private final MappedRegion beneficiaryIds;
+    private final MappedRegion beneficiaryAges;
+    private final MappedRegion issueOffsets;
+    private final MappedRegion issueIds;
+    private final MappedRegion issueSolved;
+    private final MappedRegion issueMessageIds;
+    private final MappedRegion messageOffsets;
+    private final MappedRegion messageBytes;
+    private volatile SortedAmountIndex amountIndex;
+
+    /**
+     * Maps the snapshot of the JSON source, writing it first when it is missing or out of date
+     */
+    public static MappedTransactionRepository load(String jsonPath) throws IOException {
+        return new MappedTransactionRepository(TransactionSnapshot.update(jsonPath));
+    }
+
+    /**
+     * Maps a snapshot file. Only its header is checked, {@link TransactionSnapshot#isValid(Path, Path)} verifies
+     * the checksum and the source
+     */
+    public MappedTransactionRepository(Path snapshot) throws IOException {
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            TransactionSnapshot.Header header = TransactionSnapshot.Header.read(channel);
+            if (header == null) {
+                throw new IOException("Not a transaction snapshot of format version " + TransactionSnapshot.FORMAT_VERSION + ": " + snapshot);
+            }
+
+            size = header.rowCount;
+            issueCount = header.issueCount;
+            amountScale = header.amountScale;
+
+            mtns = map(channel, header, TransactionSnapshot.MTNS);
+            amounts = map(channel, header, TransactionSnapshot.AMOUNTS);
+            amountScales = map(channel, header, TransactionSnapshot.AMOUNT_SCALES);
+            senderIds = map(channel, header, TransactionSnapshot.SENDER_IDS);
+            senderAges = map(channel, header, TransactionSnapshot.SENDER_AGES);
+            beneficiaryIds = map(channel, header, TransactionSnapshot.BENEFICIARY_IDS);
+            beneficiaryAges = map(channel, header, TransactionSnapshot.BENEFICIARY_AGES);
+            issueOffsets = map(channel, header, TransactionSnapshot.ISSUE_OFFSETS);
+            issueIds = map(channel, header, TransactionSnapshot.ISSUE_IDS);
+            issueSolved = map(channel, header, TransactionSnapshot.ISSUE_SOLVED);
+            issueMessageIds = map(channel, header, TransactionSnapshot.ISSUE_MESSAGE_IDS);
+            messageOffsets = map(channel, header, TransactionSnapshot.MESSAGE_OFFSETS);
+            messageBytes = map(channel, header, TransactionSnapshot.MESSAGE_BYTES);
+
+            MappedRegion clientOffsets = map(channel, header, TransactionSnapshot.CLIENT_OFFSETS);
+            MappedRegion clientBytes = map(channel, header, TransactionSnapshot.CLIENT_BYTES);
+            for (int id = 0; id < header.clientCount; id++) {
+                clients.encode(id == header.nullClientId ? null : readString(clientOffsets, clientBytes, id));
+            }
+        }
+    }
+
+    private static MappedRegion map(FileChannel channel, TransactionSnapshot.Header header, int section) throws IOException {
+        return new MappedRegion(channel, header.sectionOffsets[section], header.sectionLengths[section]);
+    }
+
+    private static String readString(MappedRegion offsets, MappedRegion bytes, int index) {
+        int start = offsets.getInt((long) index * Integer.BYTES);
+        int length = offsets.getInt((long) (index + 1) * Integer.BYTES) - start;
+        byte[] string = new byte[length];
+        bytes.getBytes(start, string, length);
+
+        return new String(string, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Materializes every transaction on the heap, prefer {@link #stream()} or the column accessors
+     */
+    @Override
+    public List<Transaction> getAll() {
+        return stream().collect(Collectors.toList());
+    }
+
+    @Override
+    public Stream<Transaction> stream() {
+        return IntStream.range(0, size).mapToObj(this::transaction);
+    }
+
+    @Override
+    public Optional<TransactionColumns> columns() {
+        return Optional.of(this);
+    }
+
+    @Override
+    public List<Transaction> findBySender(String senderFullName, LongConsumer rowsScanned) {
+        return TransactionColumns.super.findBySender(senderFullName, rowsScanned);
+    }
+
+    @Override
+    public List<Transaction> findByBeneficiary(String beneficiaryFullName) {
+        return TransactionColumns.super.findByBeneficiary(beneficiaryFullName);
+    }
+
+    @Override
+    public Stream<Map.Entry<String, List<Transaction>>> streamByBeneficiary(LongConsumer rowsScanned) {
+        return TransactionColumns.super.streamByBeneficiary(rowsScanned);
+    }
+
+    @Override
+    public int countOpenIssues(String clientFullName, LongConsumer rowsScanned) {
+        return TransactionColumns.super.countOpenIssues(clientFullName, rowsScanned);
+    }
+
+    @Override
+    public Optional<Transaction> findByIssueId(int issueId, LongConsumer rowsScanned) {
+        return TransactionColumns.super.findByIssueId(issueId, rowsScanned);
+    }
+
+    @Override
+    public Stream<Transaction> findMatching(TransactionFilter filter) {
+        return TransactionColumns.super.findMatching(filter);
+    }
+
+    /**
+     * Answers from an index sorted by amount, built on the first query with amount bounds. The index is the
+     * only part of the repository held on the heap besides the client dictionary
+     */
+    @Override
+    public int[] rowsWithAmountBetween(long minAmount, long maxAmount) {
+        SortedAmountIndex index = amountIndex;
+        if (index == null) {
+            // Racing threads build equal indexes, any of them may win
+            index = new SortedAmountIndex(size, (first, second) -> Long.compare(amountUnscaled(first), amountUnscaled(second)));
+            amountIndex = index;
+        }
+
+        return index.rowsBetween(row -> amountUnscaled(row) >= minAmount, row -> amountUnscaled(row) <= maxAmount);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int mtn(int row) {
+        return mtns.getInt((long) row * Integer.BYTES);
+    }
+
+    @Override
+    public long amountUnscaled(int row) {
+        return amounts.getLong((long) row * Long.BYTES);
+    }
+
+    @Override
+    public int amountScale() {
+        return amountScale;
+    }
+
+    @Override
+    public int senderId(int row) {
+        return senderIds.getInt((long) row * Integer.BYTES);
+    }
+
+    @Override
+    public int beneficiaryId(int row) {
+        return beneficiaryIds.getInt((long) row * Integer.BYTES);
+    }
+
+    @Override
+    public int senderAge(int row) {
+        return senderAges.getInt((long) row * Integer.BYTES);
+    }
+
+    @Override
+    public int beneficiaryAge(int row) {
+        return beneficiaryAges.getInt((long) row * Integer.BYTES);
+    }
+
+    @Override
+    public int rowAmountScale(int row) {
+        return amountScales.getByte(row);
+    }
+
+    @Override
+    public int issueCount() {
+        return issueCount;
+    }
+
+    @Override
+    public int issueStart(int row) {
+        return issueOffsets.getInt((long) row * Integer.BYTES);
+    }
+
+    @Override
+    public int issueEnd(int row) {
+        return issueOffsets.getInt((long) (row + 1) * Integer.BYTES);
+    }
+
+    @Override
+    public int issueId(int issue) {
+        return issueIds.getInt((long) issue * Integer.BYTES);
+    }
+
+    @Override
+    public boolean issueSolved(int issue) {
+        return issueSolved.getByte(issue) != 0;
+    }
+
+    /**
+     * Decodes the message from the string heap on every call
+     */
+    @Override
+    public String issueMessage(int issue) {
+        int messageId = issueMessageIds.getInt((long) issue * Integer.BYTES);
+        return messageId == TransactionSnapshot.NO_MESSAGE ? null : readString(messageOffsets, messageBytes, messageId);
+    }
+
+    @Override
+    public ClientDictionary getClients() {
+        return clients;
+    }
+}
@@ -0,0 +1,95 @@
+package com.smallworld.data;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing hash index from a primitive mtn to a non-negative position, avoiding the boxed keys and
+ * entry objects of a {@code HashMap<Integer, Integer>}.
+ */
+class MtnIndex {
+
+    static final int ABSENT = -1;
+
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private int[] keys;
+    private int[] values;
+    private int size;
+
+    MtnIndex() {
+        this(16);
+    }
+
+    MtnIndex(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(2, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        keys = new int[capacity];
+        values = new int[capacity];
+        Arrays.fill(values, ABSENT);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns the position stored for the mtn, or {@link #ABSENT}
+     */
+    int get(int mtn) {
+        int mask = keys.length - 1;
+        for (int slot = slot(mtn, mask); values[slot] != ABSENT; slot = (slot + 1) & mask) {
+            if (keys[slot] == mtn) {
+                return values[slot];
+            }
+        }
+
+        return ABSENT;
+    }
+
+    /**
+     * Stores the position unless the mtn is already indexed, returns the previous position or {@link #ABSENT}
+     */
+    int putIfAbsent(int mtn, int position) {
+        int mask = keys.length - 1;
+        int slot = slot(mtn, mask);
+        while (values[slot] != ABSENT) {
+            if (keys[slot] == mtn) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        keys[slot] = mtn;
+        values[slot] = position;
+        if (++size > keys.length * LOAD_FACTOR) {
+            resize();
+        }
+
+        return ABSENT;
+    }
+
+    private void resize() {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+
+        keys = new int[oldKeys.length << 1];
+        values = new int[oldValues.length << 1];
+        Arrays.fill(values, ABSENT);
+
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != ABSENT) {
+                int slot = slot(oldKeys[i], mask);
+                while (values[slot] != ABSENT) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private static int slot(int mtn, int mask) {
+        int hash = mtn * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+}
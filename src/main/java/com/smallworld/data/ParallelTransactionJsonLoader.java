@@ -0,0 +1,259 @@
+package com.smallworld.data;
+
+import com.smallworld.domain.entities.Transaction;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Decodes transaction sources made of one or many JSON array files on several threads. Each file is cut into
+ * chunks of whole transaction objects by a quick scan that only tracks brackets and strings, and the chunks
+ * are decoded concurrently while the scan goes on, at most a few chunks per thread ahead of the rows handed
+ * out so the decoded rows waiting in memory stay bounded. Rows are handed out in source order: files in name
+ * order, then chunks in file order. Each file is closed once its last chunk has been decoded.
+ */
+class ParallelTransactionJsonLoader {
+
+    static final int DEFAULT_CHUNK_BYTES = 8 << 20;
+
+    private static final long SCAN_WINDOW_BYTES = 1L << 30;
+    /** Chunks decoded or being decoded ahead of the rows handed out, per thread */
+    private static final int IN_FLIGHT_CHUNKS_PER_THREAD = 2;
+
+    private final int parallelism;
+    private final int chunkBytes;
+
+    ParallelTransactionJsonLoader(int parallelism, int chunkBytes) {
+        if (chunkBytes < 1) {
+            throw new IllegalArgumentException("chunkBytes must be positive: " + chunkBytes);
+        }
+
+        this.parallelism = parallelism;
+        this.chunkBytes = chunkBytes;
+    }
+
+    /**
+     * Resolves a source to its files: a directory stands for the {@code .json} files in it, a path with glob
+     * characters in its file name for the matching files of its directory, anything else for itself
+     */
+    static List<Path> resolveFiles(String source) throws IOException {
+        Path path = Paths.get(source);
+        if (Files.isDirectory(path)) {
+            return listFiles(path, "*.json");
+        }
+
+        String fileName = path.getFileName() == null ? "" : path.getFileName().toString();
+        if (isGlob(fileName)) {
+            Path directory = path.getParent() == null ? Paths.get("") : path.getParent();
+            return listFiles(directory, fileName);
+        }
+
+        return List.of(path);
+    }
+
+    /**
+     * Returns the path of a source read as a single file, rejecting a directory or a glob, which only the
+     * loaders resolving them through {@link #resolveFiles(String)} read
+     */
+    static Path singleFile(String source) {
+        Path path = Paths.get(source);
+        if (Files.isDirectory(path) || (path.getFileName() != null && isGlob(path.getFileName().toString()))) {
+            throw new IllegalArgumentException("Expected a single JSON file, directories and globs are only read by indexed and columnar storage: " + source);
+        }
+
+        return path;
+    }
+
+    private static boolean isGlob(String fileName) {
+        return fileName.chars().anyMatch(character -> "*?[{".indexOf(character) >= 0);
+    }
+
+    private static List<Path> listFiles(Path directory, String glob) throws IOException {
+        PathMatcher matcher = directory.getFileSystem().getPathMatcher("glob:" + glob);
+        try (Stream<Path> files = Files.list(directory.toAbsolutePath())) {
+            return files
+                    .filter(file -> matcher.matches(file.getFileName()) && Files.isRegularFile(file))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Decodes every row of the files and feeds them to the consumer in source order, on the calling thread
+     */
+    void load(List<Path> files, Consumer<Transaction> rows) throws IOException {
+        ExecutorService executor = parallelism > 1 ? Executors.newFixedThreadPool(parallelism) : null;
+        int maxInFlight = Math.max(parallelism, 1) * IN_FLIGHT_CHUNKS_PER_THREAD;
+        List<FileChannel> channels = new ArrayList<>();
+        try {
+            Deque<PendingChunk> chunks = new ArrayDeque<>();
+            for (Path file : files) {
+                FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+                channels.add(channel);
+                scanChunks(file, channel, (start, end) -> {
+                    chunks.add(new PendingChunk(executor == null
+                            ? CompletableFuture.completedFuture(decodeChunk(channel, start, end))
+                            : CompletableFuture.supplyAsync(() -> decodeChunk(channel, start, end), executor)));
+                    while (chunks.size() > maxInFlight) {
+                        chunks.remove().handOut(rows);
+                    }
+                });
+
+                // Handing out only takes older chunks, so the last chunk of the file is still pending unless it had none
+                if (chunks.isEmpty() || chunks.getLast().channelToClose != null) {
+                    channel.close();
+                } else {
+                    chunks.getLast().channelToClose = channel;
+                }
+            }
+
+            while (!chunks.isEmpty()) {
+                chunks.remove().handOut(rows);
+            }
+        } catch (CompletionException | UncheckedIOException e) {
+            Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+            if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) cause).getCause();
+            }
+            throw e;
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+            for (FileChannel channel : channels) {
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * Splits the top level array of the file into ranges of whole objects, each of at least {@code chunkBytes}
+     * except the last. A range starts at the opening brace of its first object and ends after the closing brace
+     * of its last object
+     */
+    private void scanChunks(Path file, FileChannel channel, ChunkConsumer chunks) throws IOException {
+        long size = channel.size();
+        int depth = 0;
+        boolean inString = false;
+        boolean escaped = false;
+        long chunkStart = -1;
+        long lastObjectEnd = -1;
+        boolean sawArray = false;
+
+        for (long windowStart = 0; windowStart < size; windowStart += SCAN_WINDOW_BYTES) {
+            ByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, Math.min(SCAN_WINDOW_BYTES, size - windowStart));
+            for (int index = 0, limit = window.limit(); index < limit; index++) {
+                byte current = window.get(index);
+                if (inString) {
+                    if (escaped) {
+                        escaped = false;
+                    } else if (current == '\\') {
+                        escaped = true;
+                    } else if (current == '"') {
+                        inString = false;
+                    }
+                } else if (current == '"') {
+                    inString = true;
+                } else if (current == '{' || current == '[') {
+                    long position = windowStart + index;
+                    if (depth == 0) {
+                        if (current != '[') {
+                            throw new IOException("Expected a JSON array of transactions in " + file);
+                        }
+                        sawArray = true;
+                    }
+                    if (depth == 1 && current == '{') {
+                        if (chunkStart < 0) {
+                            chunkStart = position;
+                        } else if (position - chunkStart >= chunkBytes) {
+                            chunks.accept(chunkStart, lastObjectEnd);
+                            chunkStart = position;
+                        }
+                    }
+                    depth++;
+                } else if (current == '}' || current == ']') {
+                    depth--;
+                    if (depth == 1 && current == '}') {
+                        lastObjectEnd = windowStart + index + 1;
+                    }
+                }
+            }
+        }
+
+        if (!sawArray) {
+            throw new IOException("Expected a JSON array of transactions in " + file);
+        }
+        if (depth != 0 || inString) {
+            throw new IOException("Unterminated JSON array of transactions in " + file);
+        }
+        if (chunkStart >= 0) {
+            chunks.accept(chunkStart, lastObjectEnd);
+        }
+    }
+
+    /**
+     * Decodes the objects in {@code [start, end)} by reading them between array brackets
+     */
+    private static List<Transaction> decodeChunk(FileChannel channel, long start, long end) {
+        try {
+            int length = Math.toIntExact(end - start);
+            byte[] json = new byte[length + 2];
+            json[0] = '[';
+            json[length + 1] = ']';
+            ByteBuffer buffer = ByteBuffer.wrap(json, 1, length);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, start + buffer.position() - 1) < 0) {
+                    throw new IOException("Source truncated while reading");
+                }
+            }
+
+            List<Transaction> rows = new ArrayList<>();
+            try (TransactionJsonReader reader = TransactionJsonReader.open(json)) {
+                reader.forEachRemaining(rows::add);
+            }
+
+            return rows;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Chunk whose rows are being decoded, closing its file once they have been handed out when it is the last
+     * chunk of the file
+     */
+    private static class PendingChunk {
+        private final CompletableFuture<List<Transaction>> rows;
+        private FileChannel channelToClose;
+
+        private PendingChunk(CompletableFuture<List<Transaction>> rows) {
+            this.rows = rows;
+        }
+
+        private void handOut(Consumer<Transaction> consumer) throws IOException {
+            rows.join().forEach(consumer);
+            if (channelToClose != null) {
+                channelToClose.close();
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface ChunkConsumer {
+        void accept(long start, long end) throws IOException;
+    }
+}
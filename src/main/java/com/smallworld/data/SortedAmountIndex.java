@@ -0,0 +1,96 @@
+package com.smallworld.data;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * Row positions sorted by amount, rows of equal amount in row order, so that the rows of an amount range are
+ * found by binary search instead of a scan.
+ */
+class SortedAmountIndex {
+
+    private static final int INSERTION_SORT_THRESHOLD = 32;
+
+    private final int[] rows;
+
+    /**
+     * Sorts the rows {@code [0, size)} with a stable merge sort on primitive positions
+     */
+    SortedAmountIndex(int size, RowComparator byAmount) {
+        rows = new int[size];
+        for (int row = 0; row < size; row++) {
+            rows[row] = row;
+        }
+        sort(rows, rows.clone(), 0, size, byAmount);
+    }
+
+    private static void sort(int[] rows, int[] buffer, int from, int to, RowComparator byAmount) {
+        if (to - from <= INSERTION_SORT_THRESHOLD) {
+            for (int i = from + 1; i < to; i++) {
+                int row = rows[i];
+                int j = i - 1;
+                while (j >= from && byAmount.compare(rows[j], row) > 0) {
+                    rows[j + 1] = rows[j];
+                    j--;
+                }
+                rows[j + 1] = row;
+            }
+            return;
+        }
+
+        int middle = (from + to) >>> 1;
+        sort(rows, buffer, from, middle, byAmount);
+        sort(rows, buffer, middle, to, byAmount);
+        if (byAmount.compare(rows[middle - 1], rows[middle]) <= 0) {
+            return;
+        }
+
+        System.arraycopy(rows, from, buffer, from, to - from);
+        for (int target = from, left = from, right = middle; target < to; target++) {
+            if (right >= to || (left < middle && byAmount.compare(buffer[left], buffer[right]) <= 0)) {
+                rows[target] = buffer[left++];
+            } else {
+                rows[target] = buffer[right++];
+            }
+        }
+    }
+
+    /**
+     * Returns the rows in row order whose amount is at least the lower bound and at most the upper bound. Each
+     * bound is a predicate on a row that holds for all amounts on its side of the bound
+     */
+    int[] rowsBetween(IntPredicate atLeastMin, IntPredicate atMostMax) {
+        int from = firstFailing(row -> !atLeastMin.test(row));
+        int to = firstFailing(atMostMax);
+        if (from >= to) {
+            return new int[0];
+        }
+
+        int[] range = Arrays.copyOfRange(rows, from, to);
+        Arrays.sort(range);
+        return range;
+    }
+
+    /**
+     * Returns the first sorted position whose row fails the predicate, which holds for a prefix of the rows
+     */
+    private int firstFailing(IntPredicate holdsForPrefix) {
+        int low = 0;
+        int high = rows.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (holdsForPrefix.test(rows[middle])) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+    @FunctionalInterface
+    interface RowComparator {
+        int compare(int firstRow, int secondRow);
+    }
+}
@@ -0,0 +1,31 @@
+package com.smallworld.data;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Statistics a repository maintains while transactions are added, so they can be read without a scan.
+ */
+public interface TransactionAggregates {
+
+    BigDecimal getTotalAmount();
+
+    Optional<BigDecimal> getMaxAmount();
+
+    BigDecimal getTotalAmountSentBy(String senderFullName);
+
+    long getUniqueClientCount();
+
+    /**
+     * Returns the number of open compliance issues of the transactions the client sent or received
+     */
+    int getOpenIssueCount(String clientFullName);
+
+    Set<Integer> getUnsolvedIssueIds();
+
+    List<String> getSolvedIssueMessages();
+
+    Optional<String> getTopSender();
+}
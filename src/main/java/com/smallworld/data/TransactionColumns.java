@@ -0,0 +1,361 @@
+package com.smallworld.data;
+
+import com.smallworld.domain.entities.Transaction;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.IntUnaryOperator;
+import java.util.function.LongConsumer;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Column oriented, read-only view of a transaction dataset. Rows are addressed by position and compliance
+ * issues by their own position, the issues of a row lying in {@code [issueStart(row), issueEnd(row))}.
+ * Amounts are exposed as unscaled longs at the common {@link #amountScale()}, so scans need neither boxing
+ * nor {@link BigDecimal} arithmetic.
+ * <p>
+ * The lookups of {@link TransactionRepository} are answered here from the columns alone, materializing only the
+ * transactions they return. Repositories implementing both interfaces delegate to them.
+ */
+public interface TransactionColumns {
+
+    /** Age of a row whose age is unknown */
+    int NO_AGE = Integer.MIN_VALUE;
+
+    int size();
+
+    int mtn(int row);
+
+    /**
+     * Returns the amount of the row multiplied by {@code 10^amountScale()}
+     */
+    long amountUnscaled(int row);
+
+    int amountScale();
+
+    /**
+     * Returns the id of the sender in {@link #getClients()}
+     */
+    int senderId(int row);
+
+    /**
+     * Returns the id of the beneficiary in {@link #getClients()}
+     */
+    int beneficiaryId(int row);
+
+    /**
+     * Returns the sender age of the row, {@link #NO_AGE} when it is unknown
+     */
+    int senderAge(int row);
+
+    /**
+     * Returns the beneficiary age of the row, {@link #NO_AGE} when it is unknown
+     */
+    int beneficiaryAge(int row);
+
+    /**
+     * Returns the scale the amount of the row was loaded with
+     */
+    int rowAmountScale(int row);
+
+    int issueCount();
+
+    int issueStart(int row);
+
+    int issueEnd(int row);
+
+    int issueId(int issue);
+
+    boolean issueSolved(int issue);
+
+    String issueMessage(int issue);
+
+    ClientDictionary getClients();
+
+    /**
+     * Creates the transaction of the row with its amount at the scale it was loaded with. A transaction
+     * without issues is reported as solved, as in the source exports
+     */
+    default Transaction transaction(int row) {
+        int senderAge = senderAge(row);
+        int beneficiaryAge = beneficiaryAge(row);
+        Transaction transaction = new Transaction(
+                mtn(row),
+                BigDecimal.valueOf(amountUnscaled(row), amountScale()).setScale(rowAmountScale(row)),
+                getClients().decode(senderId(row)),
+                senderAge == NO_AGE ? null : senderAge,
+                getClients().decode(beneficiaryId(row)),
+                beneficiaryAge == NO_AGE ? null : beneficiaryAge,
+                null,
+                true,
+                null
+        );
+
+        for (int issue = issueStart(row); issue < issueEnd(row); issue++) {
+            transaction.addIssue(issueId(issue), issueSolved(issue), issueMessage(issue));
+        }
+
+        return transaction;
+    }
+
+    /**
+     * Returns the sum of the unscaled amounts of the rows in {@code [from, to)}
+     *
+     * @throws ArithmeticException if the sum overflows a long
+     */
+    default long sumAmounts(int from, int to) {
+        long sum = 0;
+        for (int row = from; row < to; row++) {
+            sum = Math.addExact(sum, amountUnscaled(row));
+        }
+
+        return sum;
+    }
+
+    /**
+     * Returns the first row in {@code [from, to)} with the highest amount, or -1 when the range is empty
+     */
+    default int maxAmountRow(int from, int to) {
+        int maxRow = -1;
+        long maxAmount = Long.MIN_VALUE;
+        for (int row = from; row < to; row++) {
+            long amount = amountUnscaled(row);
+            if (amount > maxAmount || maxRow == -1) {
+                maxAmount = amount;
+                maxRow = row;
+            }
+        }
+
+        return maxRow;
+    }
+
+    /**
+     * Returns the sum of the amounts the client sent, at the highest scale those amounts were loaded with.
+     * Reads the sender and amount columns only, without creating any transaction
+     */
+    default BigDecimal sumAmountsSentBy(String senderFullName) {
+        int senderId = getClients().lookup(senderFullName);
+        if (senderId == ClientDictionary.UNKNOWN) {
+            return BigDecimal.ZERO;
+        }
+
+        long sum = 0;
+        BigInteger inflatedSum = null;
+        int scale = 0;
+        for (int row = 0; row < size(); row++) {
+            if (senderId(row) == senderId) {
+                long amount = amountUnscaled(row);
+                scale = Math.max(scale, rowAmountScale(row));
+                if (inflatedSum != null) {
+                    inflatedSum = inflatedSum.add(BigInteger.valueOf(amount));
+                } else {
+                    long next = sum + amount;
+                    if (((sum ^ next) & (amount ^ next)) < 0) {
+                        inflatedSum = BigInteger.valueOf(sum).add(BigInteger.valueOf(amount));
+                    }
+                    sum = next;
+                }
+            }
+        }
+
+        // Every amount of the client has at most that many decimals, so lowering the scale is exact
+        return new BigDecimal(inflatedSum != null ? inflatedSum : BigInteger.valueOf(sum), amountScale()).setScale(scale);
+    }
+
+    default List<Transaction> findBySender(String senderFullName, LongConsumer rowsScanned) {
+        return findByClientColumn(this::senderId, getClients().lookup(senderFullName), rowsScanned);
+    }
+
+    default List<Transaction> findByBeneficiary(String beneficiaryFullName) {
+        return findByClientColumn(this::beneficiaryId, getClients().lookup(beneficiaryFullName),
+                TransactionRepository.IGNORE_ROWS_SCANNED);
+    }
+
+    /**
+     * Scans the client column for the client, an unknown client is answered from the dictionary alone
+     */
+    private List<Transaction> findByClientColumn(IntUnaryOperator clientIds, int clientId, LongConsumer rowsScanned) {
+        List<Transaction> transactions = new ArrayList<>();
+        if (clientId == ClientDictionary.UNKNOWN) {
+            return transactions;
+        }
+
+        rowsScanned.accept(size());
+        for (int row = 0; row < size(); row++) {
+            if (clientIds.applyAsInt(row) == clientId) {
+                transactions.add(transaction(row));
+            }
+        }
+
+        return transactions;
+    }
+
+    /**
+     * Returns the groups in the order their beneficiaries first appear, each with its transactions in row
+     * order. The rows are sorted by beneficiary id up front and a group is only materialized once reached
+     */
+    default Stream<Map.Entry<String, List<Transaction>>> streamByBeneficiary(LongConsumer rowsScanned) {
+        rowsScanned.accept(size());
+        int clientCount = getClients().size();
+        int[] groupStarts = new int[clientCount + 1];
+        for (int row = 0; row < size(); row++) {
+            groupStarts[beneficiaryId(row) + 1]++;
+        }
+        for (int clientId = 0; clientId < clientCount; clientId++) {
+            groupStarts[clientId + 1] += groupStarts[clientId];
+        }
+
+        int[] rows = new int[size()];
+        int[] nextPositions = Arrays.copyOf(groupStarts, clientCount);
+        for (int row = 0; row < size(); row++) {
+            rows[nextPositions[beneficiaryId(row)]++] = row;
+        }
+
+        return IntStream.range(0, clientCount)
+                .filter(clientId -> groupStarts[clientId + 1] > groupStarts[clientId])
+                .mapToObj(clientId -> new AbstractMap.SimpleImmutableEntry<>(getClients().decode(clientId),
+                        IntStream.range(groupStarts[clientId], groupStarts[clientId + 1])
+                                .mapToObj(position -> transaction(rows[position]))
+                                .collect(Collectors.toList())));
+    }
+
+    default int countOpenIssues(String clientFullName, LongConsumer rowsScanned) {
+        int clientId = getClients().lookup(clientFullName);
+        if (clientId == ClientDictionary.UNKNOWN) {
+            return 0;
+        }
+
+        rowsScanned.accept(size());
+        int openIssues = 0;
+        for (int row = 0; row < size(); row++) {
+            if (senderId(row) == clientId || beneficiaryId(row) == clientId) {
+                for (int issue = issueStart(row); issue < issueEnd(row); issue++) {
+                    if (!issueSolved(issue)) {
+                        openIssues++;
+                    }
+                }
+            }
+        }
+
+        return openIssues;
+    }
+
+    /**
+     * Scans the issue column, reporting the rows up to the one holding the issue as scanned
+     */
+    default Optional<Transaction> findByIssueId(int issueId, LongConsumer rowsScanned) {
+        for (int issue = 0; issue < issueCount(); issue++) {
+            if (issueId(issue) == issueId) {
+                int row = rowOfIssue(issue);
+                rowsScanned.accept(row + 1);
+                return Optional.of(transaction(row));
+            }
+        }
+
+        rowsScanned.accept(size());
+        return Optional.empty();
+    }
+
+    /**
+     * Returns the rows, in row order, whose unscaled amount lies in {@code [minAmount, maxAmount]}. Scans the
+     * amount column, repositories holding an index by amount answer it from there
+     */
+    default int[] rowsWithAmountBetween(long minAmount, long maxAmount) {
+        return IntStream.range(0, size())
+                .filter(row -> amountUnscaled(row) >= minAmount && amountUnscaled(row) <= maxAmount)
+                .toArray();
+    }
+
+    /**
+     * Returns the transactions satisfying the filter in row order. Clients, ages, amount bounds and issue
+     * conditions are tested on the columns, so only the rows passing them are materialized for the
+     * {@link TransactionFilter#getWhere() where} predicate
+     */
+    default Stream<Transaction> findMatching(TransactionFilter filter) {
+        boolean anySender = filter.getSenderFullName() == null;
+        boolean anyBeneficiary = filter.getBeneficiaryFullName() == null;
+        int senderId = anySender ? ClientDictionary.UNKNOWN : getClients().lookup(filter.getSenderFullName());
+        int beneficiaryId = anyBeneficiary ? ClientDictionary.UNKNOWN : getClients().lookup(filter.getBeneficiaryFullName());
+        if ((!anySender && senderId == ClientDictionary.UNKNOWN) || (!anyBeneficiary && beneficiaryId == ClientDictionary.UNKNOWN)) {
+            return Stream.empty();
+        }
+
+        IntStream rows = filter.hasAmountBounds()
+                ? IntStream.of(rowsWithAmountBetween(
+                        filter.getMinAmount() == null ? Long.MIN_VALUE : unscaledBound(filter.getMinAmount(), RoundingMode.CEILING),
+                        filter.getMaxAmount() == null ? Long.MAX_VALUE : unscaledBound(filter.getMaxAmount(), RoundingMode.FLOOR)))
+                : IntStream.range(0, size());
+
+        Predicate<? super Transaction> where = filter.getWhere();
+        return rows
+                .filter(row -> (anySender || senderId(row) == senderId)
+                        && (anyBeneficiary || beneficiaryId(row) == beneficiaryId)
+                        && filter.testSenderAge(age(senderAge(row)))
+                        && filter.testBeneficiaryAge(age(beneficiaryAge(row)))
+                        && testIssues(row, filter.getIssues()))
+                .mapToObj(this::transaction)
+                .filter(transaction -> where == null || where.test(transaction));
+    }
+
+    /**
+     * Converts an amount bound to minor units of the common scale, rounding it inwards and clamping it to the
+     * range of the column
+     */
+    private long unscaledBound(BigDecimal bound, RoundingMode rounding) {
+        BigInteger unscaled = bound.setScale(amountScale(), rounding).unscaledValue();
+        if (unscaled.bitLength() >= Long.SIZE) {
+            return unscaled.signum() > 0 ? Long.MAX_VALUE : Long.MIN_VALUE;
+        }
+
+        return unscaled.longValue();
+    }
+
+    private static Integer age(int age) {
+        return age == NO_AGE ? null : age;
+    }
+
+    private boolean testIssues(int row, TransactionFilter.IssueCondition condition) {
+        switch (condition) {
+            case WITH_ISSUES:
+                return issueEnd(row) > issueStart(row);
+            case WITH_OPEN_ISSUES:
+                for (int issue = issueStart(row); issue < issueEnd(row); issue++) {
+                    if (!issueSolved(issue)) {
+                        return true;
+                    }
+                }
+                return false;
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * Returns the last row starting at or before the issue, rows without issues share their offset with
+     * the row that follows them
+     */
+    private int rowOfIssue(int issue) {
+        int low = 0;
+        int high = size() - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (issueStart(middle) <= issue) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+
+        return low;
+    }
+}
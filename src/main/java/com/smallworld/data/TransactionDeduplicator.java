@@ -0,0 +1,36 @@
+package com.smallworld.data;
+
+import com.smallworld.domain.entities.Transaction;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Folds the source rows, which repeat a transaction once per compliance issue, into one {@link Transaction}
+ * per mtn holding all of its issues. Transactions keep the order in which their mtn first appeared.
+ */
+class TransactionDeduplicator implements Consumer<Transaction> {
+
+    private final MtnIndex positions = new MtnIndex();
+    private final List<Transaction> transactions = new ArrayList<>();
+
+    @Override
+    public void accept(Transaction row) {
+        if (row.getMtn() == null) {
+            transactions.add(row);
+            return;
+        }
+
+        int position = positions.putIfAbsent(row.getMtn(), transactions.size());
+        if (position == MtnIndex.ABSENT) {
+            transactions.add(row);
+        } else {
+            transactions.get(position).addIssue(row.getIssueId(), row.getIssueSolved(), row.getIssueMessage());
+        }
+    }
+
+    List<Transaction> getTransactions() {
+        return transactions;
+    }
+}
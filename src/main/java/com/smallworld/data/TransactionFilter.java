@@ -0,0 +1,91 @@
+package com.smallworld.data;
+
+import com.smallworld.domain.entities.Transaction;
+import lombok.Builder;
+import lombok.Value;
+
+import java.math.BigDecimal;
+import java.util.function.Predicate;
+
+/**
+ * Declarative conditions on transactions, all of which must hold. Repositories read the conditions to answer
+ * from their indexes and columns instead of testing every transaction; the {@link #where} predicate is opaque
+ * and is only tested on the transactions that satisfy every other condition.
+ * <p>
+ * Bounds are inclusive and null when unbounded. A transaction without a known age never satisfies an age bound.
+ */
+@Value
+@Builder(toBuilder = true)
+public class TransactionFilter implements Predicate<Transaction> {
+
+    public static final TransactionFilter ALL = TransactionFilter.builder().build();
+
+    public enum IssueCondition {
+        ANY,
+        /** At least one compliance issue, solved or not */
+        WITH_ISSUES,
+        /** At least one compliance issue that is not solved */
+        WITH_OPEN_ISSUES
+    }
+
+    BigDecimal minAmount;
+    BigDecimal maxAmount;
+    Integer minSenderAge;
+    Integer maxSenderAge;
+    Integer minBeneficiaryAge;
+    Integer maxBeneficiaryAge;
+    String senderFullName;
+    String beneficiaryFullName;
+    @Builder.Default
+    IssueCondition issues = IssueCondition.ANY;
+    Predicate<? super Transaction> where;
+
+    public boolean hasAmountBounds() {
+        return minAmount != null || maxAmount != null;
+    }
+
+    /**
+     * Returns whether the transaction satisfies every condition but the opaque predicate
+     */
+    public boolean testIndexable(Transaction transaction) {
+        return (minAmount == null || transaction.getAmount().compareTo(minAmount) >= 0)
+                && (maxAmount == null || transaction.getAmount().compareTo(maxAmount) <= 0)
+                && (senderFullName == null || senderFullName.equals(transaction.getSenderFullName()))
+                && (beneficiaryFullName == null || beneficiaryFullName.equals(transaction.getBeneficiaryFullName()))
+                && testSenderAge(transaction.getSenderAge())
+                && testBeneficiaryAge(transaction.getBeneficiaryAge())
+                && testIssues(transaction);
+    }
+
+    @Override
+    public boolean test(Transaction transaction) {
+        return testIndexable(transaction) && (where == null || where.test(transaction));
+    }
+
+    boolean testSenderAge(Integer age) {
+        return testAge(age, minSenderAge, maxSenderAge);
+    }
+
+    boolean testBeneficiaryAge(Integer age) {
+        return testAge(age, minBeneficiaryAge, maxBeneficiaryAge);
+    }
+
+    private static boolean testAge(Integer age, Integer min, Integer max) {
+        if (min == null && max == null) {
+            return true;
+        }
+
+        return age != null && (min == null || age >= min) && (max == null || age <= max);
+    }
+
+    private boolean testIssues(Transaction transaction) {
+        switch (issues) {
+            case WITH_ISSUES:
+                return transaction.getIssueCount() > 0;
+            case WITH_OPEN_ISSUES:
+                return transaction.countOpenIssues() > 0;
+            default:
+                return true;
+        }
+    }
+}
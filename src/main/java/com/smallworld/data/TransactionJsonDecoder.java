@@ -0,0 +1,349 @@
+package com.smallworld.data;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Hand-written decoder of a JSON array of transactions, reading Jackson's tokens straight into a reused
+ * {@link TransactionRow} instead of going through the reflective bean deserializer. Field names are matched
+ * against the canonical names Jackson interns, numbers are read without boxing and amounts are parsed from
+ * the token's characters into an unscaled long. Names and messages seen before are returned as the same
+ * {@link String} instance without building a new one, so decoding a row allocates nothing once the names of
+ * the source have been seen.
+ * <p>
+ * Accepts what the default {@code ObjectMapper} binding of {@code Transaction} accepts: numbers and booleans
+ * may also be given as strings, and any field outside the schema is an error.
+ */
+public class TransactionJsonDecoder implements Closeable {
+
+    /** Shared by every decoder, a factory is thread-safe and costly to create */
+    static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    /** Longest unscaled amount parsed into a long, 18 digits never overflow */
+    private static final int MAX_LONG_DIGITS = 18;
+
+    private static final String[] FIELD_NAMES = {
+            "mtn", "amount", "senderFullName", "senderAge", "beneficiaryFullName", "beneficiaryAge",
+            "issueId", "issueSolved", "issueMessage"
+    };
+    private static final int MTN = 0;
+    private static final int AMOUNT = 1;
+    private static final int SENDER_FULL_NAME = 2;
+    private static final int SENDER_AGE = 3;
+    private static final int BENEFICIARY_FULL_NAME = 4;
+    private static final int BENEFICIARY_AGE = 5;
+    private static final int ISSUE_ID = 6;
+    private static final int ISSUE_SOLVED = 7;
+    private static final int ISSUE_MESSAGE = 8;
+    private static final int IGNORED = -2;
+    private static final int UNKNOWN = -1;
+    /** Properties the bean binding ignores, {@code Transaction} marks them {@code @JsonIgnore} */
+    private static final String[] IGNORED_NAMES = {"additionalIssues", "issues", "issueCount"};
+
+    private final JsonParser parser;
+    private final StringCache strings = new StringCache();
+
+    private TransactionJsonDecoder(JsonParser parser) throws IOException {
+        this.parser = parser;
+
+        if (parser.nextToken() != JsonToken.START_ARRAY) {
+            throw new IOException("Expected a JSON array of transactions at " + parser.currentLocation());
+        }
+    }
+
+    public static TransactionJsonDecoder open(Path jsonPath) throws IOException {
+        BufferedInputStream input = new BufferedInputStream(Files.newInputStream(jsonPath), BUFFER_SIZE);
+        try {
+            return new TransactionJsonDecoder(JSON_FACTORY.createParser(input));
+        } catch (IOException e) {
+            input.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens a decoder over a JSON array held in memory
+     */
+    public static TransactionJsonDecoder open(byte[] json) throws IOException {
+        return new TransactionJsonDecoder(JSON_FACTORY.createParser(json));
+    }
+
+    /**
+     * Decodes the next transaction of the array into the row, returns false once the array has been fully read
+     */
+    public boolean next(TransactionRow row) throws IOException {
+        JsonToken token = parser.nextToken();
+        if (token == JsonToken.END_ARRAY || token == null) {
+            return false;
+        }
+        if (token != JsonToken.START_OBJECT) {
+            throw new IOException("Expected a transaction object at " + parser.currentLocation());
+        }
+
+        row.clear();
+        for (token = parser.nextToken(); token == JsonToken.FIELD_NAME; token = parser.nextToken()) {
+            int field = field(parser.currentName());
+            token = parser.nextToken();
+            switch (field) {
+                case MTN:
+                    row.mtn = intValue(token);
+                    break;
+                case AMOUNT:
+                    readAmount(token, row);
+                    break;
+                case SENDER_FULL_NAME:
+                    row.senderFullName = stringValue(token);
+                    break;
+                case SENDER_AGE:
+                    row.senderAge = intValue(token);
+                    break;
+                case BENEFICIARY_FULL_NAME:
+                    row.beneficiaryFullName = stringValue(token);
+                    break;
+                case BENEFICIARY_AGE:
+                    row.beneficiaryAge = intValue(token);
+                    break;
+                case ISSUE_ID:
+                    row.issueId = intValue(token);
+                    break;
+                case ISSUE_SOLVED:
+                    row.issueSolved = booleanValue(token);
+                    break;
+                case ISSUE_MESSAGE:
+                    row.issueMessage = stringValue(token);
+                    break;
+                case IGNORED:
+                    parser.skipChildren();
+                    break;
+                default:
+                    throw new IOException("Unknown transaction field \"" + parser.currentName() + "\" at " + parser.currentLocation());
+            }
+        }
+        if (token != JsonToken.END_OBJECT) {
+            throw new IOException("Unterminated transaction object at " + parser.currentLocation());
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns the index of the field name, comparing references first since the parser hands out interned
+     * names
+     */
+    private static int field(String name) {
+        for (int field = 0; field < FIELD_NAMES.length; field++) {
+            if (FIELD_NAMES[field] == name) {
+                return field;
+            }
+        }
+        for (int field = 0; field < FIELD_NAMES.length; field++) {
+            if (FIELD_NAMES[field].equals(name)) {
+                return field;
+            }
+        }
+        for (String ignoredName : IGNORED_NAMES) {
+            if (ignoredName.equals(name)) {
+                return IGNORED;
+            }
+        }
+
+        return UNKNOWN;
+    }
+
+    /**
+     * Returns the number of bytes of the source decoded so far
+     */
+    public long getBytesRead() {
+        return parser.currentLocation().getByteOffset();
+    }
+
+    private int intValue(JsonToken token) throws IOException {
+        switch (token) {
+            case VALUE_NULL:
+                return TransactionRow.NO_VALUE;
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+                return parser.getValueAsInt();
+            case VALUE_STRING:
+                String text = parser.getText().trim();
+                try {
+                    return text.isEmpty() ? TransactionRow.NO_VALUE : new BigDecimal(text).intValue();
+                } catch (NumberFormatException e) {
+                    throw new IOException("Not a number: \"" + text + "\" at " + parser.currentLocation(), e);
+                }
+            default:
+                throw new IOException("Expected a number at " + parser.currentLocation());
+        }
+    }
+
+    private Boolean booleanValue(JsonToken token) throws IOException {
+        switch (token) {
+            case VALUE_NULL:
+                return null;
+            case VALUE_TRUE:
+                return Boolean.TRUE;
+            case VALUE_FALSE:
+                return Boolean.FALSE;
+            case VALUE_NUMBER_INT:
+                return parser.getIntValue() != 0;
+            case VALUE_STRING:
+                String text = parser.getText().trim();
+                if (text.isEmpty()) {
+                    return null;
+                }
+                if (text.equalsIgnoreCase("true") || text.equalsIgnoreCase("false")) {
+                    return Boolean.valueOf(text);
+                }
+                throw new IOException("Not a boolean: \"" + text + "\" at " + parser.currentLocation());
+            default:
+                throw new IOException("Expected a boolean at " + parser.currentLocation());
+        }
+    }
+
+    private String stringValue(JsonToken token) throws IOException {
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (!token.isScalarValue()) {
+            throw new IOException("Expected a string at " + parser.currentLocation());
+        }
+
+        return strings.get(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+    }
+
+    /**
+     * Parses a plain decimal amount from the token characters into an unscaled long and its scale. Amounts
+     * with an exponent or more than 18 digits are handed to {@link BigDecimal}
+     */
+    private void readAmount(JsonToken token, TransactionRow row) throws IOException {
+        if (token == JsonToken.VALUE_NULL) {
+            return;
+        }
+        if (token != JsonToken.VALUE_NUMBER_INT && token != JsonToken.VALUE_NUMBER_FLOAT && token != JsonToken.VALUE_STRING) {
+            throw new IOException("Expected an amount at " + parser.currentLocation());
+        }
+
+        char[] text = parser.getTextCharacters();
+        int offset = parser.getTextOffset();
+        int end = offset + parser.getTextLength();
+        if (token == JsonToken.VALUE_STRING) {
+            while (offset < end && Character.isWhitespace(text[offset])) {
+                offset++;
+            }
+            while (end > offset && Character.isWhitespace(text[end - 1])) {
+                end--;
+            }
+            if (offset == end) {
+                return;
+            }
+        }
+
+        int position = offset;
+        boolean negative = false;
+        if (text[position] == '-' || text[position] == '+') {
+            negative = text[position] == '-';
+            position++;
+        }
+
+        long unscaled = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean point = false;
+        boolean anyDigit = false;
+        boolean plain = true;
+        for (; position < end && plain; position++) {
+            char character = text[position];
+            if (character >= '0' && character <= '9') {
+                anyDigit = true;
+                if (unscaled != 0 || character != '0') {
+                    digits++;
+                }
+                unscaled = unscaled * 10 + (character - '0');
+                if (point) {
+                    scale++;
+                }
+                plain = digits <= MAX_LONG_DIGITS;
+            } else if (character == '.' && !point) {
+                point = true;
+            } else {
+                plain = false;
+            }
+        }
+
+        row.hasAmount = true;
+        if (plain && anyDigit) {
+            row.amountUnscaled = negative ? -unscaled : unscaled;
+            row.amountScale = scale;
+        } else {
+            try {
+                row.largeAmount = new BigDecimal(text, offset, end - offset);
+            } catch (NumberFormatException e) {
+                throw new IOException("Not an amount: \"" + new String(text, offset, end - offset) + "\" at " + parser.currentLocation(), e);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        parser.close();
+    }
+
+    /**
+     * Open addressing table of the strings decoded so far, looked up by their characters so that a string seen
+     * before is returned without creating a new one. Stops remembering new strings once full, so sources with
+     * unique messages per row cannot grow it without bound
+     */
+    private static class StringCache {
+
+        private static final int CAPACITY = 1 << 16;
+        private static final int MAX_SIZE = CAPACITY / 2;
+
+        private final String[] strings = new String[CAPACITY];
+        private int size;
+
+        String get(char[] characters, int offset, int length) {
+            int hash = 0;
+            for (int index = offset; index < offset + length; index++) {
+                hash = 31 * hash + characters[index];
+            }
+
+            int mask = CAPACITY - 1;
+            for (int slot = (hash ^ (hash >>> 16)) & mask; ; slot = (slot + 1) & mask) {
+                String string = strings[slot];
+                if (string == null) {
+                    string = new String(characters, offset, length);
+                    if (size < MAX_SIZE) {
+                        strings[slot] = string;
+                        size++;
+                    }
+                    return string;
+                }
+                if (string.hashCode() == hash && matches(string, characters, offset, length)) {
+                    return string;
+                }
+            }
+        }
+
+        private static boolean matches(String string, char[] characters, int offset, int length) {
+            if (string.length() != length) {
+                return false;
+            }
+            for (int index = 0; index < length; index++) {
+                if (string.charAt(index) != characters[offset + index]) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.smallworld.data;
+
+import com.smallworld.domain.entities.Transaction;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Decodes a JSON array of transactions one object at a time with a {@link TransactionJsonDecoder}, so that
+ * only the transaction being decoded has to be held in memory.
+ */
+public class TransactionJsonReader implements Closeable {
+
+    private final TransactionJsonDecoder decoder;
+    private final TransactionRow row = new TransactionRow();
+
+    private TransactionJsonReader(TransactionJsonDecoder decoder) {
+        this.decoder = decoder;
+    }
+
+    public static TransactionJsonReader open(Path jsonPath) throws IOException {
+        return new TransactionJsonReader(TransactionJsonDecoder.open(jsonPath));
+    }
+
+    /**
+     * Opens a reader over a JSON array held in memory
+     */
+    public static TransactionJsonReader open(byte[] json) throws IOException {
+        return new TransactionJsonReader(TransactionJsonDecoder.open(json));
+    }
+
+    /**
+     * Returns the next transaction of the array, or null once the array has been fully read
+     */
+    public Transaction next() throws IOException {
+        return decoder.next(row) ? row.toTransaction() : null;
+    }
+
+    /**
+     * Feeds every remaining transaction to the given consumer
+     */
+    public void forEachRemaining(Consumer<? super Transaction> action) throws IOException {
+        for (Transaction transaction = next(); transaction != null; transaction = next()) {
+            action.accept(transaction);
+        }
+    }
+
+    /**
+     * Returns the number of bytes of the source decoded so far
+     */
+    public long getBytesRead() {
+        return decoder.getBytesRead();
+    }
+
+    public Spliterator<Transaction> spliterator() {
+        return new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super Transaction> action) {
+                try {
+                    Transaction transaction = next();
+                    if (transaction == null) {
+                        return false;
+                    }
+                    action.accept(transaction);
+                    return true;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+    }
+
+    /**
+     * Returns a lazily decoded stream of the transactions in the given file. The file is closed with the stream
+     */
+    public static Stream<Transaction> stream(Path jsonPath) throws IOException {
+        TransactionJsonReader reader = open(jsonPath);
+        return StreamSupport.stream(reader.spliterator(), false).onClose(() -> {
+            try {
+                reader.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    @Override
+    public void close() throws IOException {
+        decoder.close();
+    }
+}
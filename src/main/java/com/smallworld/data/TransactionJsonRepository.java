@@ -1,27 +1,79 @@
 package com.smallworld.data;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.smallworld.domain.entities.Transaction;
+import com.smallworld.metrics.LoadMetrics;
 
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
-import java.util.stream.Collectors;
 
 public class TransactionJsonRepository implements TransactionRepository {
 
     private final List<Transaction> transactions;
+    private final ClientDictionary clients = new ClientDictionary();
 
     public TransactionJsonRepository(String jsonPath) throws IOException {
-        String jsonData = Files.readString(Paths.get(jsonPath));
+        this(jsonPath, LoadMetrics.DISABLED);
+    }
+
+    /**
+     * Loads the source, reporting the duration, bytes parsed and rows read to the metrics
+     */
+    public TransactionJsonRepository(String jsonPath, LoadMetrics metrics) throws IOException {
+        long start = metrics.start();
+        TransactionDeduplicator deduplicator = new TransactionDeduplicator();
+        long[] rows = new long[1];
+
+        try (TransactionJsonReader reader = TransactionJsonReader.open(Paths.get(jsonPath))) {
+            reader.forEachRemaining(row -> {
+                addRow(deduplicator, row);
+                rows[0]++;
+            });
+            metrics.record(jsonPath, start, reader.getBytesRead(), rows[0]);
+        }
+
+        transactions = deduplicator.getTransactions();
+    }
+
+    /**
+     * Loads a source that may be a single file, a directory of {@code .json} files or a glob such as
+     * {@code exports/transactions-*.json}. Every file is cut into chunks of whole objects that are decoded on
+     * the given number of threads, and the rows are merged in file name and file order, so the result equals
+     * a sequential load of the files one after the other
+     */
+    public TransactionJsonRepository(String source, int parallelism, LoadMetrics metrics) throws IOException {
+        long start = metrics.start();
+        TransactionDeduplicator deduplicator = new TransactionDeduplicator();
+        long[] rows = new long[1];
 
-        ObjectMapper objectMapper = new ObjectMapper();
-        Transaction[] transactionsJson = objectMapper.readValue(jsonData, Transaction[].class);
+        List<Path> files = ParallelTransactionJsonLoader.resolveFiles(source);
+        new ParallelTransactionJsonLoader(parallelism, ParallelTransactionJsonLoader.DEFAULT_CHUNK_BYTES).load(files, row -> {
+            addRow(deduplicator, row);
+            rows[0]++;
+        });
+
+        long bytes = 0;
+        for (Path file : files) {
+            bytes += Files.size(file);
+        }
+        metrics.record(source, start, bytes, rows[0]);
+
+        transactions = deduplicator.getTransactions();
+    }
+
+    private void addRow(TransactionDeduplicator deduplicator, Transaction row) {
+        row.setSenderFullName(clients.intern(row.getSenderFullName()));
+        row.setBeneficiaryFullName(clients.intern(row.getBeneficiaryFullName()));
+        deduplicator.accept(row);
+    }
 
-        transactions = Arrays.stream(transactionsJson).collect(Collectors.toList());
+    /**
+     * Returns the dictionary every sender and beneficiary name of the source was encoded with
+     */
+    public ClientDictionary getClients() {
+        return clients;
     }
 
     @Override
@@ -0,0 +1,90 @@
+package com.smallworld.data;
+
+import com.smallworld.domain.entities.Transaction;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Repository that keeps no transactions in memory and decodes the JSON source again on every scan.
+ * Suitable for exports larger than the heap, at the cost of re-reading the file per query.
+ * <p>
+ * Rows repeating an mtn are folded into one transaction as long as they are adjacent in the source, which is
+ * how the exports list the issues of a transaction.
+ */
+public class TransactionJsonStreamRepository implements TransactionRepository {
+
+    private final Path jsonPath;
+
+    /**
+     * @throws IllegalArgumentException if the source is a directory or a glob rather than a single file
+     */
+    public TransactionJsonStreamRepository(String jsonPath) {
+        this.jsonPath = ParallelTransactionJsonLoader.singleFile(jsonPath);
+    }
+
+    /**
+     * Materializes every transaction of the source, prefer {@link #stream()} or {@link #forEach(Consumer)}
+     */
+    @Override
+    public List<Transaction> getAll() {
+        try (Stream<Transaction> transactions = stream()) {
+            return transactions.collect(Collectors.toList());
+        }
+    }
+
+    @Override
+    public Stream<Transaction> stream() {
+        try {
+            Stream<Transaction> rows = TransactionJsonReader.stream(jsonPath);
+            return StreamSupport.stream(new AdjacentRowsSpliterator(rows.spliterator()), false).onClose(rows::close);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Folds consecutive rows of the same mtn into the first of them
+     */
+    private static class AdjacentRowsSpliterator extends Spliterators.AbstractSpliterator<Transaction> {
+
+        private final Spliterator<Transaction> rows;
+        private Transaction pending;
+        private boolean exhausted;
+
+        AdjacentRowsSpliterator(Spliterator<Transaction> rows) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.rows = rows;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Transaction> action) {
+            if (pending == null && (exhausted || !rows.tryAdvance(row -> pending = row))) {
+                return false;
+            }
+
+            Transaction current = pending;
+            pending = null;
+            while (pending == null && !exhausted) {
+                exhausted = !rows.tryAdvance(row -> {
+                    if (current.getMtn() != null && current.getMtn().equals(row.getMtn())) {
+                        current.addIssue(row.getIssueId(), row.getIssueSolved(), row.getIssueMessage());
+                    } else {
+                        pending = row;
+                    }
+                });
+            }
+
+            action.accept(current);
+            return true;
+        }
+    }
+}
@@ -2,9 +2,167 @@ package com.smallworld.data;
 
 import com.smallworld.domain.entities.Transaction;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+/**
+ * Source of transactions. The lookup methods default to a full scan, repositories holding indexes override
+ * them to answer point lookups directly.
+ * <p>
+ * The lookups the fetcher reports metrics for also come in a variant taking a {@code rowsScanned} consumer,
+ * which is told how many rows the lookup read: every row for a scan, as far as the match for a scan that
+ * stops early, none for an index. The variants without it delegate to them, so repositories override the
+ * variants taking the consumer.
+ */
 public interface TransactionRepository {
+
+    /** Consumer for callers that do not count the rows scanned */
+    LongConsumer IGNORE_ROWS_SCANNED = rows -> {
+    };
+    /**
+     * Returns one transaction per mtn, each holding all of its compliance issues
+     */
     List<Transaction> getAll();
+
+    /**
+     * Returns a stream over all transactions. Repositories backed by a file may decode the transactions
+     * lazily, so the stream should be closed once consumed
+     */
+    default Stream<Transaction> stream() {
+        return getAll().stream();
+    }
+
+    /**
+     * Performs the given action for each transaction without requiring the whole dataset in memory
+     */
+    default void forEach(Consumer<? super Transaction> action) {
+        try (Stream<Transaction> transactions = stream()) {
+            transactions.forEach(action);
+        }
+    }
+
+    /**
+     * Returns the column oriented view of the repository, when its storage provides one
+     */
+    default Optional<TransactionColumns> columns() {
+        return Optional.empty();
+    }
+
+    /**
+     * Returns the statistics the repository keeps up to date itself, when it maintains them
+     */
+    default Optional<TransactionAggregates> aggregates() {
+        return Optional.empty();
+    }
+
+    /**
+     * Returns a stamp that changes whenever the transactions change, repositories loaded once always return 0
+     */
+    default long version() {
+        return 0;
+    }
+
+    /**
+     * Returns the transactions sent by the specified client
+     */
+    default List<Transaction> findBySender(String senderFullName) {
+        return findBySender(senderFullName, IGNORE_ROWS_SCANNED);
+    }
+
+    default List<Transaction> findBySender(String senderFullName, LongConsumer rowsScanned) {
+        try (Stream<Transaction> transactions = scan(rowsScanned)) {
+            return transactions
+                    .filter(transaction -> senderFullName.equals(transaction.getSenderFullName()))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Returns the transactions received by the specified client
+     */
+    default List<Transaction> findByBeneficiary(String beneficiaryFullName) {
+        try (Stream<Transaction> transactions = stream()) {
+            return transactions
+                    .filter(transaction -> beneficiaryFullName.equals(transaction.getBeneficiaryFullName()))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Returns the transactions satisfying the filter in source order. The stream should be closed once consumed
+     */
+    default Stream<Transaction> findMatching(TransactionFilter filter) {
+        return stream().filter(filter);
+    }
+
+    /**
+     * Returns all transactions grouped by beneficiary name
+     */
+    default Map<String, List<Transaction>> groupByBeneficiary() {
+        return groupByBeneficiary(IGNORE_ROWS_SCANNED);
+    }
+
+    default Map<String, List<Transaction>> groupByBeneficiary(LongConsumer rowsScanned) {
+        try (Stream<Transaction> transactions = scan(rowsScanned)) {
+            return transactions.collect(Collectors.groupingBy(Transaction::getBeneficiaryFullName));
+        }
+    }
+
+    /**
+     * Returns the transactions grouped by beneficiary name one group at a time, so that a consumer writing
+     * them out holds a single group. Defaults to {@link #groupByBeneficiary()}, repositories that can build
+     * a group on demand override it. The stream should be closed once consumed
+     */
+    default Stream<Map.Entry<String, List<Transaction>>> streamByBeneficiary() {
+        return streamByBeneficiary(IGNORE_ROWS_SCANNED);
+    }
+
+    default Stream<Map.Entry<String, List<Transaction>>> streamByBeneficiary(LongConsumer rowsScanned) {
+        return groupByBeneficiary(rowsScanned).entrySet().stream();
+    }
+
+    /**
+     * Counts the open compliance issues of the transactions the specified client sent or received
+     */
+    default int countOpenIssues(String clientFullName) {
+        return countOpenIssues(clientFullName, IGNORE_ROWS_SCANNED);
+    }
+
+    default int countOpenIssues(String clientFullName, LongConsumer rowsScanned) {
+        try (Stream<Transaction> transactions = scan(rowsScanned)) {
+            return transactions
+                    .filter(transaction -> clientFullName.equals(transaction.getSenderFullName())
+                            || clientFullName.equals(transaction.getBeneficiaryFullName()))
+                    .mapToInt(Transaction::countOpenIssues)
+                    .sum();
+        }
+    }
+
+    /**
+     * Returns the transaction the specified compliance issue was raised on
+     */
+    default Optional<Transaction> findByIssueId(int issueId) {
+        return findByIssueId(issueId, IGNORE_ROWS_SCANNED);
+    }
+
+    default Optional<Transaction> findByIssueId(int issueId, LongConsumer rowsScanned) {
+        try (Stream<Transaction> transactions = scan(rowsScanned)) {
+            return transactions
+                    .filter(transaction -> transaction.hasIssue(issueId))
+                    .findFirst();
+        }
+    }
+
+    /**
+     * Returns {@link #stream()}, telling the consumer how many transactions were read once it is closed
+     */
+    private Stream<Transaction> scan(LongConsumer rowsScanned) {
+        long[] rows = new long[1];
+        return stream().peek(transaction -> rows[0]++).onClose(() -> rowsScanned.accept(rows[0]));
+    }
 }
@@ -0,0 +1,139 @@
+package com.smallworld.data;
+
+import com.smallworld.domain.entities.Transaction;
+
+import java.math.BigDecimal;
+
+/**
+ * One source row as decoded by {@link TransactionJsonDecoder}, held in primitive fields and reused for every
+ * row so decoding allocates nothing per row. Amounts that fit are kept as an unscaled long with its scale.
+ * The values are only valid until the next row is decoded into it.
+ */
+public class TransactionRow {
+
+    public static final int NO_VALUE = Integer.MIN_VALUE;
+
+    int mtn;
+    boolean hasAmount;
+    long amountUnscaled;
+    int amountScale;
+    /** Amount too large or too precise for a long, null otherwise */
+    BigDecimal largeAmount;
+    String senderFullName;
+    int senderAge;
+    String beneficiaryFullName;
+    int beneficiaryAge;
+    int issueId;
+    Boolean issueSolved;
+    String issueMessage;
+
+    public TransactionRow() {
+        clear();
+    }
+
+    void clear() {
+        mtn = NO_VALUE;
+        hasAmount = false;
+        amountUnscaled = 0;
+        amountScale = 0;
+        largeAmount = null;
+        senderFullName = null;
+        senderAge = NO_VALUE;
+        beneficiaryFullName = null;
+        beneficiaryAge = NO_VALUE;
+        issueId = NO_VALUE;
+        issueSolved = null;
+        issueMessage = null;
+    }
+
+    /**
+     * Returns the mtn, {@link #NO_VALUE} when the row has none
+     */
+    public int getMtn() {
+        return mtn;
+    }
+
+    /**
+     * Returns whether the amount is held as {@link #getAmountUnscaled()} and {@link #getAmountScale()}
+     */
+    public boolean hasLongAmount() {
+        return hasAmount && largeAmount == null;
+    }
+
+    public long getAmountUnscaled() {
+        return amountUnscaled;
+    }
+
+    public int getAmountScale() {
+        return amountScale;
+    }
+
+    /**
+     * Returns the amount, creating it unless it did not fit a long, null when the row has none
+     */
+    public BigDecimal getAmount() {
+        if (!hasAmount) {
+            return null;
+        }
+
+        return largeAmount != null ? largeAmount : BigDecimal.valueOf(amountUnscaled, amountScale);
+    }
+
+    public String getSenderFullName() {
+        return senderFullName;
+    }
+
+    /**
+     * Returns the sender age, {@link #NO_VALUE} when it is unknown
+     */
+    public int getSenderAge() {
+        return senderAge;
+    }
+
+    public String getBeneficiaryFullName() {
+        return beneficiaryFullName;
+    }
+
+    /**
+     * Returns the beneficiary age, {@link #NO_VALUE} when it is unknown
+     */
+    public int getBeneficiaryAge() {
+        return beneficiaryAge;
+    }
+
+    /**
+     * Returns the issue id, {@link #NO_VALUE} when the row raises no issue
+     */
+    public int getIssueId() {
+        return issueId;
+    }
+
+    public Boolean getIssueSolved() {
+        return issueSolved;
+    }
+
+    public String getIssueMessage() {
+        return issueMessage;
+    }
+
+    /**
+     * Creates the transaction of the row, as Jackson would have bound it
+     */
+    public Transaction toTransaction() {
+        return new Transaction(
+                boxed(mtn),
+                getAmount(),
+                senderFullName,
+                boxed(senderAge),
+                beneficiaryFullName,
+                boxed(beneficiaryAge),
+                boxed(issueId),
+                issueSolved,
+                issueMessage
+        );
+    }
+
+    private static Integer boxed(int value) {
+        return value == NO_VALUE ? null : value;
+    }
+}
@@ -0,0 +1,575 @@
+package com.smallworld.data;
+
+import com.smallworld.metrics.LoadMetrics;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * Binary snapshot of a {@link ColumnarTransactionRepository}, written after the JSON source has been decoded
+ * into the columns once so that later starts map the columns instead of parsing the JSON again.
+ * <p>
+ * The file holds a fixed header, a table of sections and the 8-byte aligned sections, all big-endian. The header
+ * records the size, modification time and CRC32 of the source it was built from, and a CRC32 of everything
+ * following the checksum field. Client names and issue messages are held in string dictionaries of UTF-8 bytes
+ * with an offset table, every other column is fixed width. A snapshot of another format version, of a changed
+ * source or with a wrong checksum is ignored and rebuilt.
+ */
+public final class TransactionSnapshot {
+
+    static final int MAGIC = 0x53575453;
+    static final int FORMAT_VERSION = 1;
+
+    static final int CLIENT_OFFSETS = 0;
+    static final int CLIENT_BYTES = 1;
+    static final int MESSAGE_OFFSETS = 2;
+    static final int MESSAGE_BYTES = 3;
+    static final int MTNS = 4;
+    static final int AMOUNTS = 5;
+    static final int AMOUNT_SCALES = 6;
+    static final int SENDER_IDS = 7;
+    static final int SENDER_AGES = 8;
+    static final int BENEFICIARY_IDS = 9;
+    static final int BENEFICIARY_AGES = 10;
+    static final int ISSUE_OFFSETS = 11;
+    static final int ISSUE_IDS = 12;
+    static final int ISSUE_SOLVED = 13;
+    static final int ISSUE_MESSAGE_IDS = 14;
+    static final int SECTION_COUNT = 15;
+
+    static final int NO_MESSAGE = -1;
+
+    private static final int CHECKSUM_START = 16;
+    private static final int HEADER_SIZE = 64 + SECTION_COUNT * 16;
+    private static final int MAX_CHECKSUM_CHUNK = 1 << 30;
+
+    private TransactionSnapshot() {
+    }
+
+    /**
+     * Loads the transactions of the JSON source from the snapshot next to it, named after the source with a
+     * {@code .snapshot} suffix, parsing the source and writing the snapshot when it is missing or out of date
+     *
+     * @throws IllegalArgumentException if the source is a directory or a glob rather than a single file
+     */
+    public static ColumnarTransactionRepository load(String jsonPath) throws IOException {
+        Path source = ParallelTransactionJsonLoader.singleFile(jsonPath);
+        return load(source, snapshotPathOf(source));
+    }
+
+    public static ColumnarTransactionRepository load(Path source, Path snapshot) throws IOException {
+        Optional<ColumnarTransactionRepository> snapshotRepository = read(snapshot, source);
+        if (snapshotRepository.isPresent()) {
+            return snapshotRepository.get();
+        }
+
+        return rebuild(source, snapshot);
+    }
+
+    /**
+     * Makes sure the snapshot next to the JSON source is up to date, parsing the source and writing it again
+     * when needed, and returns the snapshot path
+     *
+     * @throws IllegalArgumentException if the source is a directory or a glob rather than a single file
+     */
+    public static Path update(String jsonPath) throws IOException {
+        Path source = ParallelTransactionJsonLoader.singleFile(jsonPath);
+        Path snapshot = snapshotPathOf(source);
+        if (!isValid(snapshot, source)) {
+            rebuild(source, snapshot);
+        }
+
+        return snapshot;
+    }
+
+    /**
+     * Returns whether the snapshot exists, is of this format version, was built from the current content of
+     * the source and passes its checksum
+     */
+    public static boolean isValid(Path snapshot, Path source) throws IOException {
+        if (!Files.isRegularFile(snapshot)) {
+            return false;
+        }
+
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            Header header = Header.read(channel);
+            if (header == null || !header.isCurrent(source) || !header.hasValidChecksum(channel)) {
+                return false;
+            }
+            header.refreshStamp(snapshot);
+
+            return true;
+        }
+    }
+
+    private static ColumnarTransactionRepository rebuild(Path source, Path snapshot) throws IOException {
+        // Stamped before parsing, so a source changing while it is parsed invalidates the snapshot
+        SourceStamp stamp = SourceStamp.of(source);
+        // Decoded straight into the columns, the rows are never held as Transaction objects
+        ColumnarTransactionRepository repository = ColumnarTransactionRepository.load(source.toString(), LoadMetrics.DISABLED);
+        write(repository, stamp, snapshot);
+
+        return repository;
+    }
+
+    static Path snapshotPathOf(Path source) {
+        return source.resolveSibling(source.getFileName() + ".snapshot");
+    }
+
+    /**
+     * Reads the snapshot into heap columns, or returns empty when it is missing, out of date for the source or
+     * fails its checksum
+     */
+    public static Optional<ColumnarTransactionRepository> read(Path snapshot, Path source) throws IOException {
+        if (!Files.isRegularFile(snapshot)) {
+            return Optional.empty();
+        }
+
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            Header header = Header.read(channel);
+            if (header == null || !header.isCurrent(source) || !header.hasValidChecksum(channel)) {
+                return Optional.empty();
+            }
+            header.refreshStamp(snapshot);
+
+            int rows = header.rowCount;
+            int issues = header.issueCount;
+            String[] clientNames = readStrings(header.map(channel, CLIENT_OFFSETS), header.map(channel, CLIENT_BYTES), header.clientCount);
+            if (header.nullClientId != ClientDictionary.UNKNOWN) {
+                clientNames[header.nullClientId] = null;
+            }
+            String[] messages = readStrings(header.map(channel, MESSAGE_OFFSETS), header.map(channel, MESSAGE_BYTES), header.messageCount);
+
+            byte[] amountScales = new byte[rows];
+            header.map(channel, AMOUNT_SCALES).get(amountScales);
+            long[] amounts = new long[rows];
+            header.map(channel, AMOUNTS).asLongBuffer().get(amounts);
+
+            byte[] solved = new byte[issues];
+            header.map(channel, ISSUE_SOLVED).get(solved);
+            BitSet issueSolved = new BitSet(issues);
+            for (int issue = 0; issue < issues; issue++) {
+                if (solved[issue] != 0) {
+                    issueSolved.set(issue);
+                }
+            }
+
+            int[] messageIds = readInts(header.map(channel, ISSUE_MESSAGE_IDS), issues);
+            String[] issueMessages = new String[issues];
+            for (int issue = 0; issue < issues; issue++) {
+                issueMessages[issue] = messageIds[issue] == NO_MESSAGE ? null : messages[messageIds[issue]];
+            }
+
+            return Optional.of(new ColumnarTransactionRepository(
+                    clientNames,
+                    readInts(header.map(channel, MTNS), rows),
+                    amounts,
+                    amountScales,
+                    header.amountScale,
+                    readInts(header.map(channel, SENDER_IDS), rows),
+                    readInts(header.map(channel, SENDER_AGES), rows),
+                    readInts(header.map(channel, BENEFICIARY_IDS), rows),
+                    readInts(header.map(channel, BENEFICIARY_AGES), rows),
+                    readInts(header.map(channel, ISSUE_OFFSETS), rows + 1),
+                    readInts(header.map(channel, ISSUE_IDS), issues),
+                    issueSolved,
+                    issueMessages
+            ));
+        }
+    }
+
+    private static int[] readInts(ByteBuffer section, int count) {
+        int[] values = new int[count];
+        section.asIntBuffer().get(values);
+        return values;
+    }
+
+    private static String[] readStrings(ByteBuffer offsets, ByteBuffer bytes, int count) {
+        String[] strings = new String[count];
+        byte[] buffer = new byte[64];
+        for (int index = 0; index < count; index++) {
+            int start = offsets.getInt(index * Integer.BYTES);
+            int length = offsets.getInt((index + 1) * Integer.BYTES) - start;
+            if (length > buffer.length) {
+                buffer = new byte[Math.max(length, buffer.length << 1)];
+            }
+            bytes.get(start, buffer, 0, length);
+            strings[index] = new String(buffer, 0, length, StandardCharsets.UTF_8);
+        }
+
+        return strings;
+    }
+
+    /**
+     * Writes the snapshot of the repository loaded from the source, replacing any previous snapshot atomically
+     */
+    public static void write(ColumnarTransactionRepository repository, Path source, Path snapshot) throws IOException {
+        write(repository, SourceStamp.of(source), snapshot);
+    }
+
+    static void write(ColumnarTransactionRepository repository, SourceStamp stamp, Path snapshot) throws IOException {
+        int rows = repository.size();
+        int issues = rows == 0 ? 0 : repository.issueEnd(rows - 1);
+
+        ClientDictionary clients = repository.getClients();
+        byte[][] clientNames = new byte[clients.size()][];
+        int nullClientId = ClientDictionary.UNKNOWN;
+        for (int id = 0; id < clientNames.length; id++) {
+            String name = clients.decode(id);
+            if (name == null) {
+                nullClientId = id;
+                clientNames[id] = new byte[0];
+            } else {
+                clientNames[id] = name.getBytes(StandardCharsets.UTF_8);
+            }
+        }
+
+        Map<String, Integer> messageIds = new HashMap<>();
+        List<byte[]> messages = new ArrayList<>();
+        int[] issueMessageIds = new int[issues];
+        for (int issue = 0; issue < issues; issue++) {
+            String message = repository.issueMessage(issue);
+            issueMessageIds[issue] = message == null ? NO_MESSAGE : messageIds.computeIfAbsent(message, newMessage -> {
+                messages.add(newMessage.getBytes(StandardCharsets.UTF_8));
+                return messages.size() - 1;
+            });
+        }
+
+        long[] lengths = new long[SECTION_COUNT];
+        lengths[CLIENT_OFFSETS] = (clientNames.length + 1L) * Integer.BYTES;
+        lengths[CLIENT_BYTES] = totalLength(clientNames);
+        lengths[MESSAGE_OFFSETS] = (messages.size() + 1L) * Integer.BYTES;
+        lengths[MESSAGE_BYTES] = totalLength(messages.toArray(new byte[0][]));
+        lengths[MTNS] = (long) rows * Integer.BYTES;
+        lengths[AMOUNTS] = (long) rows * Long.BYTES;
+        lengths[AMOUNT_SCALES] = rows;
+        lengths[SENDER_IDS] = (long) rows * Integer.BYTES;
+        lengths[SENDER_AGES] = (long) rows * Integer.BYTES;
+        lengths[BENEFICIARY_IDS] = (long) rows * Integer.BYTES;
+        lengths[BENEFICIARY_AGES] = (long) rows * Integer.BYTES;
+        lengths[ISSUE_OFFSETS] = (rows + 1L) * Integer.BYTES;
+        lengths[ISSUE_IDS] = (long) issues * Integer.BYTES;
+        lengths[ISSUE_SOLVED] = issues;
+        lengths[ISSUE_MESSAGE_IDS] = (long) issues * Integer.BYTES;
+
+        long[] offsets = new long[SECTION_COUNT];
+        long position = HEADER_SIZE;
+        for (int section = 0; section < SECTION_COUNT; section++) {
+            offsets[section] = position;
+            position = align(position + lengths[section]);
+        }
+
+        // Unique per write, so concurrent loads of one source never write into each other's file
+        Path temporary = Files.createTempFile(snapshot.toAbsolutePath().getParent(), snapshot.getFileName() + ".", ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            SectionOutput out = new SectionOutput(new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16)));
+
+            out.out.writeInt(MAGIC);
+            out.out.writeInt(FORMAT_VERSION);
+            out.out.writeLong(0);
+            out.out.writeLong(stamp.size);
+            out.out.writeLong(stamp.modified);
+            out.out.writeLong(stamp.crc);
+            out.out.writeInt(rows);
+            out.out.writeInt(issues);
+            out.out.writeInt(clientNames.length);
+            out.out.writeInt(messages.size());
+            out.out.writeInt(repository.amountScale());
+            out.out.writeInt(nullClientId);
+            for (int section = 0; section < SECTION_COUNT; section++) {
+                out.out.writeLong(offsets[section]);
+                out.out.writeLong(lengths[section]);
+            }
+            out.position = HEADER_SIZE;
+
+            out.startSection(offsets[CLIENT_OFFSETS]);
+            writeStrings(out, offsets, clientNames, CLIENT_BYTES);
+            out.startSection(offsets[MESSAGE_OFFSETS]);
+            writeStrings(out, offsets, messages.toArray(new byte[0][]), MESSAGE_BYTES);
+
+            out.startSection(offsets[MTNS]);
+            for (int row = 0; row < rows; row++) {
+                out.writeInt(repository.mtn(row));
+            }
+            out.startSection(offsets[AMOUNTS]);
+            for (int row = 0; row < rows; row++) {
+                out.writeLong(repository.amountUnscaled(row));
+            }
+            out.startSection(offsets[AMOUNT_SCALES]);
+            for (int row = 0; row < rows; row++) {
+                out.writeByte(repository.rowAmountScale(row));
+            }
+            out.startSection(offsets[SENDER_IDS]);
+            for (int row = 0; row < rows; row++) {
+                out.writeInt(repository.senderId(row));
+            }
+            out.startSection(offsets[SENDER_AGES]);
+            for (int row = 0; row < rows; row++) {
+                out.writeInt(repository.senderAge(row));
+            }
+            out.startSection(offsets[BENEFICIARY_IDS]);
+            for (int row = 0; row < rows; row++) {
+                out.writeInt(repository.beneficiaryId(row));
+            }
+            out.startSection(offsets[BENEFICIARY_AGES]);
+            for (int row = 0; row < rows; row++) {
+                out.writeInt(repository.beneficiaryAge(row));
+            }
+            out.startSection(offsets[ISSUE_OFFSETS]);
+            for (int row = 0; row < rows; row++) {
+                out.writeInt(repository.issueStart(row));
+            }
+            out.writeInt(issues);
+            out.startSection(offsets[ISSUE_IDS]);
+            for (int issue = 0; issue < issues; issue++) {
+                out.writeInt(repository.issueId(issue));
+            }
+            out.startSection(offsets[ISSUE_SOLVED]);
+            for (int issue = 0; issue < issues; issue++) {
+                out.writeByte(repository.issueSolved(issue) ? 1 : 0);
+            }
+            out.startSection(offsets[ISSUE_MESSAGE_IDS]);
+            for (int value : issueMessageIds) {
+                out.writeInt(value);
+            }
+            out.startSection(position);
+            out.out.flush();
+
+            ByteBuffer checksum = ByteBuffer.allocate(Long.BYTES).putLong(0, crc32(channel, CHECKSUM_START, channel.size()));
+            channel.write(checksum, Integer.BYTES * 2);
+            channel.force(false);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+
+        try {
+            Files.move(temporary, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+    }
+
+    private static void writeStrings(SectionOutput out, long[] offsets, byte[][] strings, int bytesSection) throws IOException {
+        int offset = 0;
+        out.writeInt(offset);
+        for (byte[] string : strings) {
+            offset += string.length;
+            out.writeInt(offset);
+        }
+
+        out.startSection(offsets[bytesSection]);
+        for (byte[] string : strings) {
+            out.out.write(string);
+            out.position += string.length;
+        }
+    }
+
+    private static long totalLength(byte[][] strings) {
+        long length = 0;
+        for (byte[] string : strings) {
+            length += string.length;
+        }
+        if (length > Integer.MAX_VALUE) {
+            throw new IllegalStateException("String dictionary exceeds 2 GB");
+        }
+
+        return length;
+    }
+
+    private static long align(long position) {
+        return (position + 7) & ~7L;
+    }
+
+    /**
+     * Computes the CRC32 of a range of the file, mapping it in chunks
+     */
+    static long crc32(FileChannel channel, long from, long to) throws IOException {
+        CRC32 crc = new CRC32();
+        for (long position = from; position < to; position += MAX_CHECKSUM_CHUNK) {
+            crc.update(channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAX_CHECKSUM_CHUNK, to - position)));
+        }
+
+        return crc.getValue();
+    }
+
+    /**
+     * Data output that tracks its position, so sections can be padded to their aligned offsets
+     */
+    private static class SectionOutput {
+        private final DataOutputStream out;
+        private long position;
+
+        private SectionOutput(DataOutputStream out) {
+            this.out = out;
+        }
+
+        private void startSection(long offset) throws IOException {
+            while (position < offset) {
+                out.writeByte(0);
+                position++;
+            }
+        }
+
+        private void writeByte(int value) throws IOException {
+            out.writeByte(value);
+            position++;
+        }
+
+        private void writeInt(int value) throws IOException {
+            out.writeInt(value);
+            position += Integer.BYTES;
+        }
+
+        private void writeLong(long value) throws IOException {
+            out.writeLong(value);
+            position += Long.BYTES;
+        }
+    }
+
+    /**
+     * Identifies the content of a source file by its size, modification time and CRC32
+     */
+    static class SourceStamp {
+        private final long size;
+        private final long modified;
+        private final long crc;
+
+        private SourceStamp(long size, long modified, long crc) {
+            this.size = size;
+            this.modified = modified;
+            this.crc = crc;
+        }
+
+        static SourceStamp of(Path source) throws IOException {
+            try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+                long size = channel.size();
+                return new SourceStamp(size, Files.getLastModifiedTime(source).toMillis(), crc32(channel, 0, size));
+            }
+        }
+    }
+
+    /**
+     * Header of a snapshot file, with the counts and the offset and length of every section
+     */
+    static class Header {
+        final long checksum;
+        final long sourceSize;
+        final long sourceModified;
+        final long sourceCrc;
+        final int rowCount;
+        final int issueCount;
+        final int clientCount;
+        final int messageCount;
+        final int amountScale;
+        final int nullClientId;
+        final long[] sectionOffsets = new long[SECTION_COUNT];
+        final long[] sectionLengths = new long[SECTION_COUNT];
+        /** Modification time of a source found unchanged by its content, to be recorded, or -1 */
+        private long unchangedSourceModified = -1;
+
+        private Header(ByteBuffer buffer) {
+            checksum = buffer.getLong(8);
+            sourceSize = buffer.getLong(16);
+            sourceModified = buffer.getLong(24);
+            sourceCrc = buffer.getLong(32);
+            rowCount = buffer.getInt(40);
+            issueCount = buffer.getInt(44);
+            clientCount = buffer.getInt(48);
+            messageCount = buffer.getInt(52);
+            amountScale = buffer.getInt(56);
+            nullClientId = buffer.getInt(60);
+            for (int section = 0; section < SECTION_COUNT; section++) {
+                sectionOffsets[section] = buffer.getLong(64 + section * 16);
+                sectionLengths[section] = buffer.getLong(64 + section * 16 + 8);
+            }
+        }
+
+        /**
+         * Reads the header, or returns null when the file is not a snapshot of this format version or its
+         * sections do not fit the file
+         */
+        static Header read(FileChannel channel) throws IOException {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_SIZE) {
+                return null;
+            }
+
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT_VERSION) {
+                return null;
+            }
+
+            Header header = new Header(buffer);
+            for (int section = 0; section < SECTION_COUNT; section++) {
+                if (header.sectionOffsets[section] < HEADER_SIZE || header.sectionLengths[section] < 0
+                        || header.sectionOffsets[section] + header.sectionLengths[section] > fileSize) {
+                    return null;
+                }
+            }
+
+            return header;
+        }
+
+        /**
+         * Returns whether the source still has the content the snapshot was built from. The source is only
+         * hashed when its modification time changed, and its new time is kept for {@link #refreshStamp(Path)}
+         */
+        boolean isCurrent(Path source) throws IOException {
+            if (!Files.isRegularFile(source) || Files.size(source) != sourceSize) {
+                return false;
+            }
+            long modified = Files.getLastModifiedTime(source).toMillis();
+            if (modified == sourceModified) {
+                return true;
+            }
+
+            try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+                if (crc32(channel, 0, channel.size()) != sourceCrc) {
+                    return false;
+                }
+            }
+            unchangedSourceModified = modified;
+
+            return true;
+        }
+
+        /**
+         * Records the new modification time of a source whose content was found unchanged, so later loads
+         * do not hash it again. A snapshot that cannot be written keeps its old stamp and stays valid
+         */
+        void refreshStamp(Path snapshot) {
+            if (unchangedSourceModified == -1) {
+                return;
+            }
+
+            try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                channel.write(ByteBuffer.allocate(Long.BYTES).putLong(0, unchangedSourceModified), 24);
+                channel.write(ByteBuffer.allocate(Long.BYTES).putLong(0, crc32(channel, CHECKSUM_START, channel.size())), 8);
+                channel.force(false);
+            } catch (IOException e) {
+                // Only costs hashing the source again on the next load
+            }
+        }
+
+        boolean hasValidChecksum(FileChannel channel) throws IOException {
+            return crc32(channel, CHECKSUM_START, channel.size()) == checksum;
+        }
+
+        ByteBuffer map(FileChannel channel, int section) throws IOException {
+            return channel.map(FileChannel.MapMode.READ_ONLY, sectionOffsets[section], sectionLengths[section]);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.smallworld.domain;
+
+import com.smallworld.domain.entities.Transaction;
+import lombok.Value;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+/**
+ * Statistics computed by {@link ApproximateSummaryCollector} without any per-client state: client statistics
+ * estimated from a {@link HyperLogLog} of the client names and {@link SpaceSavingSketch}es of the amounts by
+ * sender and by beneficiary, each with its error bound, and the exact statistics that need no client state.
+ */
+@Value
+public class ApproximateSummary {
+    BigDecimal totalAmount;
+    /** Highest transaction amount, null when there are no transactions */
+    BigDecimal maxAmount;
+    Set<Integer> unsolvedIssueIds;
+    List<String> solvedIssueMessages;
+    /** Transactions with the highest amount sorted by amount descending */
+    List<Transaction> topTransactions;
+    long uniqueClientCount;
+    /** Relative standard error of the unique client count, about two thirds of the estimates are within it */
+    double uniqueClientCountRelativeError;
+    /** Senders with the highest estimated total sent amount, in descending order */
+    Map<String, BigDecimal> topSenders;
+    /** Most an estimated sender total exceeds the true one, and most an unlisted sender can have sent */
+    BigDecimal senderAmountMaxError;
+    /** Beneficiaries with the highest estimated total received amount, in descending order */
+    Map<String, BigDecimal> topBeneficiaries;
+    /** Most an estimated beneficiary total exceeds the true one, and most an unlisted beneficiary can have received */
+    BigDecimal beneficiaryAmountMaxError;
+
+    /**
+     * Returns the sender with the highest estimated total sent amount, null when there are no transactions
+     */
+    public String getTopSender() {
+        return topSenders.isEmpty() ? null : topSenders.keySet().iterator().next();
+    }
+
+    public static ApproximateSummary of(Stream<Transaction> transactionStream, int precision, int counters, int topTransactionsLimit) {
+        ApproximateSummaryCollector collector = new ApproximateSummaryCollector(precision, counters, topTransactionsLimit);
+        transactionStream.forEachOrdered(collector);
+
+        return collector.toSummary();
+    }
+
+    /**
+     * Computes the summary on the pool, sketching each partition of the stream separately and merging the
+     * sketches. The exact statistics are the same as the sequential ones
+     */
+    public static ApproximateSummary of(Stream<Transaction> transactionStream, int precision, int counters, int topTransactionsLimit,
+                                        ForkJoinPool pool) {
+        return pool.submit(() -> transactionStream.parallel()
+                .collect(ApproximateSummaryCollector.collector(precision, counters, topTransactionsLimit))).join();
+    }
+}
@@ -0,0 +1,126 @@
+package com.smallworld.domain;
+
+import com.smallworld.domain.entities.ComplianceIssue;
+import com.smallworld.domain.entities.Transaction;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Collector;
+
+/**
+ * Accumulates an {@link ApproximateSummary} in memory that depends on the precision, the number of counters
+ * and the size of the answers, not on the number of transactions or clients. Collectors of separate
+ * partitions, files or processes combine into the collector of all of them. The sketches combine in any
+ * order, solved issue messages and ties between top transactions keep the order of the combined partitions.
+ * <p>
+ * The heavy hitter sketches only take non-negative weights, so negative amounts are left out of the sender
+ * and beneficiary totals.
+ */
+public class ApproximateSummaryCollector implements Consumer<Transaction> {
+
+    private final HyperLogLog clients;
+    private final SpaceSavingSketch senders;
+    private final SpaceSavingSketch beneficiaries;
+
+    private final FixedPointSum totalAmount = new FixedPointSum();
+    private BigDecimal maxAmount;
+    private final Set<Integer> unsolvedIssueIds = new HashSet<>();
+    private final List<String> solvedIssueMessages = new ArrayList<>();
+    private final TopK<Transaction> topTransactions;
+
+    /**
+     * Creates a collector counting clients with {@code 2^precision} registers, tracking up to
+     * {@code counters} senders and beneficiaries and keeping the {@code topTransactionsLimit} highest
+     * transactions
+     */
+    public ApproximateSummaryCollector(int precision, int counters, int topTransactionsLimit) {
+        this.clients = new HyperLogLog(precision);
+        this.senders = new SpaceSavingSketch(counters);
+        this.beneficiaries = new SpaceSavingSketch(counters);
+        this.topTransactions = new TopK<>(Math.max(topTransactionsLimit, 0), Comparator.comparing(Transaction::getAmount));
+    }
+
+    @Override
+    public void accept(Transaction transaction) {
+        clients.add(transaction.getSenderFullName());
+        clients.add(transaction.getBeneficiaryFullName());
+
+        BigDecimal amount = transaction.getAmount();
+        if (amount.signum() > 0) {
+            senders.add(transaction.getSenderFullName(), amount);
+            beneficiaries.add(transaction.getBeneficiaryFullName(), amount);
+        }
+
+        totalAmount.add(transaction);
+        if (maxAmount == null || amount.compareTo(maxAmount) > 0) {
+            maxAmount = amount;
+        }
+        acceptIssue(transaction.getIssueId(), transaction.getIssueSolved(), transaction.getIssueMessage());
+        for (ComplianceIssue issue : transaction.getAdditionalIssues()) {
+            acceptIssue(issue.getIssueId(), issue.getIssueSolved(), issue.getIssueMessage());
+        }
+        topTransactions.offer(transaction);
+    }
+
+    private void acceptIssue(Integer issueId, Boolean issueSolved, String issueMessage) {
+        if (issueId == null) {
+            return;
+        }
+
+        if (issueSolved) {
+            solvedIssueMessages.add(issueMessage);
+        } else {
+            unsolvedIssueIds.add(issueId);
+        }
+    }
+
+    /**
+     * Merges the sketches and statistics of the transactions following the ones of this collector
+     */
+    public ApproximateSummaryCollector combine(ApproximateSummaryCollector following) {
+        clients.merge(following.clients);
+        senders.merge(following.senders);
+        beneficiaries.merge(following.beneficiaries);
+
+        totalAmount.add(following.totalAmount);
+        if (following.maxAmount != null && (maxAmount == null || following.maxAmount.compareTo(maxAmount) > 0)) {
+            maxAmount = following.maxAmount;
+        }
+        unsolvedIssueIds.addAll(following.unsolvedIssueIds);
+        solvedIssueMessages.addAll(following.solvedIssueMessages);
+        topTransactions.merge(following.topTransactions);
+
+        return this;
+    }
+
+    /**
+     * Collects the summary of a stream, parallel streams collect each partition separately and combine them
+     * in encounter order
+     */
+    public static Collector<Transaction, ApproximateSummaryCollector, ApproximateSummary> collector(int precision, int counters,
+                                                                                                 int topTransactionsLimit) {
+        return Collector.of(
+                () -> new ApproximateSummaryCollector(precision, counters, topTransactionsLimit),
+                ApproximateSummaryCollector::accept,
+                ApproximateSummaryCollector::combine,
+                ApproximateSummaryCollector::toSummary
+        );
+    }
+
+    public ApproximateSummary toSummary() {
+        return new ApproximateSummary(
+                totalAmount.toBigDecimal(),
+                maxAmount,
+                Collections.unmodifiableSet(new HashSet<>(unsolvedIssueIds)),
+                Collections.unmodifiableList(new ArrayList<>(solvedIssueMessages)),
+                Collections.unmodifiableList(topTransactions.toList()),
+                clients.estimate(),
+                clients.getRelativeStandardError(),
+                Collections.unmodifiableMap(senders.top(senders.getCapacity())),
+                senders.getMaxError(),
+                Collections.unmodifiableMap(beneficiaries.top(beneficiaries.getCapacity())),
+                beneficiaries.getMaxError()
+        );
+    }
+}
@@ -0,0 +1,186 @@
+package com.smallworld.domain;
+
+import com.smallworld.data.TransactionRepository;
+import com.smallworld.domain.entities.Transaction;
+import com.smallworld.metrics.QueryMetrics;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+/**
+ * Fetcher answering the client statistics from sketches instead of exact sets and maps, so their memory stays
+ * bounded however many clients there are. {@link #countUniqueClients()} is a {@link HyperLogLog} estimate,
+ * {@link #getTopSender()} and {@link #getTopSenders(int)} come from a {@link SpaceSavingSketch} of the amounts
+ * sent; {@link #getApproximateSummary()} reports the estimates together with their error bounds.
+ * <p>
+ * The totals, the maximum, the issue statistics and the top transactions are exact and computed in the same
+ * scan as the sketches, on first use and again after the repository changed. No query builds the exact
+ * {@link TransactionSummary} and its per-client state, except {@link #getSummary()} which asks for it.
+ */
+public class ApproximateTransactionDataFetcher extends TransactionDataFetcher {
+
+    private final int precision;
+    private final int counters;
+
+    private volatile Versioned<ApproximateSummary> approximateSummary;
+
+    public ApproximateTransactionDataFetcher(TransactionRepository repository) {
+        this(repository, null, QueryMetrics.DISABLED, HyperLogLog.DEFAULT_PRECISION, SpaceSavingSketch.DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a fetcher counting clients with {@code 2^precision} registers and tracking up to {@code counters}
+     * senders and beneficiaries, scanning on the given pool or sequentially when it is null
+     */
+    public ApproximateTransactionDataFetcher(TransactionRepository repository, ForkJoinPool pool, QueryMetrics metrics,
+                                             int precision, int counters) {
+        super(repository, pool, metrics);
+        this.precision = precision;
+        this.counters = counters;
+    }
+
+    private ApproximateTransactionDataFetcher(TransactionRepository repository, int parallelism, QueryMetrics metrics,
+                                              int precision, int counters) {
+        super(repository, parallelism, metrics);
+        this.precision = precision;
+        this.counters = counters;
+    }
+
+    /**
+     * Creates a fetcher scanning with the given number of threads, sequentially when it is 1 or less. The
+     * fetcher owns its pool and should be closed once no longer used
+     */
+    public static ApproximateTransactionDataFetcher withParallelism(TransactionRepository repository, int parallelism,
+                                                                    QueryMetrics metrics, int precision, int counters) {
+        return new ApproximateTransactionDataFetcher(repository, parallelism, metrics, precision, counters);
+    }
+
+    /**
+     * Returns the estimated client statistics with their error bounds
+     */
+    public ApproximateSummary getApproximateSummary() {
+        long start = metrics.start();
+        try {
+            return approximateSummary("getApproximateSummary");
+        } finally {
+            metrics.record("getApproximateSummary", start);
+        }
+    }
+
+    private ApproximateSummary approximateSummary(String query) {
+        long version = repository.version();
+        Versioned<ApproximateSummary> currentSummary = approximateSummary;
+        if (currentSummary == null || currentSummary.version != version) {
+            ApproximateSummary computedSummary;
+            try (Stream<Transaction> transactionStream = metrics.countRowsScanned(query, repository.stream())) {
+                computedSummary = pool == null
+                        ? ApproximateSummary.of(transactionStream, precision, counters, TOP_TRANSACTIONS_LIMIT)
+                        : ApproximateSummary.of(transactionStream, precision, counters, TOP_TRANSACTIONS_LIMIT, pool);
+            }
+            currentSummary = new Versioned<>(computedSummary, version);
+            approximateSummary = currentSummary;
+        }
+
+        return currentSummary.value;
+    }
+
+    @Override
+    public BigDecimal getTotalTransactionAmount() {
+        long start = metrics.start();
+        try {
+            return approximateSummary("getTotalTransactionAmount").getTotalAmount();
+        } finally {
+            metrics.record("getTotalTransactionAmount", start);
+        }
+    }
+
+    @Override
+    public BigDecimal getMaxTransactionAmount() throws NoSuchElementException {
+        long start = metrics.start();
+        try {
+            return Optional.ofNullable(approximateSummary("getMaxTransactionAmount").getMaxAmount()).orElseThrow();
+        } finally {
+            metrics.record("getMaxTransactionAmount", start);
+        }
+    }
+
+    /**
+     * Estimates the number of unique clients that sent or received a transaction
+     */
+    @Override
+    public Long countUniqueClients() {
+        long start = metrics.start();
+        try {
+            return approximateSummary("countUniqueClients").getUniqueClientCount();
+        } finally {
+            metrics.record("countUniqueClients", start);
+        }
+    }
+
+    @Override
+    public Set<Integer> getUnsolvedIssueIds() {
+        long start = metrics.start();
+        try {
+            return approximateSummary("getUnsolvedIssueIds").getUnsolvedIssueIds();
+        } finally {
+            metrics.record("getUnsolvedIssueIds", start);
+        }
+    }
+
+    @Override
+    public List<String> getAllSolvedIssueMessages() {
+        long start = metrics.start();
+        try {
+            return approximateSummary("getAllSolvedIssueMessages").getSolvedIssueMessages();
+        } finally {
+            metrics.record("getAllSolvedIssueMessages", start);
+        }
+    }
+
+    @Override
+    public List<Transaction> getTop3TransactionsByAmount() {
+        long start = metrics.start();
+        try {
+            return approximateSummary("getTop3TransactionsByAmount").getTopTransactions();
+        } finally {
+            metrics.record("getTop3TransactionsByAmount", start);
+        }
+    }
+
+    /**
+     * Returns the sender with the highest estimated total sent amount
+     */
+    @Override
+    public String getTopSender() {
+        long start = metrics.start();
+        try {
+            return Optional.ofNullable(approximateSummary("getTopSender").getTopSender()).orElseThrow();
+        } finally {
+            metrics.record("getTopSender", start);
+        }
+    }
+
+    /**
+     * Returns up to k senders with the highest estimated total sent amount, at most as many as there are
+     * counters
+     */
+    @Override
+    public Map<String, BigDecimal> getTopSenders(int k) {
+        long start = metrics.start();
+        try {
+            Map<String, BigDecimal> topSenders = new LinkedHashMap<>();
+            for (Map.Entry<String, BigDecimal> sender : approximateSummary("getTopSenders").getTopSenders().entrySet()) {
+                if (topSenders.size() >= k) {
+                    break;
+                }
+                topSenders.put(sender.getKey(), sender.getValue());
+            }
+
+            return topSenders;
+        } finally {
+            metrics.record("getTopSenders", start);
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.smallworld.domain;
+
+import com.smallworld.data.TransactionRepository;
+import com.smallworld.domain.entities.Transaction;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Fetcher remembering the results of the queries of another fetcher, keyed by query and arguments, in a
+ * bounded LRU cache. Misses are answered by the wrapped fetcher with its own pool, metrics and estimates. All
+ * results are dropped as soon as the {@link TransactionRepository#version()} changes, so a cached result is
+ * never older than the data. Collections are cached as unmodifiable copies, so callers share them safely and
+ * a live view of the repository never outlives its version. {@link #getTopTransactions(int, Comparator)} is
+ * not cached, as its comparators are usually lambdas created per call, and neither are the summaries, queries
+ * and streams, which go straight to the wrapped fetcher. Closing this fetcher leaves the wrapped one open.
+ */
+public class CachingTransactionDataFetcher extends TransactionDataFetcher {
+
+    public static final int DEFAULT_MAX_ENTRIES = 1024;
+
+    private final TransactionDataFetcher fetcher;
+    private final Map<List<Object>, Object> results;
+    private long resultsVersion;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public CachingTransactionDataFetcher(TransactionRepository repository) {
+        this(repository, null, DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * Creates a fetcher scanning on the given pool, or sequentially when it is null, that caches up to
+     * {@code maxEntries} results and evicts the least recently used one beyond that
+     */
+    public CachingTransactionDataFetcher(TransactionRepository repository, ForkJoinPool pool, int maxEntries) {
+        this(new TransactionDataFetcher(repository, pool), maxEntries);
+    }
+
+    /**
+     * Creates a fetcher caching up to {@code maxEntries} results of the given fetcher
+     */
+    public CachingTransactionDataFetcher(TransactionDataFetcher fetcher, int maxEntries) {
+        super(fetcher.repository, fetcher.pool, fetcher.metrics);
+        this.fetcher = fetcher;
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries must be positive: " + maxEntries);
+        }
+
+        this.results = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<List<Object>, Object> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        this.resultsVersion = repository.version();
+    }
+
+    /**
+     * Returns the cached result of the query, computing it on a miss. Results computed while the repository
+     * changed are returned but not cached
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T cached(Supplier<T> query, Object... key) {
+        List<Object> queryKey = Arrays.asList(key);
+        long version = repository.version();
+        synchronized (results) {
+            if (version != resultsVersion) {
+                results.clear();
+                resultsVersion = version;
+            }
+            Object result = results.get(queryKey);
+            if (result != null) {
+                hits.increment();
+                return (T) result;
+            }
+        }
+
+        misses.increment();
+        T result = query.get();
+        synchronized (results) {
+            if (result != null && version == resultsVersion && version == repository.version()) {
+                results.put(queryKey, result);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Drops every cached result
+     */
+    public void invalidate() {
+        synchronized (results) {
+            results.clear();
+        }
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public int getCachedResultCount() {
+        synchronized (results) {
+            return results.size();
+        }
+    }
+
+    @Override
+    public TransactionQuery query() {
+        return fetcher.query();
+    }
+
+    @Override
+    public TransactionSummary getSummary() {
+        return fetcher.getSummary();
+    }
+
+    @Override
+    public BigDecimal getTotalTransactionAmount() {
+        return cached(fetcher::getTotalTransactionAmount, "totalTransactionAmount");
+    }
+
+    @Override
+    public BigDecimal getTotalTransactionAmountSentBy(String senderFullName) {
+        return cached(() -> fetcher.getTotalTransactionAmountSentBy(senderFullName), "totalTransactionAmountSentBy", senderFullName);
+    }
+
+    @Override
+    public BigDecimal getMaxTransactionAmount() throws NoSuchElementException {
+        return cached(fetcher::getMaxTransactionAmount, "maxTransactionAmount");
+    }
+
+    @Override
+    public Long countUniqueClients() {
+        return cached(fetcher::countUniqueClients, "uniqueClients");
+    }
+
+    @Override
+    public Boolean hasOpenComplianceIssues(String clientFullName) {
+        return cached(() -> fetcher.hasOpenComplianceIssues(clientFullName), "hasOpenComplianceIssues", clientFullName);
+    }
+
+    @Override
+    public Map<String, List<Transaction>> getTransactionsByBeneficiaryName() {
+        return cached(() -> {
+            Map<String, List<Transaction>> transactionsByBeneficiary = new LinkedHashMap<>();
+            fetcher.getTransactionsByBeneficiaryName().forEach((beneficiary, transactions) ->
+                    transactionsByBeneficiary.put(beneficiary, Collections.unmodifiableList(new ArrayList<>(transactions))));
+            return Collections.unmodifiableMap(transactionsByBeneficiary);
+        }, "transactionsByBeneficiaryName");
+    }
+
+    @Override
+    public Stream<Map.Entry<String, List<Transaction>>> streamTransactionsByBeneficiaryName() {
+        return fetcher.streamTransactionsByBeneficiaryName();
+    }
+
+    @Override
+    public Optional<Transaction> getTransactionByIssueId(int issueId) {
+        return cached(() -> fetcher.getTransactionByIssueId(issueId), "transactionByIssueId", issueId);
+    }
+
+    @Override
+    public Set<Integer> getUnsolvedIssueIds() {
+        return cached(() -> Collections.unmodifiableSet(new HashSet<>(fetcher.getUnsolvedIssueIds())), "unsolvedIssueIds");
+    }
+
+    @Override
+    public List<String> getAllSolvedIssueMessages() {
+        return cached(() -> Collections.unmodifiableList(new ArrayList<>(fetcher.getAllSolvedIssueMessages())), "solvedIssueMessages");
+    }
+
+    @Override
+    public List<Transaction> getTop3TransactionsByAmount() {
+        return cached(() -> Collections.unmodifiableList(new ArrayList<>(fetcher.getTop3TransactionsByAmount())), "top3TransactionsByAmount");
+    }
+
+    @Override
+    public String getTopSender() {
+        return cached(fetcher::getTopSender, "topSender");
+    }
+
+    @Override
+    public List<Transaction> getTopTransactions(int k, Comparator<? super Transaction> comparator) {
+        return fetcher.getTopTransactions(k, comparator);
+    }
+
+    @Override
+    public Map<String, BigDecimal> getTopSenders(int k) {
+        return cached(() -> Collections.unmodifiableMap(new LinkedHashMap<>(fetcher.getTopSenders(k))), "topSenders", k);
+    }
+}
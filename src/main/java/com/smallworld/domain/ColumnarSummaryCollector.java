@@ -0,0 +1,238 @@
+package com.smallworld.domain;
+
+import com.smallworld.data.ClientDictionary;
+import com.smallworld.data.TransactionColumns;
+import com.smallworld.domain.entities.Transaction;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+/**
+ * Accumulates every {@link TransactionSummary} statistic from row ranges of a {@link TransactionColumns}
+ * view. The loops run on the primitive columns and only the top transactions are materialized.
+ */
+public class ColumnarSummaryCollector {
+
+    private final TransactionColumns columns;
+    private final int topTransactionsLimit;
+
+    private final FixedPointSum totalAmount;
+    private int maxAmountRow = -1;
+    private final SenderTotals totalAmountBySender;
+    private final BitSet clientsSeen = new BitSet();
+    private final BitSet clientsWithOpenIssues = new BitSet();
+    private final Set<Integer> unsolvedIssueIds = new HashSet<>();
+    private final List<String> solvedIssueMessages = new ArrayList<>();
+    private final int[] topRows;
+    private int topRowCount;
+
+    public ColumnarSummaryCollector(TransactionColumns columns, int topTransactionsLimit) {
+        this.columns = columns;
+        this.topTransactionsLimit = Math.max(topTransactionsLimit, 0);
+        this.totalAmount = new FixedPointSum(columns.amountScale());
+        this.totalAmountBySender = new SenderTotals(columns.amountScale());
+        this.topRows = new int[this.topTransactionsLimit];
+    }
+
+    /**
+     * Visits the rows in {@code [from, to)}, rows must be visited in ascending order
+     */
+    public void accept(int from, int to) {
+        int scale = columns.amountScale();
+        try {
+            totalAmount.add(columns.sumAmounts(from, to), scale);
+        } catch (ArithmeticException e) {
+            for (int row = from; row < to; row++) {
+                totalAmount.add(columns.amountUnscaled(row), scale);
+            }
+        }
+
+        int rangeMaxRow = columns.maxAmountRow(from, to);
+        if (rangeMaxRow != -1 && (maxAmountRow == -1 || columns.amountUnscaled(rangeMaxRow) > columns.amountUnscaled(maxAmountRow))) {
+            maxAmountRow = rangeMaxRow;
+        }
+
+        for (int row = from; row < to; row++) {
+            int senderId = columns.senderId(row);
+            int beneficiaryId = columns.beneficiaryId(row);
+            long amount = columns.amountUnscaled(row);
+
+            totalAmountBySender.get(senderId).add(amount, scale);
+            clientsSeen.set(senderId);
+            clientsSeen.set(beneficiaryId);
+
+            for (int issue = columns.issueStart(row); issue < columns.issueEnd(row); issue++) {
+                if (columns.issueSolved(issue)) {
+                    solvedIssueMessages.add(columns.issueMessage(issue));
+                } else {
+                    unsolvedIssueIds.add(columns.issueId(issue));
+                    clientsWithOpenIssues.set(senderId);
+                    clientsWithOpenIssues.set(beneficiaryId);
+                }
+            }
+
+            offerTopRow(row, amount);
+        }
+    }
+
+    /**
+     * Keeps the rows with the highest amounts sorted descending, equal amounts keep their row order
+     */
+    private void offerTopRow(int row, long amount) {
+        if (topTransactionsLimit == 0
+                || (topRowCount == topTransactionsLimit && amount <= columns.amountUnscaled(topRows[topRowCount - 1]))) {
+            return;
+        }
+
+        int position = Math.min(topRowCount, topTransactionsLimit - 1);
+        while (position > 0 && amount > columns.amountUnscaled(topRows[position - 1])) {
+            topRows[position] = topRows[position - 1];
+            position--;
+        }
+        topRows[position] = row;
+        topRowCount = Math.min(topRowCount + 1, topTransactionsLimit);
+    }
+
+    /**
+     * Merges the statistics of the rows following the ones visited by this collector
+     */
+    public ColumnarSummaryCollector combine(ColumnarSummaryCollector following) {
+        totalAmount.add(following.totalAmount);
+        if (following.maxAmountRow != -1 && (maxAmountRow == -1
+                || columns.amountUnscaled(following.maxAmountRow) > columns.amountUnscaled(maxAmountRow))) {
+            maxAmountRow = following.maxAmountRow;
+        }
+
+        SenderTotals followingTotals = following.totalAmountBySender;
+        for (int slot = 0; slot < followingTotals.senderIds.length; slot++) {
+            int senderId = followingTotals.senderIds[slot];
+            if (senderId != SenderTotals.EMPTY) {
+                totalAmountBySender.get(senderId).add(followingTotals.totals[slot]);
+            }
+        }
+        clientsSeen.or(following.clientsSeen);
+        clientsWithOpenIssues.or(following.clientsWithOpenIssues);
+
+        unsolvedIssueIds.addAll(following.unsolvedIssueIds);
+        solvedIssueMessages.addAll(following.solvedIssueMessages);
+        for (int i = 0; i < following.topRowCount; i++) {
+            int row = following.topRows[i];
+            offerTopRow(row, columns.amountUnscaled(row));
+        }
+
+        return this;
+    }
+
+    public TransactionSummary toSummary() {
+        ClientDictionary clients = columns.getClients();
+
+        Map<String, BigDecimal> senderTotals = new HashMap<>();
+        int topSenderId = ClientDictionary.UNKNOWN;
+        FixedPointSum topSenderTotal = null;
+        for (int slot = 0; slot < totalAmountBySender.senderIds.length; slot++) {
+            int senderId = totalAmountBySender.senderIds[slot];
+            if (senderId != SenderTotals.EMPTY) {
+                FixedPointSum senderTotal = totalAmountBySender.totals[slot];
+                senderTotals.put(clients.decode(senderId), senderTotal.toBigDecimal());
+                // Ties go to the sender seen first, whatever the slot order
+                int comparison = topSenderTotal == null ? 1 : senderTotal.compareTo(topSenderTotal);
+                if (comparison > 0 || (comparison == 0 && senderId < topSenderId)) {
+                    topSenderId = senderId;
+                    topSenderTotal = senderTotal;
+                }
+            }
+        }
+
+        Set<String> openIssueClients = new HashSet<>();
+        clientsWithOpenIssues.stream().forEach(clientId -> openIssueClients.add(clients.decode(clientId)));
+
+        List<Transaction> topTransactions = new ArrayList<>(topRowCount);
+        for (int i = 0; i < topRowCount; i++) {
+            topTransactions.add(columns.transaction(topRows[i]));
+        }
+
+        return new TransactionSummary(
+                totalAmount.toBigDecimal(),
+                maxAmountRow == -1 ? null : columns.transaction(maxAmountRow).getAmount(),
+                Collections.unmodifiableMap(senderTotals),
+                clientsSeen.cardinality(),
+                Collections.unmodifiableSet(openIssueClients),
+                Collections.unmodifiableSet(new HashSet<>(unsolvedIssueIds)),
+                Collections.unmodifiableList(new ArrayList<>(solvedIssueMessages)),
+                Collections.unmodifiableList(topTransactions),
+                topSenderId == ClientDictionary.UNKNOWN ? null : clients.decode(topSenderId)
+        );
+    }
+
+    /**
+     * Open addressing table of the sender totals of the rows visited, keyed by sender id. Sized by the senders
+     * actually seen rather than by the dictionary, so every chunk of a parallel scan stays small and combining
+     * two collectors only walks the senders of the following one
+     */
+    private static class SenderTotals {
+
+        static final int EMPTY = -1;
+
+        private final int scale;
+        private int[] senderIds = emptySlots(64);
+        private FixedPointSum[] totals = new FixedPointSum[64];
+        private int size;
+
+        SenderTotals(int scale) {
+            this.scale = scale;
+        }
+
+        private static int[] emptySlots(int capacity) {
+            int[] slots = new int[capacity];
+            Arrays.fill(slots, EMPTY);
+            return slots;
+        }
+
+        /**
+         * Returns the total of the sender, adding an empty one when the sender has not been seen
+         */
+        FixedPointSum get(int senderId) {
+            int mask = senderIds.length - 1;
+            int slot = slot(senderId, mask);
+            while (senderIds[slot] != senderId) {
+                if (senderIds[slot] == EMPTY) {
+                    if (size + 1 > senderIds.length >>> 1) {
+                        grow();
+                        return get(senderId);
+                    }
+                    senderIds[slot] = senderId;
+                    totals[slot] = new FixedPointSum(scale);
+                    size++;
+                    break;
+                }
+                slot = (slot + 1) & mask;
+            }
+
+            return totals[slot];
+        }
+
+        private static int slot(int senderId, int mask) {
+            int hash = senderId * 0x9E3779B9;
+            return (hash ^ (hash >>> 16)) & mask;
+        }
+
+        private void grow() {
+            int[] oldSenderIds = senderIds;
+            FixedPointSum[] oldTotals = totals;
+            senderIds = emptySlots(oldSenderIds.length << 1);
+            totals = new FixedPointSum[oldSenderIds.length << 1];
+
+            int mask = senderIds.length - 1;
+            for (int oldSlot = 0; oldSlot < oldSenderIds.length; oldSlot++) {
+                if (oldSenderIds[oldSlot] != EMPTY) {
+                    int slot = slot(oldSenderIds[oldSlot], mask);
+                    while (senderIds[slot] != EMPTY) {
+                        slot = (slot + 1) & mask;
+                    }
+                    senderIds[slot] = oldSenderIds[oldSlot];
+                    totals[slot] = oldTotals[oldSlot];
+                }
+            }
+        }
+    }
+}
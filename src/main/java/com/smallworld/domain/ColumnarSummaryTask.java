@@ -0,0 +1,45 @@
+package com.smallworld.domain;
+
+import com.smallworld.data.TransactionColumns;
+
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Fork-join task splitting a row range in halves down to chunks of {@link #CHUNK_ROWS} rows, collecting each
+ * chunk separately and combining the partial statistics in row order.
+ */
+class ColumnarSummaryTask extends RecursiveTask<ColumnarSummaryCollector> {
+
+    private static final long serialVersionUID = 1L;
+
+    static final int CHUNK_ROWS = 1 << 16;
+
+    private final transient TransactionColumns columns;
+    private final int topTransactionsLimit;
+    private final int from;
+    private final int to;
+
+    ColumnarSummaryTask(TransactionColumns columns, int topTransactionsLimit, int from, int to) {
+        this.columns = columns;
+        this.topTransactionsLimit = topTransactionsLimit;
+        this.from = from;
+        this.to = to;
+    }
+
+    @Override
+    protected ColumnarSummaryCollector compute() {
+        if (to - from <= CHUNK_ROWS) {
+            ColumnarSummaryCollector collector = new ColumnarSummaryCollector(columns, topTransactionsLimit);
+            collector.accept(from, to);
+            return collector;
+        }
+
+        int middle = (from + to) >>> 1;
+        ColumnarSummaryTask head = new ColumnarSummaryTask(columns, topTransactionsLimit, from, middle);
+        ColumnarSummaryTask tail = new ColumnarSummaryTask(columns, topTransactionsLimit, middle, to);
+        head.fork();
+        ColumnarSummaryCollector tailCollector = tail.compute();
+
+        return head.join().combine(tailCollector);
+    }
+}
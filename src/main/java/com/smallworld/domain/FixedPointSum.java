@@ -0,0 +1,155 @@
+package com.smallworld.domain;
+
+import com.smallworld.domain.entities.Transaction;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * Exact running sum of money amounts, held as a long count of minor units at a fixed scale so that adding
+ * an unscaled long does not allocate. The scale grows to the largest scale added, and the sum falls back to
+ * {@link BigDecimal} once it no longer fits a long. Adding a {@link BigDecimal} reads its unscaled value,
+ * which creates a {@link BigInteger} on every call, so sums over transactions add the unscaled amount each
+ * {@link Transaction} converted once when it was loaded.
+ */
+public class FixedPointSum implements Comparable<FixedPointSum> {
+
+    private static final int MAX_LONG_SCALE = 18;
+    private static final long[] POWERS_OF_TEN = new long[MAX_LONG_SCALE + 1];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private long unscaled;
+    private int scale;
+    private BigDecimal inflated;
+
+    public FixedPointSum() {
+        this(0);
+    }
+
+    /**
+     * Creates an empty sum at the given scale, typically the highest scale of the loaded amounts
+     */
+    public FixedPointSum(int scale) {
+        if (scale < 0 || scale > MAX_LONG_SCALE) {
+            throw new IllegalArgumentException("Unsupported scale: " + scale);
+        }
+        this.scale = scale;
+    }
+
+    /**
+     * Adds the amount of the transaction from the unscaled long it holds, without allocating unless the
+     * amount or the sum does not fit a long
+     */
+    public void add(Transaction transaction) {
+        if (transaction.hasLongAmount()) {
+            add(transaction.amountUnscaled(), transaction.amountScale());
+        } else {
+            add(transaction.getAmount());
+        }
+    }
+
+    /**
+     * Adds the amount through its unscaled value and scale. Reading the unscaled value of a
+     * {@link BigDecimal} creates a new {@link BigInteger}, so every call allocates
+     */
+    public void add(BigDecimal amount) {
+        if (inflated == null) {
+            BigInteger unscaledAmount = amount.unscaledValue();
+            int amountScale = amount.scale();
+            if (unscaledAmount.bitLength() < Long.SIZE) {
+                long value = unscaledAmount.longValue();
+                if (amountScale >= 0) {
+                    add(value, amountScale);
+                    return;
+                }
+                // Amounts such as 1.5E+3 carry a negative scale
+                if (-amountScale <= MAX_LONG_SCALE) {
+                    value = multiplyByPowerOfTen(value, -amountScale);
+                    if (value != Long.MIN_VALUE) {
+                        add(value, 0);
+                        return;
+                    }
+                }
+            }
+        }
+
+        inflated = toBigDecimal().add(amount);
+    }
+
+    /**
+     * Adds {@code unscaledAmount * 10^-amountScale}
+     */
+    public void add(long unscaledAmount, int amountScale) {
+        if (inflated == null) {
+            if (amountScale > scale && amountScale <= MAX_LONG_SCALE) {
+                rescale(amountScale);
+            }
+            if (inflated == null && amountScale <= scale && amountScale >= 0) {
+                long value = multiplyByPowerOfTen(unscaledAmount, scale - amountScale);
+                long sum = unscaled + value;
+                if (value != Long.MIN_VALUE && ((unscaled ^ sum) & (value ^ sum)) >= 0) {
+                    unscaled = sum;
+                    return;
+                }
+            }
+        }
+
+        inflated = toBigDecimal().add(BigDecimal.valueOf(unscaledAmount, amountScale));
+    }
+
+    public void add(FixedPointSum other) {
+        if (other.inflated == null) {
+            add(other.unscaled, other.scale);
+        } else {
+            inflated = toBigDecimal().add(other.inflated);
+        }
+    }
+
+    private void rescale(int newScale) {
+        long rescaled = multiplyByPowerOfTen(unscaled, newScale - scale);
+        if (rescaled == Long.MIN_VALUE) {
+            inflated = BigDecimal.valueOf(unscaled, scale);
+        } else {
+            unscaled = rescaled;
+            scale = newScale;
+        }
+    }
+
+    /**
+     * Returns {@code value * 10^power}, or {@link Long#MIN_VALUE} when the product does not fit a long
+     */
+    private static long multiplyByPowerOfTen(long value, int power) {
+        if (power == 0) {
+            return value;
+        }
+
+        long factor = POWERS_OF_TEN[power];
+        long high = Math.multiplyHigh(value, factor);
+        long low = value * factor;
+        return (high == 0 && low >= 0) || (high == -1 && low < 0) ? low : Long.MIN_VALUE;
+    }
+
+    public BigDecimal toBigDecimal() {
+        return inflated != null ? inflated : BigDecimal.valueOf(unscaled, scale);
+    }
+
+    @Override
+    public int compareTo(FixedPointSum other) {
+        if (inflated == null && other.inflated == null) {
+            int commonScale = Math.max(scale, other.scale);
+            long value = multiplyByPowerOfTen(unscaled, commonScale - scale);
+            long otherValue = multiplyByPowerOfTen(other.unscaled, commonScale - other.scale);
+            if (value != Long.MIN_VALUE && otherValue != Long.MIN_VALUE) {
+                return Long.compare(value, otherValue);
+            }
+        }
+
+        return toBigDecimal().compareTo(other.toBigDecimal());
+    }
+}
@@ -0,0 +1,141 @@
+package com.smallworld.domain;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Estimates the number of distinct strings added in {@code 2^precision} bytes, whatever their number. The
+ * estimate has a relative standard error of {@code 1.04 / sqrt(2^precision)}, about 0.8% at the default
+ * precision of 14 (16 KB). Small cardinalities are counted by linear counting and are close to exact.
+ * <p>
+ * Sketches of the same precision merge into the sketch of the union of their inputs, so partitions and
+ * files can be counted separately and combined.
+ */
+public class HyperLogLog {
+
+    public static final int MIN_PRECISION = 4;
+    public static final int MAX_PRECISION = 18;
+    public static final int DEFAULT_PRECISION = 14;
+
+    private final int precision;
+    private final byte[] registers;
+
+    public HyperLogLog() {
+        this(DEFAULT_PRECISION);
+    }
+
+    public HyperLogLog(int precision) {
+        if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("precision must be between " + MIN_PRECISION + " and " + MAX_PRECISION + ": " + precision);
+        }
+
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    public int getPrecision() {
+        return precision;
+    }
+
+    /**
+     * Returns the relative standard error of the estimates of this precision
+     */
+    public double getRelativeStandardError() {
+        return 1.04 / Math.sqrt(registers.length);
+    }
+
+    /**
+     * Adds a string, null counts as a value of its own
+     */
+    public void add(String value) {
+        addHash(hash(value));
+    }
+
+    void addHash(long hash) {
+        int register = (int) (hash >>> (Long.SIZE - precision));
+        // Rank of the first set bit in the remaining bits, capped when they are all zero
+        int rank = Math.min(Long.numberOfLeadingZeros(hash << precision), Long.SIZE - precision) + 1;
+        if (rank > registers[register]) {
+            registers[register] = (byte) rank;
+        }
+    }
+
+    /**
+     * Merges the sketch of other values into this one
+     */
+    public HyperLogLog merge(HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("Cannot merge sketches of precision " + precision + " and " + other.precision);
+        }
+
+        for (int register = 0; register < registers.length; register++) {
+            if (other.registers[register] > registers[register]) {
+                registers[register] = other.registers[register];
+            }
+        }
+
+        return this;
+    }
+
+    /**
+     * Returns the estimated number of distinct values added
+     */
+    public long estimate() {
+        int registerCount = registers.length;
+        double inverseSum = 0;
+        int emptyRegisters = 0;
+        for (byte rank : registers) {
+            inverseSum += Math.scalb(1.0, -rank);
+            if (rank == 0) {
+                emptyRegisters++;
+            }
+        }
+
+        double estimate = alpha(registerCount) * registerCount * registerCount / inverseSum;
+        if (estimate <= 2.5 * registerCount && emptyRegisters > 0) {
+            estimate = registerCount * Math.log((double) registerCount / emptyRegisters);
+        }
+
+        return Math.round(estimate);
+    }
+
+    private static double alpha(int registerCount) {
+        switch (registerCount) {
+            case 16:
+                return 0.673;
+            case 32:
+                return 0.697;
+            case 64:
+                return 0.709;
+            default:
+                return 0.7213 / (1 + 1.079 / registerCount);
+        }
+    }
+
+    /**
+     * Hashes the UTF-8 bytes of the value with 64-bit FNV-1a followed by the MurmurHash3 finalizer, which
+     * spreads the bits evenly enough for the registers and the ranks
+     */
+    static long hash(String value) {
+        if (value == null) {
+            return mix(0x9E3779B97F4A7C15L);
+        }
+
+        long hash = 0xCBF29CE484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xFF;
+            hash *= 0x100000001B3L;
+        }
+
+        return mix(hash);
+    }
+
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB93FE1A85A4DL;
+        hash ^= hash >>> 33;
+
+        return hash;
+    }
+}
@@ -0,0 +1,216 @@
+package com.smallworld.domain;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+/**
+ * Finds the keys with the most total weight with the space-saving algorithm, keeping at most {@code capacity}
+ * counters whatever the number of keys. When a new key arrives and all counters are taken, it replaces the
+ * key with the least weight and inherits its count.
+ * <p>
+ * Estimates never underestimate and overestimate by at most {@link #getMaxError()}, which is at most the
+ * total weight divided by the capacity. Every key with a true weight above that bound is reported. Sketches
+ * of the same capacity merge following Agarwal et al., Mergeable Summaries, with the same guarantees for the
+ * combined input. Weights must not be negative.
+ */
+public class SpaceSavingSketch {
+
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private static final Comparator<Counter> BY_COUNT_DESCENDING = Comparator
+            .comparing((Counter counter) -> counter.count).reversed()
+            .thenComparing(counter -> counter.key, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    private final int capacity;
+    private final Map<String, Counter> counters = new HashMap<>();
+    /** Min-heap of the counters by count, each counter knowing its position */
+    private final Counter[] heap;
+    private int size;
+    private BigDecimal totalWeight = BigDecimal.ZERO;
+    /** Error carried over from merged sketches and from the keys dropped by merging */
+    private BigDecimal mergedError = BigDecimal.ZERO;
+
+    public SpaceSavingSketch() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public SpaceSavingSketch(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+
+        this.capacity = capacity;
+        this.heap = new Counter[capacity];
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public BigDecimal getTotalWeight() {
+        return totalWeight;
+    }
+
+    /**
+     * Returns the most any estimate exceeds the true weight of its key, and the most weight an untracked key
+     * can have: the smallest count once every counter is taken, or more after merges
+     */
+    public BigDecimal getMaxError() {
+        return size < capacity ? mergedError : mergedError.max(heap[0].count);
+    }
+
+    public void add(String key, BigDecimal weight) {
+        if (weight.signum() < 0) {
+            throw new IllegalArgumentException("Weights must not be negative: " + weight);
+        }
+
+        totalWeight = totalWeight.add(weight);
+        Counter counter = counters.get(key);
+        if (counter != null) {
+            counter.count = counter.count.add(weight);
+            siftDown(counter.position);
+        } else if (size < capacity) {
+            counter = new Counter(key, weight, BigDecimal.ZERO);
+            counters.put(key, counter);
+            heap[size] = counter;
+            counter.position = size++;
+            siftUp(counter.position);
+        } else {
+            counter = heap[0];
+            counters.remove(counter.key);
+            counter.key = key;
+            counter.error = counter.count;
+            counter.count = counter.count.add(weight);
+            counters.put(key, counter);
+            siftDown(0);
+        }
+    }
+
+    /**
+     * Merges the sketch of other input into this one
+     */
+    public SpaceSavingSketch merge(SpaceSavingSketch other) {
+        if (other.capacity != capacity) {
+            throw new IllegalArgumentException("Cannot merge sketches of capacity " + capacity + " and " + other.capacity);
+        }
+
+        // A key missing from a full sketch may have had up to its smallest count there
+        BigDecimal thisMissing = getMaxError();
+        BigDecimal otherMissing = other.getMaxError();
+        Map<String, Counter> merged = new HashMap<>();
+        for (Counter counter : counters.values()) {
+            Counter otherCounter = other.counters.get(counter.key);
+            merged.put(counter.key, otherCounter == null
+                    ? new Counter(counter.key, counter.count.add(otherMissing), counter.error.add(otherMissing))
+                    : new Counter(counter.key, counter.count.add(otherCounter.count), counter.error.add(otherCounter.error)));
+        }
+        for (Counter otherCounter : other.counters.values()) {
+            if (!counters.containsKey(otherCounter.key)) {
+                merged.put(otherCounter.key, new Counter(otherCounter.key, otherCounter.count.add(thisMissing), otherCounter.error.add(thisMissing)));
+            }
+        }
+
+        List<Counter> kept = new ArrayList<>(merged.values());
+        kept.sort(BY_COUNT_DESCENDING);
+        mergedError = thisMissing.add(otherMissing);
+        if (kept.size() > capacity) {
+            mergedError = mergedError.max(kept.get(capacity).count);
+            kept = kept.subList(0, capacity);
+        }
+
+        counters.clear();
+        Arrays.fill(heap, null);
+        size = 0;
+        for (Counter counter : kept) {
+            counters.put(counter.key, counter);
+            heap[size] = counter;
+            counter.position = size++;
+            siftUp(counter.position);
+        }
+        totalWeight = totalWeight.add(other.totalWeight);
+
+        return this;
+    }
+
+    /**
+     * Returns up to k keys with the highest estimated weight mapped to that estimate, in descending order
+     */
+    public Map<String, BigDecimal> top(int k) {
+        List<Counter> sorted = new ArrayList<>(counters.values());
+        sorted.sort(BY_COUNT_DESCENDING);
+
+        Map<String, BigDecimal> top = new LinkedHashMap<>();
+        for (Counter counter : sorted.subList(0, Math.min(k, sorted.size()))) {
+            top.put(counter.key, counter.count);
+        }
+
+        return top;
+    }
+
+    /**
+     * Returns the estimated weight of the key, {@link #getMaxError()} when it is not tracked
+     */
+    public BigDecimal estimate(String key) {
+        Counter counter = counters.get(key);
+        return counter == null ? getMaxError() : counter.count;
+    }
+
+    /**
+     * Returns the weight the key is guaranteed to have, its estimate minus the count it inherited
+     */
+    public BigDecimal guaranteedWeight(String key) {
+        Counter counter = counters.get(key);
+        return counter == null ? BigDecimal.ZERO : counter.count.subtract(counter.error);
+    }
+
+    private void siftUp(int position) {
+        Counter counter = heap[position];
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (heap[parent].count.compareTo(counter.count) <= 0) {
+                break;
+            }
+            place(heap[parent], position);
+            position = parent;
+        }
+        place(counter, position);
+    }
+
+    private void siftDown(int position) {
+        Counter counter = heap[position];
+        while (true) {
+            int child = 2 * position + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && heap[child + 1].count.compareTo(heap[child].count) < 0) {
+                child++;
+            }
+            if (heap[child].count.compareTo(counter.count) >= 0) {
+                break;
+            }
+            place(heap[child], position);
+            position = child;
+        }
+        place(counter, position);
+    }
+
+    private void place(Counter counter, int position) {
+        heap[position] = counter;
+        counter.position = position;
+    }
+
+    private static class Counter {
+        private String key;
+        private BigDecimal count;
+        /** Count inherited from the key this counter tracked before */
+        private BigDecimal error;
+        private int position;
+
+        private Counter(String key, BigDecimal count, BigDecimal error) {
+            this.key = key;
+            this.count = count;
+            this.error = error;
+        }
+    }
+}
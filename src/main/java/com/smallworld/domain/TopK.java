@@ -0,0 +1,98 @@
+package com.smallworld.domain;
+
+import java.util.*;
+import java.util.stream.Collector;
+
+/**
+ * Keeps the k greatest elements offered so far in a size-k min-heap, so selecting them from n elements
+ * costs O(n log k) instead of sorting everything. Equal elements keep their encounter order, also when the
+ * heaps of consecutive partitions are merged.
+ */
+public class TopK<T> {
+
+    private final int k;
+    private final Comparator<? super T> comparator;
+    private final PriorityQueue<Ranked<T>> heap;
+    private long offered;
+
+    public TopK(int k, Comparator<? super T> comparator) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k must not be negative: " + k);
+        }
+
+        this.k = k;
+        this.comparator = comparator;
+        this.heap = new PriorityQueue<>(Math.max(1, Math.min(k, 1024)) + 1, this::compareRanked);
+    }
+
+    /**
+     * Orders by the comparator, an element offered later ranks below an equal one offered earlier
+     */
+    private int compareRanked(Ranked<T> first, Ranked<T> second) {
+        int comparison = comparator.compare(first.element, second.element);
+        return comparison != 0 ? comparison : Long.compare(second.sequence, first.sequence);
+    }
+
+    public void offer(T element) {
+        offer(new Ranked<>(element, offered++));
+    }
+
+    private void offer(Ranked<T> ranked) {
+        if (heap.size() < k) {
+            heap.add(ranked);
+        } else if (k > 0 && compareRanked(ranked, heap.peek()) > 0) {
+            heap.poll();
+            heap.add(ranked);
+        }
+    }
+
+    /**
+     * Merges the elements of a partition that follows this one in encounter order
+     */
+    public TopK<T> merge(TopK<T> following) {
+        for (Ranked<T> ranked : following.heap) {
+            offer(new Ranked<>(ranked.element, offered + ranked.sequence));
+        }
+        offered += following.offered;
+
+        return this;
+    }
+
+    /**
+     * Returns the retained elements, greatest first
+     */
+    public List<T> toList() {
+        List<Ranked<T>> ranked = new ArrayList<>(heap);
+        ranked.sort((first, second) -> compareRanked(second, first));
+
+        List<T> elements = new ArrayList<>(ranked.size());
+        for (Ranked<T> entry : ranked) {
+            elements.add(entry.element);
+        }
+
+        return elements;
+    }
+
+    /**
+     * Collects the k greatest elements of a stream, greatest first. Parallel streams build one heap per
+     * partition and merge them
+     */
+    public static <T> Collector<T, ?, List<T>> collector(int k, Comparator<? super T> comparator) {
+        return Collector.of(
+                () -> new TopK<T>(k, comparator),
+                TopK::offer,
+                TopK::merge,
+                TopK::toList
+        );
+    }
+
+    private static class Ranked<T> {
+        private final T element;
+        private final long sequence;
+
+        private Ranked(T element, long sequence) {
+            this.element = element;
+            this.sequence = sequence;
+        }
+    }
+}
@@ -1,72 +1,215 @@
 package com.smallworld.domain;
 
+import com.smallworld.data.TransactionAggregates;
+import com.smallworld.data.TransactionColumns;
+import com.smallworld.data.TransactionFilter;
 import com.smallworld.data.TransactionRepository;
 import com.smallworld.domain.entities.Transaction;
+import com.smallworld.metrics.QueryMetrics;
 
 import java.math.BigDecimal;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Stream;
 
-public class TransactionDataFetcher {
+public class TransactionDataFetcher implements AutoCloseable {
 
-    private final TransactionRepository repository;
+    protected static final int TOP_TRANSACTIONS_LIMIT = 3;
+
+    protected final TransactionRepository repository;
+    /** Pool the scans run on, null when they run sequentially */
+    protected final ForkJoinPool pool;
+    protected final QueryMetrics metrics;
+    /** Whether the pool was created by the fetcher, which then shuts it down on close */
+    private final boolean ownsPool;
+
+    private volatile Versioned<TransactionSummary> summary;
 
     public TransactionDataFetcher(TransactionRepository repository){
+        this(repository, null);
+    }
+
+    /**
+     * Creates a fetcher that scans the repository in parallel chunks on the given pool, or sequentially when
+     * the pool is null. Both modes return the same results
+     */
+    public TransactionDataFetcher(TransactionRepository repository, ForkJoinPool pool) {
+        this(repository, pool, QueryMetrics.DISABLED);
+    }
+
+    /**
+     * Creates a fetcher reporting the latency and the rows scanned of every query to the metrics
+     */
+    public TransactionDataFetcher(TransactionRepository repository, ForkJoinPool pool, QueryMetrics metrics) {
+        this.repository = repository;
+        this.pool = pool;
+        this.metrics = metrics;
+        this.ownsPool = false;
+    }
+
+    /**
+     * Creates a fetcher scanning on a pool of its own with the given number of threads, sequentially when it
+     * is 1 or less. The pool is shut down by {@link #close()}
+     */
+    protected TransactionDataFetcher(TransactionRepository repository, int parallelism, QueryMetrics metrics) {
         this.repository = repository;
+        this.pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+        this.metrics = metrics;
+        this.ownsPool = pool != null;
+    }
+
+    /**
+     * Creates a fetcher scanning with the given number of threads, sequentially when it is 1 or less. The
+     * fetcher owns its pool and should be closed once no longer used
+     */
+    public static TransactionDataFetcher withParallelism(TransactionRepository repository, int parallelism) {
+        return withParallelism(repository, parallelism, QueryMetrics.DISABLED);
+    }
+
+    public static TransactionDataFetcher withParallelism(TransactionRepository repository, int parallelism, QueryMetrics metrics) {
+        return new TransactionDataFetcher(repository, parallelism, metrics);
+    }
+
+    /**
+     * Shuts down the pool the fetcher created itself, a pool passed to the constructor is left to its owner
+     */
+    @Override
+    public void close() {
+        if (ownsPool) {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Returns a query over all transactions, to be narrowed by conditions before aggregating
+     */
+    public TransactionQuery query() {
+        return new TransactionQuery(repository, pool, metrics, TransactionFilter.ALL);
+    }
+
+    private BigDecimal sumTransactionAmount(List<Transaction> transactions) {
+        FixedPointSum totalAmount = new FixedPointSum();
+        for (Transaction transaction : transactions) {
+            totalAmount.add(transaction);
+        }
+
+        return totalAmount.toBigDecimal();
+    }
+
+    /**
+     * Returns the statistics of all transactions, computed in a single scan on first use and again after
+     * the repository changed
+     */
+    public TransactionSummary getSummary() {
+        long start = metrics.start();
+        try {
+            return summary("getSummary");
+        } finally {
+            metrics.record("getSummary", start);
+        }
     }
 
-    private BigDecimal sumTransactionAmount(Stream<Transaction> transactionStream) {
-        return transactionStream
-                .map(Transaction::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    /**
+     * Returns the summary, counting the rows of a scan it needs against the query asking for it
+     */
+    private TransactionSummary summary(String query) {
+        long version = repository.version();
+        Versioned<TransactionSummary> currentSummary = summary;
+        if (currentSummary == null || currentSummary.version != version) {
+            TransactionSummary computedSummary;
+            Optional<TransactionColumns> columns = repository.columns();
+            if (columns.isPresent()) {
+                metrics.addRowsScanned(query, columns.get().size());
+                computedSummary = pool == null
+                        ? TransactionSummary.of(columns.get(), TOP_TRANSACTIONS_LIMIT)
+                        : TransactionSummary.of(columns.get(), TOP_TRANSACTIONS_LIMIT, pool);
+            } else {
+                try (Stream<Transaction> transactionStream = metrics.countRowsScanned(query, repository.stream())) {
+                    computedSummary = pool == null
+                            ? TransactionSummary.of(transactionStream, TOP_TRANSACTIONS_LIMIT)
+                            : TransactionSummary.of(transactionStream, TOP_TRANSACTIONS_LIMIT, pool);
+                }
+            }
+            currentSummary = new Versioned<>(computedSummary, version);
+            summary = currentSummary;
+        }
+
+        return currentSummary.value;
     }
 
     /**
      * Returns the sum of the amounts of all transactions
      */
     public BigDecimal getTotalTransactionAmount() {
-        return sumTransactionAmount(repository.getAll().stream());
+        long start = metrics.start();
+        try {
+            Optional<TransactionAggregates> aggregates = repository.aggregates();
+            if (aggregates.isPresent()) {
+                return aggregates.get().getTotalAmount();
+            }
+            return summary("getTotalTransactionAmount").getTotalAmount();
+        } finally {
+            metrics.record("getTotalTransactionAmount", start);
+        }
     }
 
     /**
      * Returns the sum of the amounts of all transactions sent by the specified client
      */
     public BigDecimal getTotalTransactionAmountSentBy(String senderFullName) {
-        Stream<Transaction> senderTransactionsStream = repository
-                .getAll()
-                .stream()
-                .filter(transaction -> transaction.getSenderFullName().equals(senderFullName));
-
-        return sumTransactionAmount(senderTransactionsStream);
+        long start = metrics.start();
+        try {
+            Optional<TransactionAggregates> aggregates = repository.aggregates();
+            if (aggregates.isPresent()) {
+                return aggregates.get().getTotalAmountSentBy(senderFullName);
+            }
+            Optional<TransactionColumns> columns = repository.columns();
+            if (columns.isPresent()) {
+                metrics.addRowsScanned("getTotalTransactionAmountSentBy", columns.get().size());
+                return columns.get().sumAmountsSentBy(senderFullName);
+            }
+            // A summary already computed holds the totals of every sender
+            Versioned<TransactionSummary> currentSummary = summary;
+            if (currentSummary != null && currentSummary.version == repository.version()) {
+                return currentSummary.value.getTotalAmountBySender().getOrDefault(senderFullName, BigDecimal.ZERO);
+            }
+            return sumTransactionAmount(repository.findBySender(senderFullName,
+                    metrics.rowsScanned("getTotalTransactionAmountSentBy")));
+        } finally {
+            metrics.record("getTotalTransactionAmountSentBy", start);
+        }
     }
 
     /**
      * Returns the highest transaction amount
      */
     public BigDecimal getMaxTransactionAmount() throws NoSuchElementException {
-        return repository
-                .getAll()
-                .stream()
-                .map(Transaction::getAmount)
-                .max(BigDecimal::compareTo)
-                .orElseThrow();
+        long start = metrics.start();
+        try {
+            Optional<TransactionAggregates> aggregates = repository.aggregates();
+            if (aggregates.isPresent()) {
+                return aggregates.get().getMaxAmount().orElseThrow();
+            }
+            return Optional.ofNullable(summary("getMaxTransactionAmount").getMaxAmount()).orElseThrow();
+        } finally {
+            metrics.record("getMaxTransactionAmount", start);
+        }
     }
 
     /**
      * Counts the number of unique clients that sent or received a transaction
      */
     public Long countUniqueClients() {
-        Set<String> clientNames = new HashSet<>();
-
-        repository.getAll().forEach(
-                transaction -> {
-                    clientNames.add(transaction.getSenderFullName());
-                    clientNames.add(transaction.getBeneficiaryFullName());
-                }
-        );
-
-        return (long) clientNames.size();
+        long start = metrics.start();
+        try {
+            Optional<TransactionAggregates> aggregates = repository.aggregates();
+            if (aggregates.isPresent()) {
+                return aggregates.get().getUniqueClientCount();
+            }
+            return summary("countUniqueClients").getUniqueClientCount();
+        } finally {
+            metrics.record("countUniqueClients", start);
+        }
     }
 
     /**
@@ -74,72 +217,157 @@ public class TransactionDataFetcher {
      * issue that has not been solved
      */
     public Boolean hasOpenComplianceIssues(String clientFullName) {
-        return repository.getAll().stream()
-                .anyMatch(transaction ->
-                                !transaction.getIssueSolved() &&
-                                (transaction.getBeneficiaryFullName().equals(clientFullName) || transaction.getSenderFullName().equals(clientFullName)));
+        long start = metrics.start();
+        try {
+            return repository.countOpenIssues(clientFullName, metrics.rowsScanned("hasOpenComplianceIssues")) > 0;
+        } finally {
+            metrics.record("hasOpenComplianceIssues", start);
+        }
     }
 
     /**
      * Returns all transactions indexed by beneficiary name
      */
     public Map<String, List<Transaction>> getTransactionsByBeneficiaryName() {
-        return repository.getAll().stream()
-                .collect(Collectors.groupingBy(Transaction::getBeneficiaryFullName));
+        long start = metrics.start();
+        try {
+            return repository.groupByBeneficiary(metrics.rowsScanned("getTransactionsByBeneficiaryName"));
+        } finally {
+            metrics.record("getTransactionsByBeneficiaryName", start);
+        }
     }
 
     /**
-     * Returns the identifiers of all open compliance issues
+     * Returns all transactions grouped by beneficiary name one group at a time, for consumers writing them out
+     * without holding every group. The stream should be closed once consumed, the query is recorded then
      */
-    public Set<Integer> getUnsolvedIssueIds() {
-        Set<Integer> openComplianceIssueIds = new HashSet<>();
+    public Stream<Map.Entry<String, List<Transaction>>> streamTransactionsByBeneficiaryName() {
+        long start = metrics.start();
+        return repository.streamByBeneficiary(metrics.rowsScanned("streamTransactionsByBeneficiaryName"))
+                .onClose(() -> metrics.record("streamTransactionsByBeneficiaryName", start));
+    }
 
-        repository.getAll().stream()
-                .filter(transaction -> !transaction.getIssueSolved())
-                .forEach(transaction -> openComplianceIssueIds.add(transaction.getIssueId()));
+    /**
+     * Returns the transaction the specified compliance issue was raised on
+     */
+    public Optional<Transaction> getTransactionByIssueId(int issueId) {
+        long start = metrics.start();
+        try {
+            return repository.findByIssueId(issueId, metrics.rowsScanned("getTransactionByIssueId"));
+        } finally {
+            metrics.record("getTransactionByIssueId", start);
+        }
+    }
 
-        return openComplianceIssueIds;
+    /**
+     * Returns the identifiers of all open compliance issues. On a repository maintaining
+     * {@link TransactionAggregates} this is a live view that reflects issues solved or raised later
+     */
+    public Set<Integer> getUnsolvedIssueIds() {
+        long start = metrics.start();
+        try {
+            Optional<TransactionAggregates> aggregates = repository.aggregates();
+            if (aggregates.isPresent()) {
+                return aggregates.get().getUnsolvedIssueIds();
+            }
+            return summary("getUnsolvedIssueIds").getUnsolvedIssueIds();
+        } finally {
+            metrics.record("getUnsolvedIssueIds", start);
+        }
     }
 
     /**
      * Returns a list of all solved issue messages
      */
     public List<String> getAllSolvedIssueMessages() {
-        return repository.getAll().stream()
-                .filter(transaction -> transaction.getIssueId() != null && transaction.getIssueSolved())
-                .map(Transaction::getIssueMessage)
-                .collect(Collectors.toList());
+        long start = metrics.start();
+        try {
+            Optional<TransactionAggregates> aggregates = repository.aggregates();
+            if (aggregates.isPresent()) {
+                return aggregates.get().getSolvedIssueMessages();
+            }
+            return summary("getAllSolvedIssueMessages").getSolvedIssueMessages();
+        } finally {
+            metrics.record("getAllSolvedIssueMessages", start);
+        }
     }
 
     /**
      * Returns the 3 transactions with the highest amount sorted by amount descending
      */
     public List<Transaction> getTop3TransactionsByAmount() {
-        return repository.getAll().stream()
-                .sorted(Comparator.comparing(Transaction::sortingDescAmount))
-                .limit(3)
-                .collect(Collectors.toList());
+        long start = metrics.start();
+        try {
+            return summary("getTop3TransactionsByAmount").getTopTransactions();
+        } finally {
+            metrics.record("getTop3TransactionsByAmount", start);
+        }
     }
 
     /**
      * Returns the sender with the most total sent amount
      */
     public String getTopSender() {
-        Map<String, List<Transaction>> senderTransactionsMap = repository.getAll().stream()
-                .collect(Collectors.groupingBy(Transaction::getSenderFullName));
-
-        Map<String, BigDecimal> senderTotalAmountMap = senderTransactionsMap.entrySet().stream().collect(
-                Collectors.toMap(
-                        Map.Entry::getKey,
-                        entry -> entry.getValue()
-                                .stream()
-                                .map(Transaction::getAmount)
-                                .reduce(BigDecimal.ZERO, BigDecimal::add)
-                )
-        );
-
-        return senderTotalAmountMap.entrySet().stream()
-                .max(Map.Entry.comparingByValue()).get().getKey();
+        long start = metrics.start();
+        try {
+            Optional<TransactionAggregates> aggregates = repository.aggregates();
+            if (aggregates.isPresent()) {
+                return aggregates.get().getTopSender().orElseThrow();
+            }
+            return Optional.ofNullable(summary("getTopSender").getTopSender()).orElseThrow();
+        } finally {
+            metrics.record("getTopSender", start);
+        }
+    }
+
+    /**
+     * Returns the k greatest transactions according to the comparator, greatest first
+     */
+    public List<Transaction> getTopTransactions(int k, Comparator<? super Transaction> comparator) {
+        long start = metrics.start();
+        try {
+            try (Stream<Transaction> transactionStream = metrics.countRowsScanned("getTopTransactions", repository.stream())) {
+                if (pool == null) {
+                    return transactionStream.collect(TopK.collector(k, comparator));
+                }
+                return pool.submit(() -> transactionStream.parallel().collect(TopK.collector(k, comparator))).join();
+            }
+        } finally {
+            metrics.record("getTopTransactions", start);
+        }
+    }
+
+    /**
+     * Returns the k senders with the most total sent amount mapped to that amount, in descending order
+     */
+    public Map<String, BigDecimal> getTopSenders(int k) {
+        long start = metrics.start();
+        try {
+            TopK<Map.Entry<String, BigDecimal>> topSenders = new TopK<>(k, Map.Entry.comparingByValue());
+            summary("getTopSenders").getTotalAmountBySender().entrySet().forEach(topSenders::offer);
+
+            Map<String, BigDecimal> topSenderAmounts = new LinkedHashMap<>();
+            for (Map.Entry<String, BigDecimal> sender : topSenders.toList()) {
+                topSenderAmounts.put(sender.getKey(), sender.getValue());
+            }
+
+            return topSenderAmounts;
+        } finally {
+            metrics.record("getTopSenders", start);
+        }
+    }
+
+    /**
+     * Result of a scan together with the {@link TransactionRepository#version()} it was computed from
+     */
+    protected static class Versioned<T> {
+        protected final T value;
+        protected final long version;
+
+        protected Versioned(T value, long version) {
+            this.value = value;
+            this.version = version;
+        }
     }
 
 }
@@ -0,0 +1,190 @@
+package com.smallworld.domain;
+
+import com.smallworld.data.TransactionFilter;
+import com.smallworld.data.TransactionRepository;
+import com.smallworld.domain.entities.Transaction;
+import com.smallworld.metrics.QueryMetrics;
+
+import java.math.BigDecimal;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Immutable query over the transactions matching a {@link TransactionFilter}, obtained from
+ * {@link TransactionDataFetcher#query()}. Every condition returns a new query narrowing this one, so queries
+ * can be shared and refined. The filter is handed to {@link TransactionRepository#findMatching} so that indexed
+ * and columnar repositories only materialize the matching transactions.
+ */
+public class TransactionQuery {
+
+    private static final int TOP_TRANSACTIONS_LIMIT = 3;
+
+    private final TransactionRepository repository;
+    private final ForkJoinPool pool;
+    private final QueryMetrics metrics;
+    private final TransactionFilter filter;
+
+    TransactionQuery(TransactionRepository repository, ForkJoinPool pool, QueryMetrics metrics, TransactionFilter filter) {
+        this.repository = repository;
+        this.pool = pool;
+        this.metrics = metrics;
+        this.filter = filter;
+    }
+
+    public TransactionFilter getFilter() {
+        return filter;
+    }
+
+    private TransactionQuery with(TransactionFilter narrowedFilter) {
+        return new TransactionQuery(repository, pool, metrics, narrowedFilter);
+    }
+
+    /**
+     * Keeps the transactions with an amount within the bounds, both inclusive
+     */
+    public TransactionQuery amountBetween(BigDecimal min, BigDecimal max) {
+        return amountAtLeast(min).amountAtMost(max);
+    }
+
+    public TransactionQuery amountAtLeast(BigDecimal min) {
+        return with(filter.toBuilder().minAmount(greatest(filter.getMinAmount(), min)).build());
+    }
+
+    public TransactionQuery amountAtMost(BigDecimal max) {
+        return with(filter.toBuilder().maxAmount(least(filter.getMaxAmount(), max)).build());
+    }
+
+    /**
+     * Keeps the transactions whose sender age is known and within the bounds, both inclusive
+     */
+    public TransactionQuery senderAgeBetween(int min, int max) {
+        return with(filter.toBuilder()
+                .minSenderAge(greatest(filter.getMinSenderAge(), min))
+                .maxSenderAge(least(filter.getMaxSenderAge(), max))
+                .build());
+    }
+
+    /**
+     * Keeps the transactions whose beneficiary age is known and within the bounds, both inclusive
+     */
+    public TransactionQuery beneficiaryAgeBetween(int min, int max) {
+        return with(filter.toBuilder()
+                .minBeneficiaryAge(greatest(filter.getMinBeneficiaryAge(), min))
+                .maxBeneficiaryAge(least(filter.getMaxBeneficiaryAge(), max))
+                .build());
+    }
+
+    /**
+     * Keeps the transactions sent by the client, none when another sender was asked for already
+     */
+    public TransactionQuery sentBy(String senderFullName) {
+        if (filter.getSenderFullName() != null) {
+            return filter.getSenderFullName().equals(senderFullName) ? this : where(transaction -> false);
+        }
+
+        return with(filter.toBuilder().senderFullName(senderFullName).build());
+    }
+
+    /**
+     * Keeps the transactions received by the client, none when another beneficiary was asked for already
+     */
+    public TransactionQuery receivedBy(String beneficiaryFullName) {
+        if (filter.getBeneficiaryFullName() != null) {
+            return filter.getBeneficiaryFullName().equals(beneficiaryFullName) ? this : where(transaction -> false);
+        }
+
+        return with(filter.toBuilder().beneficiaryFullName(beneficiaryFullName).build());
+    }
+
+    /**
+     * Keeps the transactions with at least one compliance issue
+     */
+    public TransactionQuery withIssues() {
+        return filter.getIssues() == TransactionFilter.IssueCondition.ANY
+                ? with(filter.toBuilder().issues(TransactionFilter.IssueCondition.WITH_ISSUES).build())
+                : this;
+    }
+
+    /**
+     * Keeps the transactions with at least one compliance issue that is not solved
+     */
+    public TransactionQuery withOpenIssues() {
+        return with(filter.toBuilder().issues(TransactionFilter.IssueCondition.WITH_OPEN_ISSUES).build());
+    }
+
+    /**
+     * Keeps the transactions satisfying an arbitrary predicate as well. Repositories cannot look into it, so it
+     * is only tested on the transactions passing the other conditions
+     */
+    public TransactionQuery where(Predicate<? super Transaction> predicate) {
+        Predicate<? super Transaction> where = filter.getWhere();
+        Predicate<Transaction> combined = where == null
+                ? predicate::test
+                : transaction -> where.test(transaction) && predicate.test(transaction);
+
+        return with(filter.toBuilder().where(combined).build());
+    }
+
+    /**
+     * Returns the matching transactions in source order
+     */
+    public List<Transaction> list() {
+        return answer("query.list", transactions -> transactions.collect(Collectors.toList()));
+    }
+
+    public long count() {
+        // Summed rather than Stream::count, which may skip the elements of a sized stream and so the rows scanned
+        return answer("query.count", transactions -> transactions.mapToLong(transaction -> 1).sum());
+    }
+
+    /**
+     * Returns the sum of the amounts of the matching transactions
+     */
+    public BigDecimal getTotalAmount() {
+        return answer("query.totalAmount", transactions -> {
+            FixedPointSum totalAmount = new FixedPointSum();
+            transactions.forEachOrdered(totalAmount::add);
+            return totalAmount.toBigDecimal();
+        });
+    }
+
+    /**
+     * Returns every statistic of {@link TransactionDataFetcher} restricted to the matching transactions
+     */
+    public TransactionSummary getSummary() {
+        return answer("query.summary", transactions -> pool == null
+                ? TransactionSummary.of(transactions, TOP_TRANSACTIONS_LIMIT)
+                : TransactionSummary.of(transactions, TOP_TRANSACTIONS_LIMIT, pool));
+    }
+
+    /**
+     * Returns the k greatest matching transactions according to the comparator, greatest first
+     */
+    public List<Transaction> getTopTransactions(int k, Comparator<? super Transaction> comparator) {
+        return answer("query.topTransactions", transactions -> pool == null
+                ? transactions.collect(TopK.collector(k, comparator))
+                : pool.submit(() -> transactions.parallel().collect(TopK.collector(k, comparator))).join());
+    }
+
+    private <T> T answer(String query, Function<Stream<Transaction>, T> aggregation) {
+        long start = metrics.start();
+        try (Stream<Transaction> transactions = metrics.countRowsScanned(query, repository.findMatching(filter))) {
+            return aggregation.apply(transactions);
+        } finally {
+            metrics.record(query, start);
+        }
+    }
+
+    private static <T extends Comparable<? super T>> T greatest(T current, T bound) {
+        return current == null || (bound != null && bound.compareTo(current) > 0) ? bound : current;
+    }
+
+    private static <T extends Comparable<? super T>> T least(T current, T bound) {
+        return current == null || (bound != null && bound.compareTo(current) < 0) ? bound : current;
+    }
+}
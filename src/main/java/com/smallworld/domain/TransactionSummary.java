@@ -0,0 +1,62 @@
+package com.smallworld.domain;
+
+import com.smallworld.data.TransactionColumns;
+import com.smallworld.domain.entities.Transaction;
+import lombok.Value;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+/**
+ * Immutable snapshot of every statistic reported by {@link TransactionDataFetcher}, computed in a single
+ * scan of the transactions.
+ */
+@Value
+public class TransactionSummary {
+    BigDecimal totalAmount;
+    /** Highest transaction amount, null when there are no transactions */
+    BigDecimal maxAmount;
+    Map<String, BigDecimal> totalAmountBySender;
+    long uniqueClientCount;
+    Set<String> clientsWithOpenIssues;
+    Set<Integer> unsolvedIssueIds;
+    List<String> solvedIssueMessages;
+    /** Transactions with the highest amount sorted by amount descending */
+    List<Transaction> topTransactions;
+    /** Sender with the most total sent amount, null when there are no transactions */
+    String topSender;
+
+    public static TransactionSummary of(Stream<Transaction> transactionStream, int topTransactionsLimit) {
+        TransactionSummaryCollector collector = new TransactionSummaryCollector(topTransactionsLimit);
+        transactionStream.forEachOrdered(collector);
+
+        return collector.toSummary();
+    }
+
+    public static TransactionSummary of(TransactionColumns columns, int topTransactionsLimit) {
+        ColumnarSummaryCollector collector = new ColumnarSummaryCollector(columns, topTransactionsLimit);
+        collector.accept(0, columns.size());
+
+        return collector.toSummary();
+    }
+
+    /**
+     * Computes the summary on the pool, partitioning the stream and combining the partial statistics. The
+     * result is the same as the sequential one
+     */
+    public static TransactionSummary of(Stream<Transaction> transactionStream, int topTransactionsLimit, ForkJoinPool pool) {
+        return pool.submit(() -> transactionStream.parallel().collect(TransactionSummaryCollector.collector(topTransactionsLimit))).join();
+    }
+
+    /**
+     * Computes the summary on the pool, collecting chunks of rows separately and combining them in row order.
+     * The result is the same as the sequential one
+     */
+    public static TransactionSummary of(TransactionColumns columns, int topTransactionsLimit, ForkJoinPool pool) {
+        return pool.invoke(new ColumnarSummaryTask(columns, topTransactionsLimit, 0, columns.size())).toSummary();
+    }
+}
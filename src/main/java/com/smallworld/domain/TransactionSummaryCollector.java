@@ -0,0 +1,153 @@
+package com.smallworld.domain;
+
+import com.smallworld.data.ClientDictionary;
+import com.smallworld.domain.entities.ComplianceIssue;
+import com.smallworld.domain.entities.Transaction;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Collector;
+
+/**
+ * Accumulates every {@link TransactionSummary} statistic while visiting each transaction exactly once.
+ * Amounts are counted once per transaction and issue statistics once per compliance issue.
+ * <p>
+ * Client names are encoded once per visit into dense ids, so grouping and distinct counting work on ints.
+ */
+public class TransactionSummaryCollector implements Consumer<Transaction> {
+
+    private final FixedPointSum totalAmount = new FixedPointSum();
+    private BigDecimal maxAmount;
+    private final ClientDictionary clients = new ClientDictionary();
+    private FixedPointSum[] totalAmountBySender = new FixedPointSum[16];
+    private final BitSet clientsWithOpenIssues = new BitSet();
+    private final Set<Integer> unsolvedIssueIds = new HashSet<>();
+    private final List<String> solvedIssueMessages = new ArrayList<>();
+    private final TopK<Transaction> topTransactions;
+
+    public TransactionSummaryCollector(int topTransactionsLimit) {
+        this.topTransactions = new TopK<>(Math.max(topTransactionsLimit, 0), Comparator.comparing(Transaction::getAmount));
+    }
+
+    @Override
+    public void accept(Transaction transaction) {
+        BigDecimal amount = transaction.getAmount();
+        int senderId = clients.encode(transaction.getSenderFullName());
+        int beneficiaryId = clients.encode(transaction.getBeneficiaryFullName());
+
+        totalAmount.add(transaction);
+        if (maxAmount == null || amount.compareTo(maxAmount) > 0) {
+            maxAmount = amount;
+        }
+        addSenderAmount(senderId, transaction);
+
+        acceptIssue(senderId, beneficiaryId, transaction.getIssueId(), transaction.getIssueSolved(), transaction.getIssueMessage());
+        for (ComplianceIssue issue : transaction.getAdditionalIssues()) {
+            acceptIssue(senderId, beneficiaryId, issue.getIssueId(), issue.getIssueSolved(), issue.getIssueMessage());
+        }
+
+        topTransactions.offer(transaction);
+    }
+
+    private void addSenderAmount(int senderId, Transaction transaction) {
+        if (senderId >= totalAmountBySender.length) {
+            totalAmountBySender = Arrays.copyOf(totalAmountBySender, Math.max(senderId + 1, totalAmountBySender.length << 1));
+        }
+        if (totalAmountBySender[senderId] == null) {
+            totalAmountBySender[senderId] = new FixedPointSum();
+        }
+
+        totalAmountBySender[senderId].add(transaction);
+    }
+
+    private void acceptIssue(int senderId, int beneficiaryId, Integer issueId, Boolean issueSolved, String issueMessage) {
+        if (issueId == null) {
+            return;
+        }
+
+        if (issueSolved) {
+            solvedIssueMessages.add(issueMessage);
+        } else {
+            unsolvedIssueIds.add(issueId);
+            clientsWithOpenIssues.set(senderId);
+            clientsWithOpenIssues.set(beneficiaryId);
+        }
+    }
+
+    /**
+     * Merges the statistics of a partition that follows this one in encounter order
+     */
+    public TransactionSummaryCollector combine(TransactionSummaryCollector following) {
+        totalAmount.add(following.totalAmount);
+        if (following.maxAmount != null && (maxAmount == null || following.maxAmount.compareTo(maxAmount) > 0)) {
+            maxAmount = following.maxAmount;
+        }
+
+        int[] clientIds = new int[following.clients.size()];
+        for (int followingId = 0; followingId < clientIds.length; followingId++) {
+            clientIds[followingId] = clients.encode(following.clients.decode(followingId));
+        }
+        for (int followingId = 0; followingId < Math.min(clientIds.length, following.totalAmountBySender.length); followingId++) {
+            FixedPointSum senderTotal = following.totalAmountBySender[followingId];
+            if (senderTotal != null) {
+                int senderId = clientIds[followingId];
+                if (senderId >= totalAmountBySender.length) {
+                    totalAmountBySender = Arrays.copyOf(totalAmountBySender, Math.max(senderId + 1, totalAmountBySender.length << 1));
+                }
+                if (totalAmountBySender[senderId] == null) {
+                    totalAmountBySender[senderId] = new FixedPointSum();
+                }
+                totalAmountBySender[senderId].add(senderTotal);
+            }
+        }
+        following.clientsWithOpenIssues.stream().forEach(followingId -> clientsWithOpenIssues.set(clientIds[followingId]));
+
+        unsolvedIssueIds.addAll(following.unsolvedIssueIds);
+        solvedIssueMessages.addAll(following.solvedIssueMessages);
+        topTransactions.merge(following.topTransactions);
+
+        return this;
+    }
+
+    /**
+     * Collects the summary of a stream, parallel streams collect each partition separately and combine them
+     */
+    public static Collector<Transaction, TransactionSummaryCollector, TransactionSummary> collector(int topTransactionsLimit) {
+        return Collector.of(
+                () -> new TransactionSummaryCollector(topTransactionsLimit),
+                TransactionSummaryCollector::accept,
+                TransactionSummaryCollector::combine,
+                TransactionSummaryCollector::toSummary
+        );
+    }
+
+    public TransactionSummary toSummary() {
+        Map<String, BigDecimal> senderTotals = new HashMap<>();
+        int topSenderId = ClientDictionary.UNKNOWN;
+        for (int clientId = 0; clientId < Math.min(clients.size(), totalAmountBySender.length); clientId++) {
+            FixedPointSum senderTotal = totalAmountBySender[clientId];
+            if (senderTotal != null) {
+                senderTotals.put(clients.decode(clientId), senderTotal.toBigDecimal());
+                if (topSenderId == ClientDictionary.UNKNOWN || senderTotal.compareTo(totalAmountBySender[topSenderId]) > 0) {
+                    topSenderId = clientId;
+                }
+            }
+        }
+
+        Set<String> openIssueClients = new HashSet<>();
+        clientsWithOpenIssues.stream().forEach(clientId -> openIssueClients.add(clients.decode(clientId)));
+
+        return new TransactionSummary(
+                totalAmount.toBigDecimal(),
+                maxAmount,
+                Collections.unmodifiableMap(senderTotals),
+                clients.size(),
+                Collections.unmodifiableSet(openIssueClients),
+                Collections.unmodifiableSet(new HashSet<>(unsolvedIssueIds)),
+                Collections.unmodifiableList(new ArrayList<>(solvedIssueMessages)),
+                Collections.unmodifiableList(topTransactions.toList()),
+                topSenderId == ClientDictionary.UNKNOWN ? null : clients.decode(topSenderId)
+        );
+    }
+}
@@ -0,0 +1,14 @@
+package com.smallworld.domain.entities;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class ComplianceIssue {
+    private Integer issueId;
+    private Boolean issueSolved;
+    private String issueMessage;
+}
@@ -1,16 +1,41 @@
 package com.smallworld.domain.entities;
 
 
-import lombok.AllArgsConstructor;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
 
 import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
 
-@AllArgsConstructor
+/**
+ * A transaction together with its compliance issues. The first issue is held in the issue fields, as in the
+ * source data, and any further issue of the same mtn is kept in {@link #getAdditionalIssues()}.
+ * <p>
+ * The amount is also held as an unscaled long with its scale, converted once when it is set, so that sums
+ * read it through {@link #amountUnscaled()} without going through {@link BigDecimal}.
+ */
 @NoArgsConstructor
 @Data
 public class Transaction {
+    /**
+     * Orders transactions by amount, highest first, without allocating per comparison
+     */
+    public static final Comparator<Transaction> BY_AMOUNT_DESCENDING = Comparator.comparing(Transaction::getAmount).reversed();
+
+    /** Scale of an amount that is missing or whose unscaled value does not fit a long */
+    private static final int NO_LONG_SCALE = Integer.MIN_VALUE;
+    /** Most decimal digits an unscaled long always holds */
+    private static final int MAX_LONG_DIGITS = 18;
+
     private Integer mtn;
     private BigDecimal amount;
     private String senderFullName;
@@ -21,7 +46,176 @@ public class Transaction {
     private Boolean issueSolved;
     private String issueMessage;
 
+    @JsonIgnore
+    @Setter(AccessLevel.NONE)
+    private List<ComplianceIssue> additionalIssues;
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    private transient long amountUnscaled;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    private transient int amountScale = NO_LONG_SCALE;
+
+    public Transaction(Integer mtn, BigDecimal amount, String senderFullName, Integer senderAge,
+                       String beneficiaryFullName, Integer beneficiaryAge,
+                       Integer issueId, Boolean issueSolved, String issueMessage) {
+        this.mtn = mtn;
+        this.senderFullName = senderFullName;
+        this.senderAge = senderAge;
+        this.beneficiaryFullName = beneficiaryFullName;
+        this.beneficiaryAge = beneficiaryAge;
+        this.issueId = issueId;
+        this.issueSolved = issueSolved;
+        this.issueMessage = issueMessage;
+        setAmount(amount);
+    }
+
+    public void setAmount(BigDecimal amount) {
+        this.amount = amount;
+        amountScale = NO_LONG_SCALE;
+        // Amounts such as 1.5E+3 carry a negative scale and are held at scale 0
+        if (amount != null && amount.scale() >= -MAX_LONG_DIGITS) {
+            BigDecimal nonNegativeScaleAmount = amount.scale() < 0 ? amount.setScale(0) : amount;
+            BigInteger unscaled = nonNegativeScaleAmount.unscaledValue();
+            if (unscaled.bitLength() < Long.SIZE) {
+                amountUnscaled = unscaled.longValue();
+                amountScale = nonNegativeScaleAmount.scale();
+            }
+        }
+    }
+
+    /**
+     * Returns whether the amount is held as {@link #amountUnscaled()} and {@link #amountScale()}, false when
+     * there is no amount or its unscaled value does not fit a long
+     */
+    public boolean hasLongAmount() {
+        return amountScale != NO_LONG_SCALE;
+    }
+
+    /**
+     * Returns the amount multiplied by {@code 10^amountScale()}, valid when {@link #hasLongAmount()}
+     */
+    public long amountUnscaled() {
+        return amountUnscaled;
+    }
+
+    public int amountScale() {
+        return amountScale;
+    }
+
+    /**
+     * @deprecated allocates a new amount on every call, sort with {@link #BY_AMOUNT_DESCENDING} instead
+     */
+    @Deprecated
     public BigDecimal sortingDescAmount() {
         return amount.multiply(BigDecimal.valueOf(-1));
     }
+
+    /**
+     * Returns the issues besides the one held in the issue fields, an unmodifiable list that is replaced rather
+     * than changed when an issue is added or updated
+     */
+    public List<ComplianceIssue> getAdditionalIssues() {
+        return additionalIssues == null ? Collections.emptyList() : additionalIssues;
+    }
+
+    /**
+     * Returns all compliance issues of the transaction, empty when it has none. Builds a new list on every
+     * call, per-row code uses {@link #countOpenIssues()} and {@link #hasIssue(int)} instead
+     */
+    @JsonIgnore
+    public List<ComplianceIssue> getIssues() {
+        List<ComplianceIssue> issues = new ArrayList<>(getIssueCount());
+        if (issueId != null) {
+            issues.add(new ComplianceIssue(issueId, issueSolved, issueMessage));
+        }
+        issues.addAll(getAdditionalIssues());
+
+        return issues;
+    }
+
+    @JsonIgnore
+    public int getIssueCount() {
+        return (issueId == null ? 0 : 1) + (additionalIssues == null ? 0 : additionalIssues.size());
+    }
+
+    /**
+     * Counts the issues not marked as solved, without allocating
+     */
+    public int countOpenIssues() {
+        int openIssues = issueId != null && !Boolean.TRUE.equals(issueSolved) ? 1 : 0;
+        List<ComplianceIssue> issues = getAdditionalIssues();
+        for (int index = 0; index < issues.size(); index++) {
+            if (!Boolean.TRUE.equals(issues.get(index).getIssueSolved())) {
+                openIssues++;
+            }
+        }
+
+        return openIssues;
+    }
+
+    /**
+     * Returns whether the issue with the given id was raised on the transaction, without allocating
+     */
+    public boolean hasIssue(int issueId) {
+        if (this.issueId != null && this.issueId == issueId) {
+            return true;
+        }
+
+        List<ComplianceIssue> issues = getAdditionalIssues();
+        for (int index = 0; index < issues.size(); index++) {
+            Integer additionalIssueId = issues.get(index).getIssueId();
+            if (additionalIssueId != null && additionalIssueId == issueId) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Attaches another compliance issue of the same mtn, issues without an id are ignored
+     */
+    public void addIssue(Integer issueId, Boolean issueSolved, String issueMessage) {
+        if (issueId == null) {
+            return;
+        }
+
+        if (this.issueId == null) {
+            this.issueId = issueId;
+            this.issueSolved = issueSolved;
+            this.issueMessage = issueMessage;
+        } else {
+            // Copied on write, so lists handed out by getAdditionalIssues() never change under their readers
+            List<ComplianceIssue> issues = new ArrayList<>(getIssueCount());
+            issues.addAll(getAdditionalIssues());
+            issues.add(new ComplianceIssue(issueId, issueSolved, issueMessage));
+            additionalIssues = Collections.unmodifiableList(issues);
+        }
+    }
+
+    /**
+     * Sets whether the issue with the given id is solved, returns false when the transaction has no such issue
+     */
+    public boolean updateIssueSolved(int issueId, boolean issueSolved) {
+        if (this.issueId != null && this.issueId == issueId) {
+            this.issueSolved = issueSolved;
+            return true;
+        }
+
+        List<ComplianceIssue> issues = new ArrayList<>(getAdditionalIssues());
+        for (int index = 0; index < issues.size(); index++) {
+            ComplianceIssue issue = issues.get(index);
+            if (issue.getIssueId() != null && issue.getIssueId() == issueId) {
+                issues.set(index, new ComplianceIssue(issue.getIssueId(), issueSolved, issue.getIssueMessage()));
+                additionalIssues = Collections.unmodifiableList(issues);
+                return true;
+            }
+        }
+
+        return false;
+    }
 }
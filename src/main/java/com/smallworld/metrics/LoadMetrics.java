@@ -0,0 +1,29 @@
+package com.smallworld.metrics;
+
+/**
+ * Receives the duration and size of each repository load. {@link #DISABLED} records nothing and does not read
+ * the clock.
+ */
+public interface LoadMetrics {
+
+    LoadMetrics DISABLED = new LoadMetrics() {
+        @Override
+        public long start() {
+            return 0;
+        }
+
+        @Override
+        public void record(String source, long start, long bytes, long rows) {
+        }
+    };
+
+    /**
+     * Returns the start time to pass to {@link #record(String, long, long, long)}
+     */
+    long start();
+
+    /**
+     * Records a load of the source that began at {@code start} and parsed the given bytes into the given rows
+     */
+    void record(String source, long start, long bytes, long rows);
+}
@@ -0,0 +1,14 @@
+package com.smallworld.metrics;
+
+public interface LoadStatsMXBean {
+
+    long getLoadCount();
+
+    double getLastDurationMillis();
+
+    long getLastBytesParsed();
+
+    long getLastRowsLoaded();
+
+    double getLastRowsPerSecond();
+}
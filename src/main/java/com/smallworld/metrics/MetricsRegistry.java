@@ -0,0 +1,201 @@
+package com.smallworld.metrics;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Collects query and load metrics in memory and publishes them as JMX MBeans under the
+ * {@value #JMX_DOMAIN} domain and as a periodic text dump. Recording is lock-free.
+ */
+public class MetricsRegistry implements QueryMetrics, LoadMetrics {
+
+    public static final String JMX_DOMAIN = "com.smallworld";
+
+    private final Map<String, QueryStats> queries = new ConcurrentSkipListMap<>();
+    private final Map<String, LoadStats> loads = new ConcurrentSkipListMap<>();
+    private final Map<String, ObjectName> registeredNames = new ConcurrentHashMap<>();
+    private volatile MBeanServer mBeanServer;
+
+    @Override
+    public long start() {
+        return System.nanoTime();
+    }
+
+    @Override
+    public void record(String query, long start) {
+        queryStats(query).latencies.record(System.nanoTime() - start);
+    }
+
+    @Override
+    public void addRowsScanned(String query, long rows) {
+        queryStats(query).rowsScanned.add(rows);
+    }
+
+    @Override
+    public <T> Stream<T> countRowsScanned(String query, Stream<T> rows) {
+        LongAdder rowsScanned = queryStats(query).rowsScanned;
+        return rows.peek(row -> rowsScanned.increment());
+    }
+
+    @Override
+    public void record(String source, long start, long bytes, long rows) {
+        LoadStats stats = loads.computeIfAbsent(source, name -> register("Load", name, new LoadStats()));
+        stats.record(System.nanoTime() - start, bytes, rows);
+    }
+
+    private QueryStats queryStats(String query) {
+        QueryStats stats = queries.get(query);
+        return stats != null ? stats : queries.computeIfAbsent(query, name -> register("Query", name, new QueryStats()));
+    }
+
+    public Map<String, QueryStatsMXBean> getQueryStats() {
+        return Map.copyOf(queries);
+    }
+
+    public Map<String, LoadStatsMXBean> getLoadStats() {
+        return Map.copyOf(loads);
+    }
+
+    /**
+     * Registers the stats recorded so far, and any recorded later, with the platform MBean server
+     */
+    public void registerMBeans() {
+        mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        queries.forEach((name, stats) -> register("Query", name, stats));
+        loads.forEach((name, stats) -> register("Load", name, stats));
+    }
+
+    private <T> T register(String type, String name, T stats) {
+        MBeanServer server = mBeanServer;
+        if (server == null) {
+            return stats;
+        }
+
+        try {
+            ObjectName objectName = new ObjectName(JMX_DOMAIN + ":type=" + type + ",name=" + ObjectName.quote(name));
+            if (registeredNames.putIfAbsent(type + "/" + name, objectName) == null) {
+                server.registerMBean(stats, objectName);
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("Cannot register the " + type + " metrics of " + name, e);
+        }
+
+        return stats;
+    }
+
+    /**
+     * Writes one line per load and per query
+     */
+    public void dump(PrintStream out) {
+        StringBuilder text = new StringBuilder();
+        loads.forEach((name, stats) -> text.append(String.format("load  %-40s count=%d duration=%.1fms bytes=%d rows=%d rows/s=%.0f%n",
+                name, stats.getLoadCount(), stats.getLastDurationMillis(), stats.getLastBytesParsed(),
+                stats.getLastRowsLoaded(), stats.getLastRowsPerSecond())));
+        queries.forEach((name, stats) -> text.append(String.format("query %-40s count=%d rows=%d mean=%.1fus p50=%.1fus p99=%.1fus max=%.1fus%n",
+                name, stats.getCount(), stats.getRowsScanned(), stats.getMeanMicros(), stats.getP50Micros(),
+                stats.getP99Micros(), stats.getMaxMicros())));
+        out.print(text);
+        out.flush();
+    }
+
+    /**
+     * Dumps the metrics at the given interval from a daemon thread until the returned executor is shut down
+     */
+    public ScheduledExecutorService startPeriodicDump(PrintStream out, Duration interval) {
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-dump");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleAtFixedRate(() -> dump(out), interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+
+        return executor;
+    }
+
+    private static class QueryStats implements QueryStatsMXBean {
+        private final LatencyHistogram latencies = new LatencyHistogram();
+        private final LongAdder rowsScanned = new LongAdder();
+
+        @Override
+        public long getCount() {
+            return latencies.getCount();
+        }
+
+        @Override
+        public long getRowsScanned() {
+            return rowsScanned.sum();
+        }
+
+        @Override
+        public double getMeanMicros() {
+            return latencies.getMean() / 1_000;
+        }
+
+        @Override
+        public double getP50Micros() {
+            return latencies.getValueAtPercentile(50) / 1_000.0;
+        }
+
+        @Override
+        public double getP99Micros() {
+            return latencies.getValueAtPercentile(99) / 1_000.0;
+        }
+
+        @Override
+        public double getMaxMicros() {
+            return latencies.getMax() / 1_000.0;
+        }
+    }
+
+    private static class LoadStats implements LoadStatsMXBean {
+        private final LongAdder loadCount = new LongAdder();
+        private volatile long lastDurationNanos;
+        private volatile long lastBytes;
+        private volatile long lastRows;
+
+        private void record(long durationNanos, long bytes, long rows) {
+            loadCount.increment();
+            lastDurationNanos = durationNanos;
+            lastBytes = bytes;
+            lastRows = rows;
+        }
+
+        @Override
+        public long getLoadCount() {
+            return loadCount.sum();
+        }
+
+        @Override
+        public double getLastDurationMillis() {
+            return lastDurationNanos / 1_000_000.0;
+        }
+
+        @Override
+        public long getLastBytesParsed() {
+            return lastBytes;
+        }
+
+        @Override
+        public long getLastRowsLoaded() {
+            return lastRows;
+        }
+
+        @Override
+        public double getLastRowsPerSecond() {
+            long durationNanos = lastDurationNanos;
+            return durationNanos == 0 ? 0 : lastRows * 1_000_000_000.0 / durationNanos;
+        }
+    }
+}
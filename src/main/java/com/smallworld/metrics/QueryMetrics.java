@@ -0,0 +1,63 @@
+package com.smallworld.metrics;
+
+import java.util.function.LongConsumer;
+import java.util.stream.Stream;
+
+/**
+ * Receives the latency and the number of rows scanned of each query. {@link #DISABLED} records nothing and
+ * does not read the clock, so instrumented code costs nothing once the JIT has inlined it.
+ */
+public interface QueryMetrics {
+
+    QueryMetrics DISABLED = new QueryMetrics() {
+        @Override
+        public long start() {
+            return 0;
+        }
+
+        @Override
+        public void record(String query, long start) {
+        }
+
+        @Override
+        public void addRowsScanned(String query, long rows) {
+        }
+
+        @Override
+        public <T> Stream<T> countRowsScanned(String query, Stream<T> rows) {
+            return rows;
+        }
+
+        @Override
+        public LongConsumer rowsScanned(String query) {
+            return rows -> {
+            };
+        }
+    };
+
+    /**
+     * Returns the start time to pass to {@link #record(String, long)}
+     */
+    long start();
+
+    /**
+     * Records a call of the query that began at {@code start}
+     */
+    void record(String query, long start);
+
+    void addRowsScanned(String query, long rows);
+
+    /**
+     * Returns the stream, counting its elements as rows scanned by the query as they are consumed. Terminal
+     * operations that may skip the elements, such as {@link Stream#count()}, leave them uncounted
+     */
+    <T> Stream<T> countRowsScanned(String query, Stream<T> rows);
+
+    /**
+     * Returns a consumer adding the rows it is told of as rows scanned by the query, for lookups reporting
+     * their own count
+     */
+    default LongConsumer rowsScanned(String query) {
+        return rows -> addRowsScanned(query, rows);
+    }
+}
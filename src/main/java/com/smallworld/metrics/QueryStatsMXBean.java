@@ -0,0 +1,16 @@
+package com.smallworld.metrics;
+
+public interface QueryStatsMXBean {
+
+    long getCount();
+
+    long getRowsScanned();
+
+    double getMeanMicros();
+
+    double getP50Micros();
+
+    double getP99Micros();
+
+    double getMaxMicros();
+}
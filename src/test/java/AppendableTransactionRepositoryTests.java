@@ -0,0 +1,164 @@
+import com.smallworld.data.AppendableTransactionRepository;
+import com.smallworld.data.IndexedTransactionRepository;
+import com.smallworld.domain.TransactionDataFetcher;
+import com.smallworld.domain.entities.Transaction;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class AppendableTransactionRepositoryTests {
+
+    private static final int TRANSACTION_COUNT = 50_000;
+    private static final int THREADS = 4;
+
+    private static Transaction transaction(int mtn, String amount, String sender, String beneficiary,
+                                           Integer issueId, boolean issueSolved, String issueMessage) {
+        return new Transaction(mtn, new BigDecimal(amount), sender, 30, beneficiary, 40, issueId, issueSolved, issueMessage);
+    }
+
+    @Test
+    public void testConcurrentAppendsMatchIndexedRepository() throws Exception {
+        Random random = new Random(7);
+        List<Transaction> transactions = new ArrayList<>();
+        List<Transaction> rows = new ArrayList<>();
+        for (int mtn = 0; mtn < TRANSACTION_COUNT; mtn++) {
+            String amount = BigDecimal.valueOf(random.nextInt(1_000_000), random.nextInt(3)).toPlainString();
+            String sender = "Sender " + random.nextInt(200);
+            String beneficiary = "Beneficiary " + random.nextInt(200);
+            boolean hasIssue = random.nextInt(4) == 0;
+            boolean solved = random.nextBoolean();
+
+            Transaction transaction = transaction(mtn, amount, sender, beneficiary, hasIssue ? mtn : null, solved, hasIssue ? "Issue " + mtn : null);
+            rows.add(transaction(mtn, amount, sender, beneficiary, hasIssue ? mtn : null, solved, hasIssue ? "Issue " + mtn : null));
+            if (hasIssue && random.nextBoolean()) {
+                transaction.addIssue(TRANSACTION_COUNT + mtn, !solved, "Issue " + (TRANSACTION_COUNT + mtn));
+                rows.add(transaction(mtn, amount, sender, beneficiary, TRANSACTION_COUNT + mtn, !solved, "Issue " + (TRANSACTION_COUNT + mtn)));
+            }
+            transactions.add(transaction);
+        }
+
+        AppendableTransactionRepository appendableRepository = new AppendableTransactionRepository();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> appends = new ArrayList<>();
+            for (int thread = 0; thread < THREADS; thread++) {
+                List<Transaction> partition = rows.subList(thread * rows.size() / THREADS, (thread + 1) * rows.size() / THREADS);
+                appends.add(executor.submit(() -> partition.forEach(appendableRepository::add)));
+            }
+            for (Future<?> append : appends) {
+                append.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        TransactionDataFetcher expected = new TransactionDataFetcher(new IndexedTransactionRepository(transactions));
+        TransactionDataFetcher actual = new TransactionDataFetcher(appendableRepository);
+
+        Assert.assertEquals(TRANSACTION_COUNT, appendableRepository.getAll().size());
+        Assert.assertEquals(0, expected.getTotalTransactionAmount().compareTo(actual.getTotalTransactionAmount()));
+        Assert.assertEquals(0, expected.getTotalTransactionAmountSentBy("Sender 3").compareTo(actual.getTotalTransactionAmountSentBy("Sender 3")));
+        Assert.assertEquals(expected.getMaxTransactionAmount(), actual.getMaxTransactionAmount());
+        Assert.assertEquals(expected.countUniqueClients(), actual.countUniqueClients());
+        Assert.assertEquals(expected.getUnsolvedIssueIds(), new HashSet<>(actual.getUnsolvedIssueIds()));
+        Assert.assertEquals(expected.getTopSender(), actual.getTopSender());
+        for (int client = 0; client < 200; client++) {
+            Assert.assertEquals(expected.hasOpenComplianceIssues("Beneficiary " + client), actual.hasOpenComplianceIssues("Beneficiary " + client));
+        }
+
+        List<String> expectedMessages = new ArrayList<>(expected.getAllSolvedIssueMessages());
+        List<String> actualMessages = new ArrayList<>(actual.getAllSolvedIssueMessages());
+        Collections.sort(expectedMessages);
+        Collections.sort(actualMessages);
+        Assert.assertEquals(expectedMessages, actualMessages);
+    }
+
+    @Test
+    public void testAppendsAreVisibleToTheFetcher() {
+        AppendableTransactionRepository repository = new AppendableTransactionRepository();
+        TransactionDataFetcher fetcher = new TransactionDataFetcher(repository);
+
+        repository.add(transaction(1, "10.50", "Tom Shelby", "Alfie Solomons", null, true, null));
+        Assert.assertEquals(new BigDecimal("10.50"), fetcher.getTotalTransactionAmount());
+        Assert.assertEquals(1, fetcher.getTop3TransactionsByAmount().size());
+        Assert.assertFalse(fetcher.hasOpenComplianceIssues("Tom Shelby"));
+
+        repository.addAll(List.of(
+                transaction(2, "20", "Arthur Shelby", "Tom Shelby", 5, false, "Looks like money laundering"),
+                transaction(1, "10.50", "Tom Shelby", "Alfie Solomons", 6, true, "Never gonna give you up")
+        ));
+
+        Assert.assertEquals(new BigDecimal("30.50"), fetcher.getTotalTransactionAmount());
+        Assert.assertEquals("Arthur Shelby", fetcher.getTopSender());
+        Assert.assertEquals(2, fetcher.getTop3TransactionsByAmount().size());
+        Assert.assertTrue(fetcher.hasOpenComplianceIssues("Tom Shelby"));
+        Assert.assertEquals(Set.of(5), fetcher.getUnsolvedIssueIds());
+        Assert.assertEquals(List.of("Never gonna give you up"), fetcher.getAllSolvedIssueMessages());
+        Assert.assertEquals(6, (int) repository.findByIssueId(6).orElseThrow().getIssueId());
+        Assert.assertEquals(3, repository.version());
+    }
+
+    @Test
+    public void testIssueStateChanges() {
+        AppendableTransactionRepository repository = new AppendableTransactionRepository();
+        TransactionDataFetcher fetcher = new TransactionDataFetcher(repository);
+        repository.addAll(List.of(
+                transaction(1, "10", "Tom Shelby", "Alfie Solomons", 1, false, "Looks like money laundering"),
+                transaction(1, "10", "Tom Shelby", "Alfie Solomons", 2, false, "Don't let this transaction happen"),
+                transaction(2, "20", "Arthur Shelby", "Arthur Shelby", 3, true, "Never gonna give you up")
+        ));
+        Set<Integer> unsolvedIssueIds = fetcher.getUnsolvedIssueIds();
+        Assert.assertEquals(Set.of(1, 2), unsolvedIssueIds);
+        Assert.assertThrows(UnsupportedOperationException.class, () -> unsolvedIssueIds.remove(1));
+        Assert.assertTrue(fetcher.hasOpenComplianceIssues("Alfie Solomons"));
+
+        Assert.assertTrue(repository.markIssueSolved(1));
+        Assert.assertFalse(repository.markIssueSolved(1));
+        Assert.assertFalse(repository.markIssueSolved(42));
+        Assert.assertTrue(fetcher.hasOpenComplianceIssues("Tom Shelby"));
+
+        Assert.assertTrue(repository.markIssueSolved(2));
+        Assert.assertFalse(fetcher.hasOpenComplianceIssues("Tom Shelby"));
+        Assert.assertFalse(fetcher.hasOpenComplianceIssues("Alfie Solomons"));
+        Assert.assertEquals(Set.of(), fetcher.getUnsolvedIssueIds());
+        Assert.assertEquals("The set handed out earlier is a live view", Set.of(), unsolvedIssueIds);
+        Assert.assertEquals(List.of("Looks like money laundering", "Don't let this transaction happen", "Never gonna give you up"),
+                fetcher.getAllSolvedIssueMessages());
+        Assert.assertTrue(repository.findByIssueId(2).orElseThrow().getAdditionalIssues().get(0).getIssueSolved());
+
+        Assert.assertTrue(repository.reopenIssue(3));
+        Assert.assertTrue(fetcher.hasOpenComplianceIssues("Arthur Shelby"));
+        Assert.assertEquals(Set.of(3), fetcher.getUnsolvedIssueIds());
+        Assert.assertEquals(List.of("Looks like money laundering", "Don't let this transaction happen"), fetcher.getAllSolvedIssueMessages());
+        Assert.assertFalse(repository.findByIssueId(3).orElseThrow().getIssueSolved());
+        Assert.assertEquals(Set.of(3), fetcher.getSummary().getUnsolvedIssueIds());
+    }
+
+    @Test
+    public void testIssuesMatchTheSummaryOfAScan() {
+        AppendableTransactionRepository repository = new AppendableTransactionRepository();
+        TransactionDataFetcher fetcher = new TransactionDataFetcher(repository);
+        repository.addAll(List.of(
+                transaction(1, "10", "Tom Shelby", "Alfie Solomons", 1, true, null),
+                transaction(2, "20", "Arthur Shelby", "Arthur Shelby", 2, false, "Looks like money laundering"),
+                transaction(3, "30", "Grace Burgess", "Michael Gray", 3, true, "Never gonna give you up")
+        ));
+
+        List<String> solvedIssueMessages = fetcher.getAllSolvedIssueMessages();
+        Assert.assertEquals(Arrays.asList(null, "Never gonna give you up"), solvedIssueMessages);
+        Assert.assertEquals(fetcher.getSummary().getSolvedIssueMessages(), solvedIssueMessages);
+
+        Set<Integer> unsolvedIssueIds = fetcher.getUnsolvedIssueIds();
+        Assert.assertSame(unsolvedIssueIds, fetcher.getUnsolvedIssueIds());
+        Assert.assertTrue(repository.markIssueSolved(2));
+        Assert.assertEquals(Set.of(), unsolvedIssueIds);
+        Assert.assertEquals(Arrays.asList(null, "Looks like money laundering", "Never gonna give you up"),
+                fetcher.getAllSolvedIssueMessages());
+        Assert.assertEquals(fetcher.getSummary().getSolvedIssueMessages(), fetcher.getAllSolvedIssueMessages());
+    }
+}
@@ -0,0 +1,136 @@
+import com.smallworld.data.IndexedTransactionRepository;
+import com.smallworld.domain.*;
+import com.smallworld.domain.entities.Transaction;
+import com.smallworld.metrics.QueryMetrics;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+public class ApproximateAggregatesTests {
+
+    @Test
+    public void testHyperLogLogStaysWithinErrorBound() {
+        HyperLogLog sketch = new HyperLogLog(12);
+        int distinct = 200_000;
+        for (int value = 0; value < distinct; value++) {
+            sketch.add("Client " + value);
+            sketch.add("Client " + value / 2);
+        }
+
+        // The hash is fixed so the estimate is deterministic, four standard errors leave room for another hash
+        double relativeError = Math.abs(sketch.estimate() - distinct) / (double) distinct;
+        Assert.assertTrue("relative error " + relativeError, relativeError < 4 * sketch.getRelativeStandardError());
+    }
+
+    @Test
+    public void testHyperLogLogCountsSmallSetsAlmostExactly() {
+        HyperLogLog sketch = new HyperLogLog();
+        for (int value = 0; value < 100; value++) {
+            sketch.add("Client " + value % 40);
+        }
+
+        Assert.assertEquals(40, sketch.estimate());
+    }
+
+    @Test
+    public void testMergedHyperLogLogEqualsSketchOfUnion() {
+        HyperLogLog union = new HyperLogLog(10);
+        HyperLogLog first = new HyperLogLog(10);
+        HyperLogLog second = new HyperLogLog(10);
+        for (int value = 0; value < 50_000; value++) {
+            union.add("Client " + value);
+            (value % 3 == 0 ? first : second).add("Client " + value);
+        }
+
+        Assert.assertEquals(union.estimate(), first.merge(second).estimate());
+        Assert.assertThrows(IllegalArgumentException.class, () -> first.merge(new HyperLogLog(11)));
+    }
+
+    @Test
+    public void testSpaceSavingFindsHeavyHittersWithinErrorBound() {
+        Random random = new Random(20);
+        Map<String, BigDecimal> exact = new HashMap<>();
+        SpaceSavingSketch sketch = new SpaceSavingSketch(64);
+        SpaceSavingSketch first = new SpaceSavingSketch(64);
+        SpaceSavingSketch second = new SpaceSavingSketch(64);
+        for (int row = 0; row < 100_000; row++) {
+            // A few heavy senders among many light ones
+            String sender = random.nextInt(10) < 3 ? "Heavy " + random.nextInt(5) : "Light " + random.nextInt(20_000);
+            BigDecimal amount = BigDecimal.valueOf(random.nextInt(10_000), 2);
+            exact.merge(sender, amount, BigDecimal::add);
+            sketch.add(sender, amount);
+            (row % 2 == 0 ? first : second).add(sender, amount);
+        }
+        first.merge(second);
+
+        BigDecimal total = exact.values().stream().reduce(BigDecimal.ZERO, BigDecimal::add);
+        for (SpaceSavingSketch heavyHitters : List.of(sketch, first)) {
+            Assert.assertEquals(0, total.compareTo(heavyHitters.getTotalWeight()));
+            Assert.assertTrue(heavyHitters.getMaxError().compareTo(total.divide(BigDecimal.valueOf(64), 2, RoundingMode.CEILING)) <= 0);
+            Assert.assertEquals(Set.of("Heavy 0", "Heavy 1", "Heavy 2", "Heavy 3", "Heavy 4"), heavyHitters.top(5).keySet());
+            for (Map.Entry<String, BigDecimal> sender : heavyHitters.top(64).entrySet()) {
+                BigDecimal trueTotal = exact.get(sender.getKey());
+                Assert.assertTrue(sender.getValue().compareTo(trueTotal) >= 0);
+                Assert.assertTrue(sender.getValue().subtract(trueTotal).compareTo(heavyHitters.getMaxError()) <= 0);
+                Assert.assertTrue(heavyHitters.guaranteedWeight(sender.getKey()).compareTo(trueTotal) <= 0);
+            }
+        }
+    }
+
+    @Test
+    public void testApproximateFetcherMatchesExactFetcherOnFewClients() {
+        Random random = new Random(21);
+        List<Transaction> transactions = new ArrayList<>();
+        for (int mtn = 0; mtn < 10_000; mtn++) {
+            transactions.add(new Transaction(mtn, BigDecimal.valueOf(random.nextInt(1_000_000), 2),
+                    "Sender " + random.nextInt(50), 30, "Beneficiary " + random.nextInt(50), 40, null, true, null));
+        }
+        IndexedTransactionRepository repository = new IndexedTransactionRepository(transactions);
+
+        TransactionDataFetcher exact = new TransactionDataFetcher(repository);
+        for (ApproximateTransactionDataFetcher approximate : List.of(
+                new ApproximateTransactionDataFetcher(repository),
+                new ApproximateTransactionDataFetcher(repository, new ForkJoinPool(4), QueryMetrics.DISABLED, 14, 128))) {
+            // Fewer clients than counters and registers, so the estimates are exact
+            Assert.assertEquals(exact.countUniqueClients(), approximate.countUniqueClients());
+            Assert.assertEquals(exact.getTopSender(), approximate.getTopSender());
+            Assert.assertEquals(exact.getTopSenders(5), approximate.getTopSenders(5));
+            Assert.assertEquals(0, approximate.getApproximateSummary().getSenderAmountMaxError().signum());
+            Assert.assertEquals(exact.getTotalTransactionAmount(), approximate.getTotalTransactionAmount());
+        }
+    }
+
+    @Test
+    public void testApproximateFetcherNeverBuildsExactSummary() {
+        List<Transaction> transactions = new ArrayList<>();
+        Transaction withIssues = new Transaction(1, new BigDecimal("10.5"), "Tom Shelby", 30, "Aunt Polly", 40, 1, true, "Checked");
+        withIssues.addIssue(2, false, "Looks like fraud");
+        transactions.add(withIssues);
+        transactions.add(new Transaction(2, new BigDecimal("99"), "Aunt Polly", 40, "Tom Shelby", 30, 3, true, "Legit"));
+        transactions.add(new Transaction(3, new BigDecimal("0.5"), "Arthur Shelby", 35, "Tom Shelby", 30, null, true, null));
+        IndexedTransactionRepository repository = Mockito.spy(new IndexedTransactionRepository(transactions));
+
+        TransactionDataFetcher exact = new TransactionDataFetcher(new IndexedTransactionRepository(transactions));
+        for (ApproximateTransactionDataFetcher approximate : List.of(
+                new ApproximateTransactionDataFetcher(repository),
+                new ApproximateTransactionDataFetcher(repository, ForkJoinPool.commonPool(), QueryMetrics.DISABLED, 14, 128))) {
+            Mockito.clearInvocations(repository);
+
+            Assert.assertEquals(exact.getTotalTransactionAmount(), approximate.getTotalTransactionAmount());
+            Assert.assertEquals(exact.getMaxTransactionAmount(), approximate.getMaxTransactionAmount());
+            Assert.assertEquals(exact.countUniqueClients(), approximate.countUniqueClients());
+            Assert.assertEquals(exact.getUnsolvedIssueIds(), approximate.getUnsolvedIssueIds());
+            Assert.assertEquals(exact.getAllSolvedIssueMessages(), approximate.getAllSolvedIssueMessages());
+            Assert.assertEquals(exact.getTop3TransactionsByAmount(), approximate.getTop3TransactionsByAmount());
+            Assert.assertEquals(exact.getTopSender(), approximate.getTopSender());
+
+            // The sketches and the exact statistics come from one scan, a second would be the exact summary
+            Mockito.verify(repository, Mockito.times(1)).stream();
+        }
+    }
+}
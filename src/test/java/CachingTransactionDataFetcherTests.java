@@ -0,0 +1,128 @@
+import com.smallworld.data.AppendableTransactionRepository;
+import com.smallworld.data.IndexedTransactionRepository;
+import com.smallworld.data.TransactionRepository;
+import com.smallworld.domain.ApproximateTransactionDataFetcher;
+import com.smallworld.domain.CachingTransactionDataFetcher;
+import com.smallworld.domain.HyperLogLog;
+import com.smallworld.domain.SpaceSavingSketch;
+import com.smallworld.domain.entities.Transaction;
+import com.smallworld.metrics.MetricsRegistry;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.math.BigDecimal;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class CachingTransactionDataFetcherTests {
+
+    private static List<Transaction> transactions() {
+        return List.of(
+                new Transaction(1, new BigDecimal("10"), "Tom Shelby", 22, "Alfie Solomons", 33, 1, false, "Looks like money laundering"),
+                new Transaction(2, new BigDecimal("20"), "Arthur Shelby", 60, "Tom Shelby", 22, null, true, null)
+        );
+    }
+
+    @Test
+    public void testRepeatedQueriesAreServedFromCache() {
+        TransactionRepository repository = Mockito.spy(new IndexedTransactionRepository(transactions()));
+        CachingTransactionDataFetcher fetcher = new CachingTransactionDataFetcher(repository);
+
+        Assert.assertEquals(new BigDecimal("10"), fetcher.getTotalTransactionAmountSentBy("Tom Shelby"));
+        Assert.assertEquals(new BigDecimal("10"), fetcher.getTotalTransactionAmountSentBy("Tom Shelby"));
+        Assert.assertEquals(new BigDecimal("20"), fetcher.getTotalTransactionAmountSentBy("Arthur Shelby"));
+        Assert.assertEquals(fetcher.getTransactionsByBeneficiaryName(), fetcher.getTransactionsByBeneficiaryName());
+
+        Mockito.verify(repository, Mockito.times(1)).findBySender(Mockito.eq("Tom Shelby"), Mockito.any());
+        Mockito.verify(repository, Mockito.times(1)).groupByBeneficiary(Mockito.any());
+        Assert.assertEquals(2, fetcher.getHitCount());
+        Assert.assertEquals(3, fetcher.getMissCount());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedResultIsEvicted() {
+        CachingTransactionDataFetcher fetcher = new CachingTransactionDataFetcher(new IndexedTransactionRepository(transactions()), null, 2);
+
+        fetcher.hasOpenComplianceIssues("Tom Shelby");
+        fetcher.hasOpenComplianceIssues("Arthur Shelby");
+        fetcher.hasOpenComplianceIssues("Tom Shelby");
+        fetcher.hasOpenComplianceIssues("Alfie Solomons");
+        Assert.assertEquals(2, fetcher.getCachedResultCount());
+
+        fetcher.hasOpenComplianceIssues("Tom Shelby");
+        Assert.assertEquals(2, fetcher.getHitCount());
+        fetcher.hasOpenComplianceIssues("Arthur Shelby");
+        Assert.assertEquals(4, fetcher.getMissCount());
+    }
+
+    @Test
+    public void testResultsAreDroppedWhenRepositoryChanges() {
+        AppendableTransactionRepository repository = new AppendableTransactionRepository();
+        repository.addAll(transactions());
+        CachingTransactionDataFetcher fetcher = new CachingTransactionDataFetcher(repository);
+
+        Assert.assertEquals("Arthur Shelby", fetcher.getTopSender());
+        Assert.assertEquals(Long.valueOf(3), fetcher.countUniqueClients());
+        Assert.assertTrue(fetcher.hasOpenComplianceIssues("Alfie Solomons"));
+
+        repository.add(new Transaction(3, new BigDecimal("50"), "Aunt Polly", 34, "Tom Shelby", 22, null, true, null));
+        repository.markIssueSolved(1);
+
+        Assert.assertEquals("Aunt Polly", fetcher.getTopSender());
+        Assert.assertEquals(Long.valueOf(4), fetcher.countUniqueClients());
+        Assert.assertFalse(fetcher.hasOpenComplianceIssues("Alfie Solomons"));
+        Assert.assertEquals(0, fetcher.getHitCount());
+    }
+
+    @Test
+    public void testCachedCollectionsAreUnmodifiableSnapshots() {
+        AppendableTransactionRepository repository = new AppendableTransactionRepository();
+        repository.addAll(transactions());
+        CachingTransactionDataFetcher fetcher = new CachingTransactionDataFetcher(repository);
+
+        Set<Integer> unsolvedIssueIds = fetcher.getUnsolvedIssueIds();
+        Assert.assertEquals(Set.of(1), unsolvedIssueIds);
+        Assert.assertTrue(repository.markIssueSolved(1));
+        Assert.assertEquals(Set.of(1), unsolvedIssueIds);
+        Assert.assertEquals(Set.of(), fetcher.getUnsolvedIssueIds());
+
+        Map<String, List<Transaction>> transactionsByBeneficiary = fetcher.getTransactionsByBeneficiaryName();
+        Assert.assertThrows(UnsupportedOperationException.class, () -> transactionsByBeneficiary.remove("Tom Shelby"));
+        Assert.assertThrows(UnsupportedOperationException.class, () -> transactionsByBeneficiary.get("Tom Shelby").clear());
+        Assert.assertThrows(UnsupportedOperationException.class, () -> fetcher.getTopSenders(2).clear());
+        Assert.assertThrows(UnsupportedOperationException.class, () -> fetcher.getUnsolvedIssueIds().add(42));
+        Assert.assertEquals(1, fetcher.getTransactionsByBeneficiaryName().get("Tom Shelby").size());
+    }
+
+    @Test
+    public void testTopTransactionsAreNotCached() {
+        CachingTransactionDataFetcher fetcher = new CachingTransactionDataFetcher(new IndexedTransactionRepository(transactions()));
+
+        fetcher.getUnsolvedIssueIds();
+        for (int query = 0; query < 3; query++) {
+            Assert.assertEquals(2, (int) fetcher.getTopTransactions(1, Comparator.comparing(Transaction::getMtn)).get(0).getMtn());
+        }
+        Assert.assertEquals(1, fetcher.getCachedResultCount());
+        Assert.assertEquals(1, fetcher.getMissCount());
+    }
+
+    @Test
+    public void testMissesAreAnsweredByTheWrappedFetcher() {
+        MetricsRegistry metrics = new MetricsRegistry();
+        ApproximateTransactionDataFetcher approximate = Mockito.spy(new ApproximateTransactionDataFetcher(
+                new IndexedTransactionRepository(transactions()), null, metrics, HyperLogLog.DEFAULT_PRECISION, SpaceSavingSketch.DEFAULT_CAPACITY));
+        CachingTransactionDataFetcher fetcher = new CachingTransactionDataFetcher(approximate, CachingTransactionDataFetcher.DEFAULT_MAX_ENTRIES);
+
+        Assert.assertEquals(3L, (long) fetcher.countUniqueClients());
+        Assert.assertEquals(3L, (long) fetcher.countUniqueClients());
+        Assert.assertEquals("Arthur Shelby", fetcher.getTopSender());
+
+        Mockito.verify(approximate, Mockito.times(1)).countUniqueClients();
+        Assert.assertEquals(1, metrics.getQueryStats().get("countUniqueClients").getCount());
+        Assert.assertEquals(1, metrics.getQueryStats().get("getTopSender").getCount());
+        Assert.assertEquals(1, fetcher.getHitCount());
+    }
+}
@@ -0,0 +1,66 @@
+import com.smallworld.data.ClientDictionary;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ClientDictionaryTests {
+
+    @Test
+    public void testIdsAreDenseInOrderOfFirstAppearance() {
+        ClientDictionary clients = new ClientDictionary();
+
+        Assert.assertEquals(0, clients.encode("Tom Shelby"));
+        Assert.assertEquals(1, clients.encode("Alfie Solomons"));
+        Assert.assertEquals(0, clients.encode("Tom Shelby"));
+
+        Assert.assertEquals(2, clients.size());
+        Assert.assertEquals("Alfie Solomons", clients.decode(1));
+        Assert.assertEquals(ClientDictionary.UNKNOWN, clients.lookup("Arthur Shelby"));
+    }
+
+    @Test
+    public void testEncodeGrowsPastInitialCapacity() {
+        ClientDictionary clients = new ClientDictionary();
+
+        for (int client = 0; client < 1000; client++) {
+            Assert.assertEquals(client, clients.encode("Client " + client));
+        }
+
+        Assert.assertEquals(1000, clients.size());
+        for (int client = 0; client < 1000; client++) {
+            Assert.assertEquals("Client " + client, clients.decode(client));
+            Assert.assertEquals(client, clients.lookup("Client " + client));
+        }
+    }
+
+    @Test
+    public void testInternGrowsPastInitialCapacity() {
+        ClientDictionary clients = new ClientDictionary();
+
+        for (int client = 0; client < 1000; client++) {
+            String name = "Client " + client;
+            Assert.assertSame(name, clients.intern(name));
+        }
+
+        Assert.assertEquals(1000, clients.size());
+    }
+
+    @Test
+    public void testInternReturnsCanonicalInstance() {
+        ClientDictionary clients = new ClientDictionary();
+        String first = new String("Grace Burgess");
+        String second = new String("Grace Burgess");
+
+        Assert.assertSame(first, clients.intern(first));
+        Assert.assertSame(first, clients.intern(second));
+        Assert.assertNull(clients.intern(null));
+        Assert.assertEquals(1, clients.size());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testDecodeRejectsUnknownId() {
+        ClientDictionary clients = new ClientDictionary();
+        clients.encode("Tom Shelby");
+
+        clients.decode(1);
+    }
+}
@@ -0,0 +1,117 @@
+import com.smallworld.domain.FixedPointSum;
+import com.smallworld.domain.entities.Transaction;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+public class FixedPointSumTests {
+
+    @Test
+    public void testAddAmountsOfDifferentScales() {
+        FixedPointSum sum = new FixedPointSum();
+
+        sum.add(new BigDecimal("430.2"));
+        sum.add(new BigDecimal("97.66"));
+        sum.add(new BigDecimal("985"));
+
+        Assert.assertEquals(new BigDecimal("1512.86"), sum.toBigDecimal());
+    }
+
+    @Test
+    public void testOverflowFallsBackToBigDecimal() {
+        FixedPointSum sum = new FixedPointSum(2);
+
+        sum.add(Long.MAX_VALUE, 2);
+        sum.add(new BigDecimal("0.01"));
+        sum.add(Long.MAX_VALUE, 2);
+
+        BigDecimal expected = BigDecimal.valueOf(Long.MAX_VALUE, 2).multiply(BigDecimal.valueOf(2)).add(new BigDecimal("0.01"));
+        Assert.assertEquals(0, expected.compareTo(sum.toBigDecimal()));
+    }
+
+    @Test
+    public void testCompareAcrossScales() {
+        FixedPointSum smaller = new FixedPointSum();
+        smaller.add(new BigDecimal("10.5"));
+
+        FixedPointSum larger = new FixedPointSum();
+        larger.add(new BigDecimal("10.55"));
+
+        Assert.assertTrue(smaller.compareTo(larger) < 0);
+        Assert.assertTrue(larger.compareTo(smaller) > 0);
+
+        smaller.add(new BigDecimal("0.05"));
+        Assert.assertEquals(0, smaller.compareTo(larger));
+    }
+
+    @Test
+    public void testAddAmountsWithNegativeScale() {
+        FixedPointSum sum = new FixedPointSum();
+
+        sum.add(new BigDecimal("1.5E+3"));
+        sum.add(new BigDecimal("0.25"));
+
+        Assert.assertEquals(new BigDecimal("1500.25"), sum.toBigDecimal());
+    }
+
+    @Test
+    public void testAddAmountsBeyondLongPrecision() {
+        FixedPointSum sum = new FixedPointSum();
+
+        sum.add(new BigDecimal("123456789012345678901234.5"));
+        sum.add(new BigDecimal("1E+30"));
+        sum.add(new BigDecimal("0.5"));
+
+        Assert.assertEquals(0, new BigDecimal("1000000123456789012345678901235").compareTo(sum.toBigDecimal()));
+    }
+
+    @Test
+    public void testAddTransactionsFromTheirUnscaledAmount() {
+        List<Transaction> transactions = new ArrayList<>();
+        for (String amount : List.of("430.2", "1.5E+3", "-0.125", "123456789012345678901234.5", "97")) {
+            transactions.add(new Transaction(1, new BigDecimal(amount), "Tom Shelby", 22, "Alfie Solomons", 33, null, true, null));
+        }
+        transactions.get(4).setAmount(new BigDecimal("97.66"));
+
+        FixedPointSum sum = new FixedPointSum();
+        BigDecimal expected = BigDecimal.ZERO;
+        for (Transaction transaction : transactions) {
+            sum.add(transaction);
+            expected = expected.add(transaction.getAmount());
+        }
+
+        Assert.assertEquals(0, expected.compareTo(sum.toBigDecimal()));
+        Assert.assertEquals(1500, transactions.get(1).amountUnscaled());
+        Assert.assertFalse(transactions.get(3).hasLongAmount());
+        Assert.assertEquals(9766, transactions.get(4).amountUnscaled());
+    }
+
+    @Test
+    public void testAddingTransactionsDoesNotAllocate() {
+        Assume.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+
+        Transaction[] transactions = new Transaction[10_000];
+        for (int index = 0; index < transactions.length; index++) {
+            transactions[index] = new Transaction(index, BigDecimal.valueOf(index * 1000L + 99, 2), "Tom Shelby", 22, "Alfie Solomons", 33, null, true, null);
+        }
+        FixedPointSum sum = new FixedPointSum();
+
+        long threadId = Thread.currentThread().getId();
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        for (Transaction transaction : transactions) {
+            sum.add(transaction);
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        // A BigInteger per add would take more than 200 KB
+        Assert.assertTrue("Allocated " + allocated + " bytes", allocated < transactions.length);
+        Assert.assertEquals(new BigDecimal("499959900.00"), sum.toBigDecimal());
+    }
+}
@@ -0,0 +1,118 @@
+import com.smallworld.data.ColumnarTransactionRepository;
+import com.smallworld.data.IndexedTransactionRepository;
+import com.smallworld.data.TransactionFilter;
+import com.smallworld.data.TransactionRepository;
+import com.smallworld.domain.TransactionDataFetcher;
+import com.smallworld.domain.entities.Transaction;
+import com.smallworld.metrics.LatencyHistogram;
+import com.smallworld.metrics.MetricsRegistry;
+import com.smallworld.metrics.QueryStatsMXBean;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.math.BigDecimal;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class MetricsRegistryTests {
+
+    @Test
+    public void testHistogramPercentilesAreWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 100_000; value++) {
+            histogram.record(value * 1_000);
+        }
+
+        Assert.assertEquals(100_000, histogram.getCount());
+        Assert.assertEquals(100_000_000, histogram.getMax());
+        Assert.assertEquals(50_000_500, histogram.getMean(), 1);
+        Assert.assertEquals(50_000_000, histogram.getValueAtPercentile(50), 50_000_000 * 0.035);
+        Assert.assertEquals(99_000_000, histogram.getValueAtPercentile(99), 99_000_000 * 0.035);
+        Assert.assertEquals(100_000_000, histogram.getValueAtPercentile(100));
+        Assert.assertEquals(0, new LatencyHistogram().getValueAtPercentile(99));
+    }
+
+    @Test
+    public void testFetcherReportsLatenciesAndRowsScanned() {
+        List<Transaction> transactions = List.of(
+                new Transaction(1, new BigDecimal("10"), "Tom Shelby", 22, "Alfie Solomons", 33, 1, false, "Looks like money laundering"),
+                new Transaction(2, new BigDecimal("20"), "Arthur Shelby", 60, "Tom Shelby", 22, null, true, null)
+        );
+        MetricsRegistry metrics = new MetricsRegistry();
+        TransactionDataFetcher fetcher = new TransactionDataFetcher(new IndexedTransactionRepository(transactions), null, metrics);
+
+        fetcher.getTotalTransactionAmount();
+        fetcher.getTopSender();
+        fetcher.getTopSender();
+        fetcher.getTopTransactions(1, Comparator.comparing(Transaction::getAmount));
+
+        QueryStatsMXBean totalAmount = metrics.getQueryStats().get("getTotalTransactionAmount");
+        Assert.assertEquals(1, totalAmount.getCount());
+        Assert.assertEquals(2, totalAmount.getRowsScanned());
+        Assert.assertEquals(2, metrics.getQueryStats().get("getTopSender").getCount());
+        Assert.assertEquals(0, metrics.getQueryStats().get("getTopSender").getRowsScanned());
+        Assert.assertEquals(2, metrics.getQueryStats().get("getTopTransactions").getRowsScanned());
+
+        ByteArrayOutputStream dump = new ByteArrayOutputStream();
+        metrics.dump(new PrintStream(dump));
+        Assert.assertTrue(dump.toString().contains("getTopSender"));
+    }
+
+    @Test
+    public void testRepositoryLookupsReportTheRowsTheyScan() {
+        List<Transaction> transactions = List.of(
+                new Transaction(1, new BigDecimal("10"), "Tom Shelby", 22, "Alfie Solomons", 33, 1, false, "Looks like money laundering"),
+                new Transaction(2, new BigDecimal("20"), "Arthur Shelby", 60, "Tom Shelby", 22, 2, false, "Never gonna give you up"),
+                new Transaction(3, new BigDecimal("30"), "Tom Shelby", 22, "Arthur Shelby", 60, null, true, null)
+        );
+        TransactionRepository scanned = () -> transactions;
+        MetricsRegistry columnarMetrics = new MetricsRegistry();
+        MetricsRegistry indexedMetrics = new MetricsRegistry();
+        MetricsRegistry scannedMetrics = new MetricsRegistry();
+        TransactionDataFetcher columnar = new TransactionDataFetcher(new ColumnarTransactionRepository(scanned), null, columnarMetrics);
+        TransactionDataFetcher indexed = new TransactionDataFetcher(new IndexedTransactionRepository(transactions), null, indexedMetrics);
+
+        for (TransactionDataFetcher fetcher : List.of(columnar, indexed)) {
+            Assert.assertTrue(fetcher.hasOpenComplianceIssues("Tom Shelby"));
+            Assert.assertEquals(3, fetcher.getTransactionsByBeneficiaryName().size());
+            Assert.assertEquals(Integer.valueOf(2), fetcher.getTransactionByIssueId(2).orElseThrow().getMtn());
+            Assert.assertTrue(fetcher.getTransactionByIssueId(99).isEmpty());
+        }
+        Assert.assertEquals(0, new TransactionDataFetcher(scanned, null, scannedMetrics)
+                .getTotalTransactionAmountSentBy("Tom Shelby").compareTo(new BigDecimal("40")));
+
+        Assert.assertEquals(3, columnarMetrics.getQueryStats().get("hasOpenComplianceIssues").getRowsScanned());
+        Assert.assertEquals(3, columnarMetrics.getQueryStats().get("getTransactionsByBeneficiaryName").getRowsScanned());
+        Assert.assertEquals(2 + 3, columnarMetrics.getQueryStats().get("getTransactionByIssueId").getRowsScanned());
+        Assert.assertEquals(0, indexedMetrics.getQueryStats().get("hasOpenComplianceIssues").getRowsScanned());
+        Assert.assertEquals(0, indexedMetrics.getQueryStats().get("getTransactionsByBeneficiaryName").getRowsScanned());
+        Assert.assertEquals(0, indexedMetrics.getQueryStats().get("getTransactionByIssueId").getRowsScanned());
+        Assert.assertEquals(3, scannedMetrics.getQueryStats().get("getTotalTransactionAmountSentBy").getRowsScanned());
+    }
+
+    @Test
+    public void testQueryCountReportsRowsScannedOfASizedStream() {
+        List<Transaction> transactions = List.of(
+                new Transaction(1, new BigDecimal("10"), "Tom Shelby", 22, "Alfie Solomons", 33, 1, false, "Looks like money laundering"),
+                new Transaction(2, new BigDecimal("20"), "Arthur Shelby", 60, "Tom Shelby", 22, null, true, null)
+        );
+        TransactionRepository repository = new TransactionRepository() {
+            @Override
+            public List<Transaction> getAll() {
+                return transactions;
+            }
+
+            @Override
+            public Stream<Transaction> findMatching(TransactionFilter filter) {
+                return transactions.stream();
+            }
+        };
+        MetricsRegistry metrics = new MetricsRegistry();
+
+        Assert.assertEquals(2, new TransactionDataFetcher(repository, null, metrics).query().count());
+        Assert.assertEquals(2, metrics.getQueryStats().get("query.count").getRowsScanned());
+    }
+}
@@ -0,0 +1,97 @@
+import com.smallworld.data.ColumnarTransactionRepository;
+import com.smallworld.data.IndexedTransactionRepository;
+import com.smallworld.data.TransactionRepository;
+import com.smallworld.domain.TransactionDataFetcher;
+import com.smallworld.domain.TransactionSummary;
+import com.smallworld.domain.entities.Transaction;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+
+public class ParallelTransactionDataFetcherTests {
+
+    private static final int TRANSACTION_COUNT = 200_000;
+
+    private static ForkJoinPool pool;
+    private static TransactionRepository repository;
+
+    @BeforeClass
+    public static void setUp() {
+        pool = new ForkJoinPool(4);
+
+        Random random = new Random(42);
+        List<Transaction> transactions = new ArrayList<>(TRANSACTION_COUNT);
+        for (int mtn = 0; mtn < TRANSACTION_COUNT; mtn++) {
+            Transaction transaction = new Transaction(
+                    mtn,
+                    BigDecimal.valueOf(random.nextInt(1_000_000), random.nextInt(3)),
+                    "Sender " + random.nextInt(500), 20 + random.nextInt(50),
+                    "Beneficiary " + random.nextInt(500), 20 + random.nextInt(50),
+                    null, true, null
+            );
+            if (random.nextInt(4) == 0) {
+                transaction.addIssue(mtn, random.nextBoolean(), "Issue " + random.nextInt(10));
+                if (random.nextBoolean()) {
+                    transaction.addIssue(TRANSACTION_COUNT + mtn, random.nextBoolean(), "Issue " + random.nextInt(10));
+                }
+            }
+            transactions.add(transaction);
+        }
+        repository = new IndexedTransactionRepository(transactions);
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        pool.shutdown();
+    }
+
+    @Test
+    public void testParallelSummaryMatchesSequential() {
+        TransactionSummary sequential = new TransactionDataFetcher(repository).getSummary();
+        TransactionSummary parallel = new TransactionDataFetcher(repository, pool).getSummary();
+
+        Assert.assertEquals(sequential, parallel);
+    }
+
+    @Test
+    public void testParallelColumnarSummaryMatchesSequential() {
+        ColumnarTransactionRepository columnarRepository = new ColumnarTransactionRepository(repository);
+
+        TransactionSummary sequential = new TransactionDataFetcher(columnarRepository).getSummary();
+        TransactionSummary parallel = new TransactionDataFetcher(columnarRepository, pool).getSummary();
+
+        Assert.assertEquals(sequential, parallel);
+        Assert.assertEquals(0, new TransactionDataFetcher(repository).getTotalTransactionAmount().compareTo(parallel.getTotalAmount()));
+    }
+
+    @Test
+    public void testParallelTopTransactionsMatchSequential() {
+        Comparator<Transaction> byAmount = Comparator.comparing(Transaction::getAmount);
+
+        List<Transaction> sequential = new TransactionDataFetcher(repository).getTopTransactions(100, byAmount);
+        List<Transaction> parallel = new TransactionDataFetcher(repository, pool).getTopTransactions(100, byAmount);
+
+        Assert.assertEquals(sequential, parallel);
+    }
+
+    @Test
+    public void testCloseShutsDownOnlyAnOwnedPool() {
+        TransactionDataFetcher owning = TransactionDataFetcher.withParallelism(repository, 2);
+        Assert.assertNotNull(owning.getSummary());
+        owning.close();
+        Assert.assertThrows(RejectedExecutionException.class, () -> owning.getTopTransactions(1, Comparator.comparing(Transaction::getAmount)));
+
+        TransactionDataFetcher borrowing = new TransactionDataFetcher(repository, pool);
+        borrowing.close();
+        Assert.assertFalse(pool.isShutdown());
+    }
+}
@@ -0,0 +1,109 @@
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smallworld.data.MappedTransactionRepository;
+import com.smallworld.data.TransactionJsonRepository;
+import com.smallworld.data.TransactionJsonStreamRepository;
+import com.smallworld.data.TransactionSnapshot;
+import com.smallworld.domain.entities.Transaction;
+import com.smallworld.metrics.LoadMetrics;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class ParallelTransactionJsonLoadingTests {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Rows of about 250 bytes, so that 100 000 of them span several 8 MB chunks. Messages contain brackets,
+     * braces, quotes and escapes to check that chunks are only cut between objects
+     */
+    private static List<Transaction> rows(int count, int firstMtn) {
+        Random random = new Random(firstMtn);
+        List<Transaction> rows = new ArrayList<>(count);
+        for (int row = 0; row < count; row++) {
+            int mtn = firstMtn + row - (random.nextInt(10) == 0 ? random.nextInt(Math.max(1, row)) : 0);
+            rows.add(new Transaction(mtn, BigDecimal.valueOf(random.nextInt(100_000), 2),
+                    "Sender " + random.nextInt(100), 30, "Beneficiary " + random.nextInt(100), 40,
+                    firstMtn + row, random.nextBoolean(), "Issue {\"" + row + "\"} [\\] },{"));
+        }
+
+        return rows;
+    }
+
+    private Path write(String name, List<Transaction> rows) throws IOException {
+        Path file = folder.getRoot().toPath().resolve(name);
+        OBJECT_MAPPER.writerWithDefaultPrettyPrinter().writeValue(file.toFile(), rows);
+        return file;
+    }
+
+    @Test
+    public void testLargeFileIsParsedInChunksInOrder() throws IOException {
+        Path file = write("transactions.json", rows(100_000, 0));
+
+        List<Transaction> sequential = new TransactionJsonRepository(file.toString()).getAll();
+        List<Transaction> parallel = new TransactionJsonRepository(file.toString(), 4, LoadMetrics.DISABLED).getAll();
+
+        Assert.assertEquals(sequential, parallel);
+    }
+
+    @Test
+    public void testDirectoryAndGlobSourcesAreMergedInFileNameOrder() throws IOException {
+        List<Transaction> allRows = new ArrayList<>();
+        for (int shard = 2; shard >= 0; shard--) {
+            List<Transaction> shardRows = rows(1_000, shard * 1_000_000);
+            write("shard-" + shard + ".json", shardRows);
+            allRows.addAll(0, shardRows);
+        }
+        write("shard-0.txt", rows(10, 5_000_000));
+        Path concatenated = folder.newFolder("single").toPath().resolve("all.json");
+        OBJECT_MAPPER.writeValue(concatenated.toFile(), allRows);
+
+        List<Transaction> expected = new TransactionJsonRepository(concatenated.toString()).getAll();
+        Assert.assertEquals(expected, new TransactionJsonRepository(folder.getRoot().toString(), 3, LoadMetrics.DISABLED).getAll());
+        Assert.assertEquals(expected, new TransactionJsonRepository(folder.getRoot().toPath().resolve("shard-*.json").toString(), 1, LoadMetrics.DISABLED).getAll());
+    }
+
+    @Test(expected = IOException.class)
+    public void testSourceThatIsNotAnArrayIsRejected() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("object.json");
+        Files.writeString(file, "{\"mtn\": 1}");
+
+        new TransactionJsonRepository(file.toString(), 2, LoadMetrics.DISABLED);
+    }
+
+    @Test
+    public void testEmptySourceIsRejected() throws IOException {
+        Path empty = folder.getRoot().toPath().resolve("empty.json");
+        Files.writeString(empty, "");
+        Path blank = folder.getRoot().toPath().resolve("blank.json");
+        Files.writeString(blank, " \n\t ");
+
+        Assert.assertThrows(IOException.class, () -> new TransactionJsonRepository(empty.toString(), 2, LoadMetrics.DISABLED));
+        Assert.assertThrows(IOException.class, () -> new TransactionJsonRepository(blank.toString(), 2, LoadMetrics.DISABLED));
+    }
+
+    @Test
+    public void testSingleFileStoragesRejectDirectoriesAndGlobs() throws IOException {
+        write("shard-0.json", rows(10, 0));
+        String directory = folder.getRoot().toString();
+        String glob = folder.getRoot().toPath().resolve("shard-*.json").toString();
+
+        Assert.assertThrows(IllegalArgumentException.class, () -> TransactionSnapshot.load(directory));
+        Assert.assertThrows(IllegalArgumentException.class, () -> TransactionSnapshot.load(glob));
+        Assert.assertThrows(IllegalArgumentException.class, () -> MappedTransactionRepository.load(glob));
+        Assert.assertThrows(IllegalArgumentException.class, () -> new TransactionJsonStreamRepository(directory));
+        Assert.assertEquals(10, new TransactionJsonRepository(glob, 2, LoadMetrics.DISABLED).getAll().size());
+    }
+}
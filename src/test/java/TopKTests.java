@@ -0,0 +1,48 @@
+import com.smallworld.domain.TopK;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class TopKTests {
+
+    @Test
+    public void testKeepsGreatestElementsDescending() {
+        TopK<Integer> topK = new TopK<>(3, Comparator.naturalOrder());
+        List.of(5, 1, 9, 3, 7, 2).forEach(topK::offer);
+
+        Assert.assertEquals(List.of(9, 7, 5), topK.toList());
+    }
+
+    @Test
+    public void testEqualElementsKeepEncounterOrder() {
+        TopK<String> topK = new TopK<>(2, Comparator.comparing(String::length));
+        List.of("b", "aa", "cc", "dd").forEach(topK::offer);
+
+        Assert.assertEquals(List.of("aa", "cc"), topK.toList());
+    }
+
+    @Test
+    public void testParallelCollectionMatchesSequential() {
+        Comparator<Integer> byLastDigit = Comparator.comparing(value -> value % 10);
+        List<Integer> values = IntStream.range(0, 100_000).map(value -> (value * 7919) % 100_003).boxed().collect(Collectors.toList());
+
+        List<Integer> sequential = values.stream().collect(TopK.collector(100, byLastDigit));
+        List<Integer> parallel = values.parallelStream().collect(TopK.collector(100, byLastDigit));
+        List<Integer> sorted = values.stream().sorted(byLastDigit.reversed()).limit(100).collect(Collectors.toList());
+
+        Assert.assertEquals(sorted, sequential);
+        Assert.assertEquals(sorted, parallel);
+    }
+
+    @Test
+    public void testZeroKeepsNothing() {
+        TopK<Integer> topK = new TopK<>(0, Comparator.naturalOrder());
+        topK.offer(1);
+
+        Assert.assertTrue(topK.toList().isEmpty());
+    }
+}
@@ -1,3 +1,5 @@
+import com.smallworld.data.ColumnarTransactionRepository;
+import com.smallworld.data.IndexedTransactionRepository;
 import com.smallworld.data.TransactionJsonRepository;
 import com.smallworld.data.TransactionRepository;
 import com.smallworld.domain.TransactionDataFetcher;
@@ -11,7 +13,7 @@ import java.util.*;
 
 public class TransactionDataFetcherTests {
 
-    private final TransactionRepository transactionRepository = Mockito.mock(TransactionJsonRepository.class);
+    private final TransactionRepository transactionRepository = Mockito.mock(TransactionJsonRepository.class, Mockito.CALLS_REAL_METHODS);
     private final TransactionDataFetcher transactionDataFetcher = new TransactionDataFetcher(transactionRepository);
 
     @Test
@@ -210,4 +212,155 @@ public class TransactionDataFetcherTests {
             Assert.assertEquals(expectedTopTransactions.get(i), topTransactions.get(i));
         }
     }
+
+    @Test
+    public void testReportQueriesShareSingleScan() {
+        ArrayList<Transaction> transactions = new ArrayList<>();
+
+        transactions.add(new Transaction(1, BigDecimal.ONE, "Mehran Kamal", 20, "Ali", 20, 32, true, "Legit transaction"));
+        transactions.add(new Transaction(3, BigDecimal.TEN, "Mehran Kamal", 20, "Ali", 20, 35, false, "Looks like fraud"));
+        transactions.add(new Transaction(4, BigDecimal.TEN, "Hamza", 20, "Mehran", 20, null, true, null));
+        Mockito.when(transactionRepository.getAll()).thenReturn(transactions);
+
+        Assert.assertEquals(0, transactionDataFetcher.getTotalTransactionAmount().compareTo(BigDecimal.valueOf(21)));
+        Assert.assertEquals(0, transactionDataFetcher.getMaxTransactionAmount().compareTo(BigDecimal.TEN));
+        Assert.assertEquals(Long.valueOf(4), transactionDataFetcher.countUniqueClients());
+        Assert.assertEquals(Set.of(35), transactionDataFetcher.getUnsolvedIssueIds());
+        Assert.assertEquals("Mehran Kamal", transactionDataFetcher.getTopSender());
+
+        Mockito.verify(transactionRepository, Mockito.times(1)).stream();
+    }
+
+    @Test
+    public void testTransactionWithSeveralIssuesIsCountedOnce() {
+        Transaction transactionWithIssues = new Transaction(1, BigDecimal.TEN, "Mehran Kamal", 20, "Ali", 20, 32, true, "Legit transaction");
+        transactionWithIssues.addIssue(35, false, "Looks like fraud");
+
+        ArrayList<Transaction> transactions = new ArrayList<>();
+        transactions.add(transactionWithIssues);
+        transactions.add(new Transaction(4, BigDecimal.ONE, "Hamza", 20, "Mehran", 20, null, true, null));
+        Mockito.when(transactionRepository.getAll()).thenReturn(transactions);
+
+        Assert.assertEquals(0, transactionDataFetcher.getTotalTransactionAmount().compareTo(BigDecimal.valueOf(11)));
+        Assert.assertEquals(0, transactionDataFetcher.getTotalTransactionAmountSentBy("Mehran Kamal").compareTo(BigDecimal.TEN));
+        Assert.assertEquals(List.of(transactionWithIssues, transactions.get(1)), transactionDataFetcher.getTop3TransactionsByAmount());
+        Assert.assertEquals(Set.of(35), transactionDataFetcher.getUnsolvedIssueIds());
+        Assert.assertEquals(List.of("Legit transaction"), transactionDataFetcher.getAllSolvedIssueMessages());
+        Assert.assertTrue(transactionDataFetcher.hasOpenComplianceIssues("Ali"));
+    }
+
+    @Test
+    public void testPointLookupsOnIndexedRepository() {
+        ArrayList<Transaction> transactions = new ArrayList<>();
+
+        transactions.add(new Transaction(1, BigDecimal.ONE, "Mehran Kamal", 20, "Ali", 20, 32, true, "Legit transaction"));
+        transactions.add(new Transaction(3, BigDecimal.TEN, "Mehran Kamal", 20, "Ali", 20, 35, false, "Looks like fraud"));
+        transactions.add(new Transaction(4, BigDecimal.TEN, "Hamza", 20, "Mehran", 20, null, true, null));
+        TransactionDataFetcher indexedDataFetcher = new TransactionDataFetcher(new IndexedTransactionRepository(transactions));
+
+        Assert.assertEquals(0, indexedDataFetcher.getTotalTransactionAmountSentBy("Mehran Kamal").compareTo(BigDecimal.valueOf(11)));
+        Assert.assertEquals(0, indexedDataFetcher.getTotalTransactionAmountSentBy("Ali").compareTo(BigDecimal.ZERO));
+        Assert.assertTrue(indexedDataFetcher.hasOpenComplianceIssues("Ali"));
+        Assert.assertFalse(indexedDataFetcher.hasOpenComplianceIssues("Hamza"));
+        Assert.assertEquals(List.of(transactions.get(2)), indexedDataFetcher.getTransactionsByBeneficiaryName().get("Mehran"));
+        Assert.assertEquals(Optional.of(transactions.get(1)), indexedDataFetcher.getTransactionByIssueId(35));
+        Assert.assertEquals(Optional.empty(), indexedDataFetcher.getTransactionByIssueId(99));
+    }
+
+    @Test
+    public void testIndexedRepositoryTreatsUnknownSolvedAsOpen() {
+        ArrayList<Transaction> transactions = new ArrayList<>();
+
+        transactions.add(new Transaction(1, BigDecimal.ONE, "Hamza", 20, null, null, 40, null, "Unreviewed"));
+        transactions.add(new Transaction(2, BigDecimal.TEN, null, null, "Hamza", 20, 41, false, "Looks like fraud"));
+        transactions.add(new Transaction(3, BigDecimal.TEN, "Ali", 20, "Mehran", 20, 42, true, "Checked"));
+        IndexedTransactionRepository indexedRepository = new IndexedTransactionRepository(transactions);
+        ColumnarTransactionRepository columnarRepository = new ColumnarTransactionRepository(indexedRepository);
+
+        Assert.assertEquals(2, indexedRepository.countOpenIssues("Hamza"));
+        Assert.assertEquals(columnarRepository.countOpenIssues("Hamza"), indexedRepository.countOpenIssues("Hamza"));
+        Assert.assertEquals(0, indexedRepository.countOpenIssues("Ali"));
+        Assert.assertEquals(Optional.of(transactions.get(0)), indexedRepository.findByIssueId(40));
+        Assert.assertEquals(List.of(transactions.get(0)), indexedRepository.findByBeneficiary(null));
+    }
+
+    @Test
+    public void testColumnarRepositoryMatchesObjectRepository() {
+        Transaction transactionWithIssues = new Transaction(1, new BigDecimal("10.5"), "Mehran Kamal", 20, "Ali", 20, 32, true, "Legit transaction");
+        transactionWithIssues.addIssue(35, false, "Looks like fraud");
+
+        ArrayList<Transaction> transactions = new ArrayList<>();
+        transactions.add(transactionWithIssues);
+        transactions.add(new Transaction(3, new BigDecimal("0.25"), "Hamza", 30, "Mehran Kamal", 40, null, true, null));
+        transactions.add(new Transaction(4, BigDecimal.TEN, "Hamza", 20, "Mehran", 20, 36, true, "Checked"));
+        Mockito.when(transactionRepository.getAll()).thenReturn(transactions);
+
+        TransactionDataFetcher columnarDataFetcher = new TransactionDataFetcher(new ColumnarTransactionRepository(transactionRepository));
+
+        Assert.assertEquals(0, columnarDataFetcher.getTotalTransactionAmount().compareTo(transactionDataFetcher.getTotalTransactionAmount()));
+        Assert.assertEquals(transactionDataFetcher.getMaxTransactionAmount(), columnarDataFetcher.getMaxTransactionAmount());
+        Assert.assertEquals(0, columnarDataFetcher.getTotalTransactionAmountSentBy("Hamza").compareTo(new BigDecimal("10.25")));
+        Assert.assertEquals(transactionDataFetcher.countUniqueClients(), columnarDataFetcher.countUniqueClients());
+        Assert.assertEquals(transactionDataFetcher.getUnsolvedIssueIds(), columnarDataFetcher.getUnsolvedIssueIds());
+        Assert.assertEquals(transactionDataFetcher.getAllSolvedIssueMessages(), columnarDataFetcher.getAllSolvedIssueMessages());
+        Assert.assertEquals(transactionDataFetcher.getTop3TransactionsByAmount(), columnarDataFetcher.getTop3TransactionsByAmount());
+        Assert.assertEquals(transactionDataFetcher.getTopSender(), columnarDataFetcher.getTopSender());
+        Assert.assertEquals(transactionDataFetcher.hasOpenComplianceIssues("Ali"), columnarDataFetcher.hasOpenComplianceIssues("Ali"));
+        Assert.assertEquals(Optional.of(transactions.get(2)), columnarDataFetcher.getTransactionByIssueId(36));
+    }
+
+    @Test
+    public void testColumnarSenderTotalReadsTheColumns() {
+        ArrayList<Transaction> transactions = new ArrayList<>();
+        transactions.add(new Transaction(1, new BigDecimal("10.5"), "Mehran Kamal", 20, "Ali", 20, null, true, null));
+        transactions.add(new Transaction(2, new BigDecimal("0.125"), "Hamza", 30, "Ali", 20, null, true, null));
+        transactions.add(new Transaction(3, new BigDecimal("2"), "Mehran Kamal", 20, "Hamza", 30, null, true, null));
+        transactions.add(new Transaction(4, new BigDecimal("9000000000000000"), "Ali", 20, "Hamza", 30, null, true, null));
+        transactions.add(new Transaction(5, new BigDecimal("9000000000000000"), "Ali", 20, "Hamza", 30, null, true, null));
+        Mockito.when(transactionRepository.getAll()).thenReturn(transactions);
+        ColumnarTransactionRepository columns = Mockito.spy(new ColumnarTransactionRepository(transactionRepository));
+        TransactionDataFetcher columnarDataFetcher = new TransactionDataFetcher(columns);
+
+        Assert.assertEquals(new BigDecimal("12.5"), columnarDataFetcher.getTotalTransactionAmountSentBy("Mehran Kamal"));
+        Assert.assertEquals(new BigDecimal("0.125"), columnarDataFetcher.getTotalTransactionAmountSentBy("Hamza"));
+        Assert.assertEquals(new BigDecimal("18000000000000000"), columnarDataFetcher.getTotalTransactionAmountSentBy("Ali"));
+        Assert.assertEquals(BigDecimal.ZERO, columnarDataFetcher.getTotalTransactionAmountSentBy("Nobody"));
+        Mockito.verify(columns, Mockito.never()).transaction(Mockito.anyInt());
+    }
+
+    @Test
+    public void testSenderTotalReusesComputedSummary() {
+        ArrayList<Transaction> transactions = new ArrayList<>();
+        transactions.add(new Transaction(1, BigDecimal.ONE, "Mehran Kamal", 20, "Ali", 20, null, true, null));
+        transactions.add(new Transaction(2, BigDecimal.TEN, "Mehran Kamal", 20, "Ali", 20, null, true, null));
+        Mockito.when(transactionRepository.getAll()).thenReturn(transactions);
+
+        transactionDataFetcher.getSummary();
+        Assert.assertEquals(0, transactionDataFetcher.getTotalTransactionAmountSentBy("Mehran Kamal").compareTo(BigDecimal.valueOf(11)));
+        Assert.assertEquals(0, transactionDataFetcher.getTotalTransactionAmountSentBy("Ali").compareTo(BigDecimal.ZERO));
+
+        Mockito.verify(transactionRepository, Mockito.times(1)).stream();
+        Mockito.verify(transactionRepository, Mockito.never()).findBySender(Mockito.anyString(), Mockito.any());
+    }
+
+    @Test
+    public void testGetTopTransactionsAndSenders() {
+        ArrayList<Transaction> transactions = new ArrayList<>();
+
+        transactions.add(new Transaction(1, BigDecimal.ONE, "Mehran Kamal", 20, "Ali", 20, null, true, null));
+        transactions.add(new Transaction(3, BigDecimal.valueOf(3), "Hamza", 20, "Ali", 20, null, true, null));
+        transactions.add(new Transaction(4, BigDecimal.valueOf(5), "Alex", 20, "Mehran", 20, null, true, null));
+        transactions.add(new Transaction(6, BigDecimal.valueOf(6), "Mehran Kamal", 20, "Ali", 20, null, true, null));
+        Mockito.when(transactionRepository.getAll()).thenReturn(transactions);
+
+        List<Transaction> topByAmount = transactionDataFetcher.getTopTransactions(2, Comparator.comparing(Transaction::getAmount));
+        Assert.assertEquals(List.of(transactions.get(3), transactions.get(2)), topByAmount);
+
+        List<Transaction> topByMtn = transactionDataFetcher.getTopTransactions(1, Comparator.comparing(Transaction::getMtn));
+        Assert.assertEquals(List.of(transactions.get(3)), topByMtn);
+
+        Map<String, BigDecimal> topSenders = transactionDataFetcher.getTopSenders(2);
+        Assert.assertEquals(List.of("Mehran Kamal", "Alex"), new ArrayList<>(topSenders.keySet()));
+        Assert.assertEquals(0, topSenders.get("Mehran Kamal").compareTo(BigDecimal.valueOf(7)));
+    }
 }
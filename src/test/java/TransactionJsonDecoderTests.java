@@ -0,0 +1,149 @@
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smallworld.data.ColumnarTransactionRepository;
+import com.smallworld.data.TransactionJsonDecoder;
+import com.smallworld.data.TransactionJsonRepository;
+import com.smallworld.data.TransactionRow;
+import com.smallworld.domain.entities.Transaction;
+import com.smallworld.metrics.LoadMetrics;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class TransactionJsonDecoderTests {
+
+    private static final String EDGE_CASES = "[" +
+            "{\"mtn\": 1, \"amount\": 430.2, \"senderFullName\": \"Tom Shelby\", \"senderAge\": 22, \"beneficiaryFullName\": \"Alfie Solomons\"," +
+            " \"beneficiaryAge\": 33, \"issueId\": 1, \"issueSolved\": false, \"issueMessage\": \"Looks like money laundering\"}," +
+            "{\"mtn\": 2, \"amount\": -0.050, \"senderFullName\": \"Tom Shelby\", \"senderAge\": null, \"beneficiaryFullName\": \"Ada Shelby\"," +
+            " \"issueId\": null, \"issueSolved\": true, \"issueMessage\": null}," +
+            "{\"issueMessage\": \"Escaped \\\"quote\\\" and \\u00e9\", \"amount\": \"12.5\", \"mtn\": \"3\", \"senderAge\": \"40\", \"issueSolved\": \"true\"}," +
+            "{\"mtn\": 4, \"amount\": 1.5E+3, \"senderFullName\": \"Grace Burgess\", \"beneficiaryAge\": 21.9, \"issueSolved\": 1}," +
+            "{\"mtn\": 5, \"amount\": 123456789012345678901234.5, \"beneficiaryFullName\": \"\"}," +
+            "{\"mtn\": 6, \"amount\": 7, \"additionalIssues\": [{\"issueId\": 9}], \"issueCount\": 1}," +
+            "{\"mtn\": 7}" +
+            "]";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static List<Transaction> decode(byte[] json) throws IOException {
+        List<Transaction> transactions = new ArrayList<>();
+        TransactionRow row = new TransactionRow();
+        try (TransactionJsonDecoder decoder = TransactionJsonDecoder.open(json)) {
+            while (decoder.next(row)) {
+                transactions.add(row.toTransaction());
+            }
+        }
+
+        return transactions;
+    }
+
+    @Test
+    public void testDecodesLikeTheBeanDeserializer() throws IOException {
+        byte[] json = EDGE_CASES.getBytes(StandardCharsets.UTF_8);
+        List<Transaction> expected = Arrays.asList(new ObjectMapper().readValue(json, Transaction[].class));
+
+        Assert.assertEquals(expected, decode(json));
+    }
+
+    @Test
+    public void testDecodesTheSampleExportLikeTheBeanDeserializer() throws IOException {
+        byte[] json = Files.readAllBytes(Path.of("transactions.json"));
+
+        Assert.assertEquals(Arrays.asList(new ObjectMapper().readValue(json, Transaction[].class)), decode(json));
+    }
+
+    @Test
+    public void testKeepsSmallAmountsAsLongs() throws IOException {
+        TransactionRow row = new TransactionRow();
+        try (TransactionJsonDecoder decoder = TransactionJsonDecoder.open("[{\"amount\": -1234.500}]".getBytes(StandardCharsets.UTF_8))) {
+            Assert.assertTrue(decoder.next(row));
+            Assert.assertTrue(row.hasLongAmount());
+            Assert.assertEquals(-1234500, row.getAmountUnscaled());
+            Assert.assertEquals(3, row.getAmountScale());
+            Assert.assertFalse(decoder.next(row));
+        }
+    }
+
+    @Test
+    public void testRejectsUnknownFields() throws IOException {
+        try (TransactionJsonDecoder decoder = TransactionJsonDecoder.open("[{\"mtn\": 1, \"currency\": \"EUR\"}]".getBytes(StandardCharsets.UTF_8))) {
+            Assert.assertThrows(IOException.class, () -> decoder.next(new TransactionRow()));
+        }
+    }
+
+    @Test
+    public void testColumnarLoadFoldsRepeatedMtnsLikeObjectLoad() throws IOException {
+        Path json = folder.newFile("transactions.json").toPath();
+        Files.writeString(json, "[" +
+                "{\"mtn\": 1, \"amount\": 10.5, \"senderFullName\": \"A\", \"beneficiaryFullName\": \"B\", \"issueId\": 1, \"issueSolved\": false, \"issueMessage\": \"m1\"}," +
+                "{\"mtn\": 2, \"amount\": 3, \"senderFullName\": \"B\", \"beneficiaryFullName\": \"C\", \"issueSolved\": true}," +
+                "{\"mtn\": 2, \"amount\": 3, \"senderFullName\": \"B\", \"beneficiaryFullName\": \"C\", \"issueId\": 2, \"issueSolved\": true, \"issueMessage\": \"m2\"}," +
+                "{\"mtn\": 1, \"amount\": 10.5, \"senderFullName\": \"A\", \"beneficiaryFullName\": \"B\", \"issueId\": 3, \"issueSolved\": true, \"issueMessage\": \"m3\"}," +
+                "{\"mtn\": 3, \"amount\": 0.125, \"senderFullName\": \"C\", \"beneficiaryFullName\": \"A\", \"issueId\": 4, \"issueSolved\": false, \"issueMessage\": \"m4\"}," +
+                "{\"mtn\": 2, \"amount\": 3, \"senderFullName\": \"B\", \"beneficiaryFullName\": \"C\", \"issueId\": 5, \"issueSolved\": false, \"issueMessage\": \"m5\"}," +
+                "{\"mtn\": 1, \"amount\": 10.5, \"senderFullName\": \"A\", \"beneficiaryFullName\": \"B\", \"issueId\": 6, \"issueSolved\": false, \"issueMessage\": \"m6\"}" +
+                "]");
+
+        List<Transaction> expected = new ColumnarTransactionRepository(new TransactionJsonRepository(json.toString())).getAll();
+        ColumnarTransactionRepository loaded = ColumnarTransactionRepository.load(json.toString(), LoadMetrics.DISABLED);
+
+        Assert.assertEquals(expected, loaded.getAll());
+        Assert.assertEquals(3, loaded.getAll().get(0).getIssueCount());
+        Assert.assertEquals(2, loaded.countOpenIssues("C"));
+    }
+
+    @Test
+    public void testColumnarLoadRejectsRowsWithoutMtnOrAmount() throws IOException {
+        Path withoutMtn = folder.newFile("without-mtn.json").toPath();
+        Files.writeString(withoutMtn, "[{\"amount\": 10.5, \"senderFullName\": \"A\", \"beneficiaryFullName\": \"B\"}]");
+        Path withoutAmount = folder.newFile("without-amount.json").toPath();
+        Files.writeString(withoutAmount, "[{\"mtn\": 1, \"senderFullName\": \"A\", \"beneficiaryFullName\": \"B\"}]");
+        Path nullAmount = folder.newFile("null-amount.json").toPath();
+        Files.writeString(nullAmount, "[{\"mtn\": 1, \"amount\": null, \"senderFullName\": \"A\", \"beneficiaryFullName\": \"B\"}]");
+
+        for (Path json : List.of(withoutMtn, withoutAmount, nullAmount)) {
+            Assert.assertThrows(IllegalArgumentException.class, () -> ColumnarTransactionRepository.load(json.toString(), LoadMetrics.DISABLED));
+            Assert.assertThrows(IllegalArgumentException.class, () -> new ColumnarTransactionRepository(new TransactionJsonRepository(json.toString())));
+        }
+    }
+
+    @Test
+    public void testColumnarLoadKeepsMixedScalesAndRejectsAmountsBeyondALong() throws IOException {
+        Path mixedScales = folder.newFile("mixed-scales.json").toPath();
+        Files.writeString(mixedScales, "[{\"mtn\": 1, \"amount\": 900000000000000}, {\"mtn\": 2, \"amount\": 0.125}," +
+                " {\"mtn\": 3, \"amount\": -3.5}, {\"mtn\": 4, \"amount\": 9000000000000000}]");
+        Path manyDigits = folder.newFile("many-digits.json").toPath();
+        Files.writeString(manyDigits, "[{\"mtn\": 1, \"amount\": 10}, {\"mtn\": 2, \"amount\": 12345678901234567890.5}]");
+        Path largeThenPrecise = folder.newFile("large-then-precise.json").toPath();
+        Files.writeString(largeThenPrecise, "[{\"mtn\": 1, \"amount\": 1000000000000000000}, {\"mtn\": 2, \"amount\": 0.5}]");
+        Path preciseThenLarge = folder.newFile("precise-then-large.json").toPath();
+        Files.writeString(preciseThenLarge, "[{\"mtn\": 1, \"amount\": 0.5}, {\"mtn\": 2, \"amount\": 1000000000000000000}]");
+
+        List<BigDecimal> expected = new TransactionJsonRepository(mixedScales.toString()).getAll().stream()
+                .map(Transaction::getAmount).collect(Collectors.toList());
+        Assert.assertEquals(expected, ColumnarTransactionRepository.load(mixedScales.toString(), LoadMetrics.DISABLED).getAll().stream()
+                .map(Transaction::getAmount).collect(Collectors.toList()));
+
+        // The object storage has no limit, the columns reject what they cannot hold instead of failing on overflow
+        Assert.assertEquals(new BigDecimal("12345678901234567900.5"), new TransactionJsonRepository(manyDigits.toString()).getAll().stream()
+                .map(Transaction::getAmount).reduce(BigDecimal.ZERO, BigDecimal::add));
+        for (Path json : List.of(manyDigits, largeThenPrecise, preciseThenLarge)) {
+            IllegalArgumentException loadError = Assert.assertThrows(IllegalArgumentException.class,
+                    () -> ColumnarTransactionRepository.load(json.toString(), LoadMetrics.DISABLED));
+            Assert.assertTrue(loadError.getMessage(), loadError.getMessage().contains("does not fit a long"));
+            Assert.assertThrows(IllegalArgumentException.class, () -> new ColumnarTransactionRepository(new TransactionJsonRepository(json.toString())));
+        }
+    }
+}
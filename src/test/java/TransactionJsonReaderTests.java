@@ -0,0 +1,161 @@
+import com.smallworld.data.TransactionJsonReader;
+import com.smallworld.data.TransactionJsonStreamRepository;
+import com.smallworld.domain.entities.Transaction;
+import com.sun.management.UnixOperatingSystemMXBean;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class TransactionJsonReaderTests {
+
+    private static final String TRANSACTIONS = "[" +
+            "{\"mtn\": 1, \"amount\": 430.2, \"senderFullName\": \"Tom Shelby\", \"beneficiaryFullName\": \"Alfie Solomons\", \"issueId\": 1, \"issueSolved\": false, \"issueMessage\": \"m1\"}," +
+            "{\"mtn\": 1, \"amount\": 430.2, \"senderFullName\": \"Tom Shelby\", \"beneficiaryFullName\": \"Alfie Solomons\", \"issueId\": 2, \"issueSolved\": true, \"issueMessage\": \"m2\"}," +
+            "{\"mtn\": 2, \"amount\": 10, \"senderFullName\": \"Grace Burgess\", \"beneficiaryFullName\": \"Tom Shelby\", \"issueSolved\": true}" +
+            "]";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path write(String json) throws IOException {
+        Path path = folder.newFile().toPath();
+        Files.writeString(path, json);
+        return path;
+    }
+
+    @Test
+    public void testReadsEveryRowInOrder() throws IOException {
+        try (TransactionJsonReader reader = TransactionJsonReader.open(TRANSACTIONS.getBytes(StandardCharsets.UTF_8))) {
+            Assert.assertEquals(Integer.valueOf(1), reader.next().getIssueId());
+            Assert.assertEquals(Integer.valueOf(2), reader.next().getIssueId());
+            Transaction last = reader.next();
+            Assert.assertEquals(new BigDecimal("10"), last.getAmount());
+            Assert.assertEquals("Grace Burgess", last.getSenderFullName());
+            Assert.assertNull(reader.next());
+            Assert.assertNull(reader.next());
+        }
+    }
+
+    @Test
+    public void testRejectsNonArrayRoot() {
+        Assert.assertThrows(IOException.class, () -> TransactionJsonReader.open("{\"mtn\": 1}".getBytes(StandardCharsets.UTF_8)));
+        Assert.assertThrows(IOException.class, () -> TransactionJsonReader.open("\"transactions\"".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void testRejectsEmptySource() throws IOException {
+        Path empty = write("  \n");
+
+        Assert.assertThrows(IOException.class, () -> TransactionJsonReader.open(empty));
+    }
+
+    @Test
+    public void testRejectsMalformedInput() throws IOException {
+        try (TransactionJsonReader reader = TransactionJsonReader.open("[{\"mtn\": 1}, 2]".getBytes(StandardCharsets.UTF_8))) {
+            Assert.assertEquals(Integer.valueOf(1), reader.next().getMtn());
+            Assert.assertThrows(IOException.class, reader::next);
+        }
+        try (TransactionJsonReader reader = TransactionJsonReader.open("[{\"mtn\": 1, \"amount\": ".getBytes(StandardCharsets.UTF_8))) {
+            Assert.assertThrows(IOException.class, reader::next);
+        }
+        try (TransactionJsonReader reader = TransactionJsonReader.open("[{\"mtn\": 1 \"amount\": 2}]".getBytes(StandardCharsets.UTF_8))) {
+            Assert.assertThrows(IOException.class, reader::next);
+        }
+    }
+
+    @Test
+    public void testStreamWrapsMalformedInput() throws IOException {
+        Path malformed = write("[{\"mtn\": 1}, {\"mtn\": ]");
+
+        try (Stream<Transaction> transactions = TransactionJsonReader.stream(malformed)) {
+            Assert.assertThrows(UncheckedIOException.class, () -> transactions.collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    public void testEarlyClosedStreamsReleaseTheirFile() throws IOException {
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        Assume.assumeTrue(os instanceof UnixOperatingSystemMXBean);
+        UnixOperatingSystemMXBean unix = (UnixOperatingSystemMXBean) os;
+        Path json = write(TRANSACTIONS);
+        TransactionJsonStreamRepository repository = new TransactionJsonStreamRepository(json.toString());
+
+        long openBefore = unix.getOpenFileDescriptorCount();
+        for (int attempt = 0; attempt < 200; attempt++) {
+            try (Stream<Transaction> transactions = TransactionJsonReader.stream(json)) {
+                Assert.assertTrue(transactions.findFirst().isPresent());
+            }
+            try (Stream<Transaction> transactions = repository.stream()) {
+                Assert.assertTrue(transactions.findFirst().isPresent());
+            }
+        }
+
+        Assert.assertTrue(unix.getOpenFileDescriptorCount() - openBefore < 50);
+    }
+
+    @Test
+    public void testRepositoryFoldsAdjacentRows() throws IOException {
+        TransactionJsonStreamRepository repository = new TransactionJsonStreamRepository(write(TRANSACTIONS).toString());
+
+        List<Transaction> transactions = repository.getAll();
+
+        Assert.assertEquals(2, transactions.size());
+        Assert.assertEquals(2, transactions.get(0).getIssueCount());
+        Assert.assertEquals(0, transactions.get(1).getIssueCount());
+        Assert.assertEquals(transactions, repository.getAll());
+    }
+
+    @Test
+    public void testIssueLookupsCoverEveryFoldedIssue() throws IOException {
+        Transaction folded = new TransactionJsonStreamRepository(write(TRANSACTIONS).toString()).getAll().get(0);
+        folded.addIssue(3, null, "m3");
+
+        Assert.assertEquals(2, folded.countOpenIssues());
+        Assert.assertTrue(folded.hasIssue(1));
+        Assert.assertTrue(folded.hasIssue(3));
+        Assert.assertFalse(folded.hasIssue(4));
+        Assert.assertSame(folded.getAdditionalIssues(), folded.getAdditionalIssues());
+        Assert.assertThrows(UnsupportedOperationException.class, () -> folded.getAdditionalIssues().clear());
+
+        folded.updateIssueSolved(1, true);
+        Assert.assertEquals(1, folded.countOpenIssues());
+    }
+
+    @Test
+    public void testRepositoryStopsAtFirstMatch() throws IOException {
+        // Folding reads one row ahead, the malformed third object is never decoded by a short-circuiting scan
+        TransactionJsonStreamRepository repository = new TransactionJsonStreamRepository(write(
+                "[{\"mtn\": 1, \"senderFullName\": \"Tom Shelby\"}, {\"mtn\": 2}, {\"mtn\": 3, \"amount\": }]").toString());
+
+        try (Stream<Transaction> transactions = repository.stream()) {
+            Optional<Transaction> first = transactions.filter(transaction -> "Tom Shelby".equals(transaction.getSenderFullName())).findFirst();
+            Assert.assertEquals(Integer.valueOf(1), first.orElseThrow().getMtn());
+        }
+    }
+
+    @Test
+    public void testRepositoryRejectsMalformedInput() throws IOException {
+        TransactionJsonStreamRepository nonArray = new TransactionJsonStreamRepository(write("{\"mtn\": 1}").toString());
+        TransactionJsonStreamRepository truncated = new TransactionJsonStreamRepository(write("[{\"mtn\": 1}, {\"mtn\"").toString());
+        TransactionJsonStreamRepository missing = new TransactionJsonStreamRepository(folder.getRoot().toPath().resolve("missing.json").toString());
+
+        Assert.assertThrows(UncheckedIOException.class, nonArray::stream);
+        Assert.assertThrows(UncheckedIOException.class, truncated::getAll);
+        Assert.assertThrows(UncheckedIOException.class, missing::stream);
+    }
+}
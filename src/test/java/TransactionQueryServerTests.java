@@ -0,0 +1,157 @@
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smallworld.api.TransactionQueryServer;
+import com.smallworld.data.ColumnarTransactionRepository;
+import com.smallworld.data.IndexedTransactionRepository;
+import com.smallworld.domain.TransactionDataFetcher;
+import com.smallworld.domain.entities.Transaction;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+public class TransactionQueryServerTests {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private TransactionQueryServer server;
+    private HttpClient client;
+
+    @Before
+    public void setUp() throws Exception {
+        List<Transaction> transactions = List.of(
+                new Transaction(1, new BigDecimal("10.5"), "Tom Shelby", 22, "Alfie Solomons", 33, 1, false, "Looks like money laundering"),
+                new Transaction(2, new BigDecimal("20"), "Arthur Shelby", 60, "Tom Shelby", 22, 2, true, "Never gonna give you up")
+        );
+        server = new TransactionQueryServer(new TransactionDataFetcher(new IndexedTransactionRepository(transactions)),
+                new InetSocketAddress("localhost", 0), 128);
+        server.start();
+        client = HttpClient.newHttpClient();
+    }
+
+    @After
+    public void tearDown() {
+        server.close();
+    }
+
+    private HttpResponse<String> get(String pathAndQuery) throws Exception {
+        return client.send(request(pathAndQuery), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpRequest request(String pathAndQuery) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + pathAndQuery)).build();
+    }
+
+    @Test
+    public void testQueriesAreAnsweredAsJson() throws Exception {
+        Assert.assertEquals("30.5", get("/total-amount").body());
+        Assert.assertEquals("10.5", get("/total-amount-sent-by?sender=Tom%20Shelby").body());
+        Assert.assertEquals("3", get("/unique-clients").body());
+        Assert.assertEquals("true", get("/has-open-compliance-issues?client=Alfie+Solomons").body());
+        Assert.assertEquals("[1]", get("/unsolved-issue-ids").body());
+        Assert.assertEquals("\"Arthur Shelby\"", get("/top-sender").body());
+        Assert.assertEquals(2, OBJECT_MAPPER.readTree(get("/transaction-by-issue-id?issueId=2").body()).get("mtn").asInt());
+
+        JsonNode byBeneficiary = OBJECT_MAPPER.readTree(get("/transactions-by-beneficiary").body());
+        Assert.assertEquals(1, byBeneficiary.get("Tom Shelby").size());
+        Assert.assertEquals("Arthur Shelby", byBeneficiary.get("Tom Shelby").get(0).get("senderFullName").asText());
+    }
+
+    @Test
+    public void testTransactionsAreWrittenWithEveryIssue() throws Exception {
+        Transaction folded = new Transaction(1, new BigDecimal("10.5"), "Tom Shelby", 22, "Alfie Solomons", 33, 1, false, "Looks like money laundering");
+        folded.addIssue(3, true, "Never gonna let you down");
+        TransactionQueryServer foldedServer = new TransactionQueryServer(new TransactionDataFetcher(new ColumnarTransactionRepository(
+                new IndexedTransactionRepository(List.of(folded)))), new InetSocketAddress("localhost", 0), 128);
+        foldedServer.start();
+        try {
+            for (String pathAndQuery : List.of("/transaction-by-issue-id?issueId=3", "/top-3-transactions", "/transactions-by-beneficiary")) {
+                JsonNode body = OBJECT_MAPPER.readTree(client.send(HttpRequest.newBuilder(
+                        URI.create("http://localhost:" + foldedServer.getPort() + pathAndQuery)).build(), HttpResponse.BodyHandlers.ofString()).body());
+                JsonNode transaction = body.has("mtn") ? body : body.isArray() ? body.get(0) : body.get("Alfie Solomons").get(0);
+
+                JsonNode issues = transaction.get("issues");
+                Assert.assertEquals(pathAndQuery, 2, issues.size());
+                Assert.assertEquals(1, issues.get(0).get("issueId").asInt());
+                Assert.assertFalse(issues.get(0).get("issueSolved").asBoolean());
+                Assert.assertEquals(3, issues.get(1).get("issueId").asInt());
+                Assert.assertEquals("Never gonna let you down", issues.get(1).get("issueMessage").asText());
+            }
+        } finally {
+            foldedServer.close();
+        }
+    }
+
+    @Test
+    public void testErrorsAreReportedWithStatus() throws Exception {
+        Assert.assertEquals(400, get("/total-amount-sent-by").statusCode());
+        Assert.assertEquals(400, get("/top-senders?k=many").statusCode());
+        Assert.assertEquals(404, get("/transaction-by-issue-id?issueId=42").statusCode());
+        Assert.assertEquals(404, get("/total-amount/extra").statusCode());
+        Assert.assertEquals(405, client.send(HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + "/top-sender"))
+                .POST(HttpRequest.BodyPublishers.noBody()).build(), HttpResponse.BodyHandlers.ofString()).statusCode());
+    }
+
+    @Test
+    public void testConcurrentRequests() {
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+        for (int request = 0; request < 500; request++) {
+            responses.add(client.sendAsync(request("/top-senders?k=1"), HttpResponse.BodyHandlers.ofString()));
+        }
+
+        for (CompletableFuture<HttpResponse<String>> response : responses) {
+            Assert.assertEquals("{\"Arthur Shelby\":20}", response.join().body());
+        }
+    }
+
+    @Test
+    public void testFailuresAreAnsweredWithoutDetails() throws Exception {
+        TransactionDataFetcher fetcher = Mockito.mock(TransactionDataFetcher.class);
+        Mockito.when(fetcher.getTotalTransactionAmount()).thenThrow(new IllegalStateException("Lost connection to db.internal:5432"));
+        TransactionQueryServer failingServer = new TransactionQueryServer(fetcher, new InetSocketAddress("localhost", 0), 128);
+        failingServer.start();
+        try {
+            HttpResponse<String> response = client.send(HttpRequest.newBuilder(
+                    URI.create("http://localhost:" + failingServer.getPort() + "/total-amount")).build(), HttpResponse.BodyHandlers.ofString());
+            Assert.assertEquals(500, response.statusCode());
+            Assert.assertEquals("{\"error\":\"Internal error\"}", response.body());
+        } finally {
+            failingServer.close();
+        }
+    }
+
+    @Test
+    public void testTransactionsByBeneficiaryAreStreamedFromTheColumns() throws Exception {
+        ColumnarTransactionRepository repository = Mockito.spy(new ColumnarTransactionRepository(new IndexedTransactionRepository(List.of(
+                new Transaction(1, new BigDecimal("10.5"), "Tom Shelby", 22, "Alfie Solomons", 33, 1, false, "Looks like money laundering"),
+                new Transaction(2, new BigDecimal("20"), "Arthur Shelby", 60, "Tom Shelby", 22, 2, true, "Never gonna give you up"),
+                new Transaction(3, new BigDecimal("5"), "Aunt Polly", 34, "Tom Shelby", 22, null, true, null)
+        ))));
+        TransactionQueryServer columnarServer = new TransactionQueryServer(new TransactionDataFetcher(repository),
+                new InetSocketAddress("localhost", 0), 128);
+        columnarServer.start();
+        try {
+            JsonNode byBeneficiary = OBJECT_MAPPER.readTree(client.send(HttpRequest.newBuilder(
+                    URI.create("http://localhost:" + columnarServer.getPort() + "/transactions-by-beneficiary")).build(),
+                    HttpResponse.BodyHandlers.ofString()).body());
+            Assert.assertEquals(2, byBeneficiary.size());
+            Assert.assertEquals(1, byBeneficiary.get("Alfie Solomons").size());
+            Assert.assertEquals(2, byBeneficiary.get("Tom Shelby").get(0).get("mtn").asInt());
+            Assert.assertEquals(3, byBeneficiary.get("Tom Shelby").get(1).get("mtn").asInt());
+        } finally {
+            columnarServer.close();
+        }
+        Mockito.verify(repository, Mockito.never()).groupByBeneficiary(Mockito.any());
+    }
+}
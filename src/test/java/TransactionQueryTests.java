@@ -0,0 +1,165 @@
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smallworld.data.ColumnarTransactionRepository;
+import com.smallworld.data.IndexedTransactionRepository;
+import com.smallworld.data.MappedTransactionRepository;
+import com.smallworld.data.TransactionRepository;
+import com.smallworld.domain.TransactionDataFetcher;
+import com.smallworld.domain.TransactionQuery;
+import com.smallworld.domain.entities.ComplianceIssue;
+import com.smallworld.domain.entities.Transaction;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+public class TransactionQueryTests {
+
+    private static final int TRANSACTION_COUNT = 20_000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private List<Transaction> transactions;
+    private List<TransactionDataFetcher> fetchers;
+
+    @Before
+    public void setUp() throws IOException {
+        Random random = new Random(19);
+        transactions = new ArrayList<>();
+        for (int mtn = 0; mtn < TRANSACTION_COUNT; mtn++) {
+            boolean hasIssue = random.nextInt(3) == 0;
+            Transaction transaction = new Transaction(mtn,
+                    BigDecimal.valueOf(random.nextInt(100_000), random.nextInt(3)),
+                    "Sender " + random.nextInt(100),
+                    random.nextInt(10) == 0 ? null : 18 + random.nextInt(70),
+                    "Beneficiary " + random.nextInt(100),
+                    18 + random.nextInt(70),
+                    hasIssue ? mtn : null,
+                    !hasIssue || random.nextBoolean(),
+                    hasIssue ? "Issue " + mtn : null);
+            if (hasIssue && random.nextBoolean()) {
+                transaction.addIssue(TRANSACTION_COUNT + mtn, false, "Issue " + (TRANSACTION_COUNT + mtn));
+            }
+            transactions.add(transaction);
+        }
+
+        TransactionRepository scanned = () -> transactions;
+        IndexedTransactionRepository indexed = new IndexedTransactionRepository(transactions);
+        fetchers = List.of(
+                new TransactionDataFetcher(scanned),
+                new TransactionDataFetcher(indexed),
+                new TransactionDataFetcher(new ColumnarTransactionRepository(indexed)),
+                TransactionDataFetcher.withParallelism(new ColumnarTransactionRepository(indexed), 4),
+                new TransactionDataFetcher(MappedTransactionRepository.load(writeSource(transactions).toString())));
+    }
+
+    /**
+     * Writes the transactions as a JSON source, one row per compliance issue as in the source exports
+     */
+    private Path writeSource(List<Transaction> transactions) throws IOException {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (Transaction transaction : transactions) {
+            List<ComplianceIssue> issues = transaction.getIssues();
+            if (issues.isEmpty()) {
+                issues = List.of(new ComplianceIssue(null, true, null));
+            }
+            for (ComplianceIssue issue : issues) {
+                Map<String, Object> row = new LinkedHashMap<>();
+                row.put("mtn", transaction.getMtn());
+                row.put("amount", transaction.getAmount());
+                row.put("senderFullName", transaction.getSenderFullName());
+                row.put("senderAge", transaction.getSenderAge());
+                row.put("beneficiaryFullName", transaction.getBeneficiaryFullName());
+                row.put("beneficiaryAge", transaction.getBeneficiaryAge());
+                row.put("issueId", issue.getIssueId());
+                row.put("issueSolved", issue.getIssueSolved());
+                row.put("issueMessage", issue.getIssueMessage());
+                rows.add(row);
+            }
+        }
+
+        Path source = folder.getRoot().toPath().resolve("transactions.json");
+        new ObjectMapper().writeValue(source.toFile(), rows);
+        return source;
+    }
+
+    private static List<Integer> mtns(List<Transaction> transactions) {
+        return transactions.stream().map(Transaction::getMtn).collect(Collectors.toList());
+    }
+
+    private void assertMatches(Function<TransactionQuery, TransactionQuery> conditions, Predicate<Transaction> expected) {
+        List<Transaction> matching = transactions.stream().filter(expected).collect(Collectors.toList());
+        BigDecimal expectedTotal = matching.stream().map(Transaction::getAmount).reduce(BigDecimal.ZERO, BigDecimal::add);
+
+        for (TransactionDataFetcher fetcher : fetchers) {
+            TransactionQuery query = conditions.apply(fetcher.query());
+            Assert.assertEquals(mtns(matching), mtns(query.list()));
+            Assert.assertEquals(matching.size(), query.count());
+            Assert.assertEquals(0, expectedTotal.compareTo(query.getTotalAmount()));
+            Assert.assertEquals(0, expectedTotal.compareTo(query.getSummary().getTotalAmount()));
+        }
+    }
+
+    @Test
+    public void testAmountRange() {
+        BigDecimal min = new BigDecimal("12.5");
+        BigDecimal max = new BigDecimal("300.005");
+        assertMatches(query -> query.amountBetween(min, max),
+                transaction -> transaction.getAmount().compareTo(min) >= 0 && transaction.getAmount().compareTo(max) <= 0);
+    }
+
+    @Test
+    public void testNarrowedAmountBoundsIntersect() {
+        assertMatches(query -> query.amountAtLeast(new BigDecimal("10")).amountAtLeast(new BigDecimal("500")).amountAtMost(new BigDecimal("800")),
+                transaction -> transaction.getAmount().compareTo(new BigDecimal("500")) >= 0
+                        && transaction.getAmount().compareTo(new BigDecimal("800")) <= 0);
+    }
+
+    @Test
+    public void testAgeBandsAndIssues() {
+        assertMatches(query -> query.senderAgeBetween(25, 34).beneficiaryAgeBetween(50, 90).withOpenIssues(),
+                transaction -> transaction.getSenderAge() != null
+                        && transaction.getSenderAge() >= 25 && transaction.getSenderAge() <= 34
+                        && transaction.getBeneficiaryAge() >= 50
+                        && transaction.getIssues().stream().anyMatch(issue -> !issue.getIssueSolved()));
+    }
+
+    @Test
+    public void testClientAndOpaquePredicate() {
+        assertMatches(query -> query.sentBy("Sender 7").withIssues().amountAtMost(new BigDecimal("600")).where(transaction -> transaction.getMtn() % 2 == 0),
+                transaction -> transaction.getSenderFullName().equals("Sender 7")
+                        && transaction.getIssueCount() > 0
+                        && transaction.getAmount().compareTo(new BigDecimal("600")) <= 0
+                        && transaction.getMtn() % 2 == 0);
+    }
+
+    @Test
+    public void testUnknownOrConflictingClientsMatchNothing() {
+        assertMatches(query -> query.receivedBy("Nobody"), transaction -> false);
+        assertMatches(query -> query.sentBy("Sender 1").sentBy("Sender 2"), transaction -> false);
+    }
+
+    @Test
+    public void testTopTransactionsOfFilteredQuery() {
+        List<Transaction> expected = transactions.stream()
+                .filter(transaction -> transaction.getBeneficiaryAge() < 30)
+                .sorted(Transaction.BY_AMOUNT_DESCENDING)
+                .limit(5)
+                .collect(Collectors.toList());
+
+        for (TransactionDataFetcher fetcher : fetchers) {
+            List<Transaction> top = fetcher.query().beneficiaryAgeBetween(0, 29).getTopTransactions(5, Comparator.comparing(Transaction::getAmount));
+            Assert.assertEquals(expected.stream().map(Transaction::getAmount).collect(Collectors.toList()),
+                    top.stream().map(Transaction::getAmount).collect(Collectors.toList()));
+        }
+    }
+}
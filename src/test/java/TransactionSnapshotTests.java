@@ -0,0 +1,154 @@
+import com.smallworld.data.ColumnarTransactionRepository;
+import com.smallworld.data.MappedTransactionRepository;
+import com.smallworld.data.TransactionJsonRepository;
+import com.smallworld.data.TransactionSnapshot;
+import com.smallworld.domain.TransactionDataFetcher;
+import com.smallworld.domain.entities.Transaction;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class TransactionSnapshotTests {
+
+    private static final String TRANSACTIONS_JSON = "["
+            + "{\"mtn\":1,\"amount\":430.2,\"senderFullName\":\"Tom Shelby\",\"senderAge\":22,\"beneficiaryFullName\":\"Alfie Solomons\",\"beneficiaryAge\":33,\"issueId\":1,\"issueSolved\":false,\"issueMessage\":\"Looks like money laundering\"},"
+            + "{\"mtn\":2,\"amount\":150.25,\"senderFullName\":\"Tom Shelby\",\"senderAge\":22,\"beneficiaryFullName\":\"Arthur Shelby\",\"beneficiaryAge\":60,\"issueId\":2,\"issueSolved\":true,\"issueMessage\":\"Never gonna give you up\"},"
+            + "{\"mtn\":2,\"amount\":150.25,\"senderFullName\":\"Tom Shelby\",\"senderAge\":22,\"beneficiaryFullName\":\"Arthur Shelby\",\"beneficiaryAge\":60,\"issueId\":3,\"issueSolved\":false,\"issueMessage\":\"Looks like money laundering\"},"
+            + "{\"mtn\":3,\"amount\":67.8,\"senderFullName\":\"Aunt Polly\",\"senderAge\":34,\"beneficiaryFullName\":\"Aberama Gold\",\"issueSolved\":true}"
+            + "]";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path writeSource(String json) throws IOException {
+        Path source = folder.getRoot().toPath().resolve("transactions.json");
+        Files.write(source, json.getBytes(StandardCharsets.UTF_8));
+        return source;
+    }
+
+    @Test
+    public void testSnapshotRoundTrip() throws IOException {
+        Path source = writeSource(TRANSACTIONS_JSON);
+        Path snapshot = folder.getRoot().toPath().resolve("transactions.json.snapshot");
+
+        ColumnarTransactionRepository parsed = TransactionSnapshot.load(source, snapshot);
+        Assert.assertTrue(Files.exists(snapshot));
+
+        ColumnarTransactionRepository restored = TransactionSnapshot.read(snapshot, source).orElseThrow();
+        Assert.assertEquals(parsed.getAll(), restored.getAll());
+        Assert.assertEquals(new TransactionJsonRepository(source.toString()).getAll(), restored.getAll());
+        Assert.assertEquals(new TransactionDataFetcher(parsed).getSummary(), new TransactionDataFetcher(restored).getSummary());
+    }
+
+    @Test
+    public void testSnapshotIsRebuiltWhenSourceChanges() throws IOException {
+        Path source = writeSource(TRANSACTIONS_JSON);
+        Path snapshot = folder.getRoot().toPath().resolve("transactions.json.snapshot");
+        TransactionSnapshot.load(source, snapshot);
+
+        Files.setLastModifiedTime(source, FileTime.fromMillis(Files.getLastModifiedTime(source).toMillis() + 60_000));
+        Assert.assertTrue("same content under a new mtime", TransactionSnapshot.read(snapshot, source).isPresent());
+
+        writeSource(TRANSACTIONS_JSON.replace("430.2", "530.2"));
+        Files.setLastModifiedTime(source, FileTime.fromMillis(Files.getLastModifiedTime(source).toMillis() + 120_000));
+        Assert.assertFalse(TransactionSnapshot.read(snapshot, source).isPresent());
+        Assert.assertEquals("530.2", TransactionSnapshot.load(source, snapshot).transaction(0).getAmount().toPlainString());
+        Assert.assertTrue(TransactionSnapshot.read(snapshot, source).isPresent());
+    }
+
+    @Test
+    public void testUnchangedContentRefreshesTheStamp() throws IOException {
+        Path source = writeSource(TRANSACTIONS_JSON);
+        Path snapshot = folder.getRoot().toPath().resolve("transactions.json.snapshot");
+        TransactionSnapshot.load(source, snapshot);
+
+        long modified = Files.getLastModifiedTime(source).toMillis() + 60_000;
+        Files.setLastModifiedTime(source, FileTime.fromMillis(modified));
+        Assert.assertTrue(TransactionSnapshot.isValid(snapshot, source));
+
+        try (RandomAccessFile file = new RandomAccessFile(snapshot.toFile(), "r")) {
+            file.seek(24);
+            Assert.assertEquals(modified, file.readLong());
+        }
+        Assert.assertTrue(TransactionSnapshot.read(snapshot, source).isPresent());
+    }
+
+    @Test
+    public void testConcurrentLoadsWriteOneSnapshot() throws Exception {
+        Path source = writeSource(TRANSACTIONS_JSON);
+        Path snapshot = folder.getRoot().toPath().resolve("transactions.json.snapshot");
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<ColumnarTransactionRepository>> loads = new ArrayList<>();
+            for (int load = 0; load < 32; load++) {
+                loads.add(executor.submit(() -> TransactionSnapshot.load(source, snapshot)));
+            }
+            for (Future<ColumnarTransactionRepository> load : loads) {
+                Assert.assertEquals(3, load.get().size());
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        Assert.assertTrue(TransactionSnapshot.isValid(snapshot, source));
+        try (Stream<Path> files = Files.list(folder.getRoot().toPath())) {
+            Assert.assertEquals(Set.of(source, snapshot), files.collect(Collectors.toSet()));
+        }
+    }
+
+    @Test
+    public void testCorruptSnapshotIsIgnored() throws IOException {
+        Path source = writeSource(TRANSACTIONS_JSON);
+        Path snapshot = folder.getRoot().toPath().resolve("transactions.json.snapshot");
+        TransactionSnapshot.load(source, snapshot);
+
+        try (RandomAccessFile file = new RandomAccessFile(snapshot.toFile(), "rw")) {
+            file.seek(file.length() - 1);
+            int last = file.read();
+            file.seek(file.length() - 1);
+            file.write(last ^ 0xFF);
+        }
+
+        Assert.assertFalse(TransactionSnapshot.read(snapshot, source).isPresent());
+        Assert.assertEquals(3, TransactionSnapshot.load(source, snapshot).size());
+        Assert.assertTrue(TransactionSnapshot.read(snapshot, source).isPresent());
+    }
+
+    @Test
+    public void testMappedRepositoryMatchesColumnarRepository() throws IOException {
+        Path source = writeSource(TRANSACTIONS_JSON);
+        Path snapshot = folder.getRoot().toPath().resolve("transactions.json.snapshot");
+        ColumnarTransactionRepository columnar = TransactionSnapshot.load(source, snapshot);
+
+        MappedTransactionRepository mapped = new MappedTransactionRepository(snapshot);
+        Assert.assertEquals(columnar.getAll(), mapped.getAll());
+        Assert.assertEquals(columnar.findBySender("Tom Shelby"), mapped.findBySender("Tom Shelby"));
+        Assert.assertEquals(columnar.findByIssueId(3), mapped.findByIssueId(3));
+        Assert.assertEquals(1, mapped.countOpenIssues("Arthur Shelby"));
+        try (Stream<Map.Entry<String, List<Transaction>>> groups = mapped.streamByBeneficiary()) {
+            Assert.assertEquals(columnar.groupByBeneficiary(), groups.collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue)));
+        }
+
+        TransactionDataFetcher fetcher = new TransactionDataFetcher(mapped);
+        Assert.assertEquals(new TransactionDataFetcher(columnar).getSummary(), fetcher.getSummary());
+        Assert.assertEquals("Tom Shelby", fetcher.getTopSender());
+    }
+}